@@ -0,0 +1,73 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects;
+
+/**
+ * Result of a Gradle build run by {@link GradleManager}.
+ * 
+ * @author Adam Wyłuda
+ */
+public class BuildOutcome
+{
+   private static final BuildOutcome SUCCESS = new BuildOutcome(true, false, null);
+
+   private final boolean success;
+   private final boolean cancelled;
+   private final Throwable failure;
+
+   protected BuildOutcome(boolean success, boolean cancelled, Throwable failure)
+   {
+      this.success = success;
+      this.cancelled = cancelled;
+      this.failure = failure;
+   }
+
+   public static BuildOutcome success()
+   {
+      return SUCCESS;
+   }
+
+   public static BuildOutcome failure(Throwable failure)
+   {
+      return new BuildOutcome(false, false, failure);
+   }
+
+   public static BuildOutcome cancelled(Throwable failure)
+   {
+      return new BuildOutcome(false, true, failure);
+   }
+
+   /**
+    * Returns true if build was successful.
+    */
+   public boolean isSuccess()
+   {
+      return success;
+   }
+
+   /**
+    * Returns true if build was cancelled before it finished.
+    */
+   public boolean isCancelled()
+   {
+      return cancelled;
+   }
+
+   /**
+    * Returns the reason of build failure or cancellation, null if the build was successful.
+    */
+   public Throwable getFailure()
+   {
+      return failure;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "BuildOutcome [success=" + success + ", cancelled=" + cancelled + ", failure=" + failure + "]";
+   }
+}
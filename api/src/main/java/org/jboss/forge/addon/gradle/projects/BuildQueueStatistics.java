@@ -0,0 +1,87 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects;
+
+/**
+ * Snapshot of the queue of Gradle invocations scheduled by {@link GradleManager}.
+ * 
+ * @author Adam Wyłuda
+ */
+public class BuildQueueStatistics
+{
+   private final int queueDepth;
+   private final int runningBuilds;
+   private final long startedBuilds;
+   private final long totalWaitTimeMillis;
+   private final long maxWaitTimeMillis;
+
+   public BuildQueueStatistics(int queueDepth, int runningBuilds, long startedBuilds, long totalWaitTimeMillis,
+            long maxWaitTimeMillis)
+   {
+      this.queueDepth = queueDepth;
+      this.runningBuilds = runningBuilds;
+      this.startedBuilds = startedBuilds;
+      this.totalWaitTimeMillis = totalWaitTimeMillis;
+      this.maxWaitTimeMillis = maxWaitTimeMillis;
+   }
+
+   /**
+    * Returns number of invocations waiting to be started.
+    */
+   public int getQueueDepth()
+   {
+      return queueDepth;
+   }
+
+   /**
+    * Returns number of invocations which are running right now.
+    */
+   public int getRunningBuilds()
+   {
+      return runningBuilds;
+   }
+
+   /**
+    * Returns number of invocations started since the addon was started.
+    */
+   public long getStartedBuilds()
+   {
+      return startedBuilds;
+   }
+
+   /**
+    * Returns total time which started invocations spent waiting in the queue.
+    */
+   public long getTotalWaitTimeMillis()
+   {
+      return totalWaitTimeMillis;
+   }
+
+   /**
+    * Returns the longest time an invocation spent waiting in the queue.
+    */
+   public long getMaxWaitTimeMillis()
+   {
+      return maxWaitTimeMillis;
+   }
+
+   /**
+    * Returns average time which started invocations spent waiting in the queue.
+    */
+   public long getAverageWaitTimeMillis()
+   {
+      return startedBuilds > 0 ? totalWaitTimeMillis / startedBuilds : 0;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "BuildQueueStatistics [queueDepth=" + queueDepth + ", runningBuilds=" + runningBuilds
+               + ", startedBuilds=" + startedBuilds + ", totalWaitTimeMillis=" + totalWaitTimeMillis
+               + ", maxWaitTimeMillis=" + maxWaitTimeMillis + "]";
+   }
+}
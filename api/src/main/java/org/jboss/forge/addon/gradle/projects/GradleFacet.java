@@ -6,8 +6,11 @@
  */
 package org.jboss.forge.addon.gradle.projects;
 
+import java.io.OutputStream;
+
 import org.jboss.forge.addon.gradle.projects.model.GradleModel;
 import org.jboss.forge.addon.gradle.projects.model.GradleModelBuilder;
+import org.jboss.forge.addon.gradle.projects.model.GradleModelSection;
 import org.jboss.forge.addon.gradle.projects.model.GradleProfile;
 import org.jboss.forge.addon.projects.ProvidedProjectFacet;
 import org.jboss.forge.addon.resource.FileResource;
@@ -32,6 +35,11 @@ import org.jboss.forge.addon.resource.FileResource;
  */
 public interface GradleFacet extends ProvidedProjectFacet
 {
+   /**
+    * Configuration key which enables stale models, see {@link #isModelStale()}. Disabled by default.
+    */
+   String ALLOW_STALE_MODEL_CONF_KEY = "gradleAllowStaleModel";
+
    /**
     * Executes Gradle build with specified task.
     */
@@ -44,11 +52,68 @@ public interface GradleFacet extends ProvidedProjectFacet
     */
    boolean executeTask(String task, String profile, String... arguments);
 
+   /**
+    * Runs Gradle applying given profile, sending its output to given streams.
+    * 
+    * @param out Stream receiving standard output of the build, output is discarded if null.
+    * @param err Stream receiving standard error of the build, output is discarded if null.
+    */
+   boolean executeTask(String task, String profile, OutputStream out, OutputStream err, String... arguments);
+
+   /**
+    * Runs Gradle applying given profile and reloads the project model in the same Gradle invocation, so that
+    * {@link #getModel()} doesn't have to run Gradle again afterwards. Model is reloaded only if no profile and no
+    * arguments changing the project configuration (e.g. {@code -P} properties) are given, otherwise it's evaluated
+    * again by the next {@link #getModel()} call.
+    * 
+    * @return True if build was successful, false otherwise.
+    */
+   boolean executeTaskAndReloadModel(String task, String profile, String... arguments);
+
+   /**
+    * Runs Gradle applying given profile and reloads the project model in the same Gradle invocation, sending build
+    * output to given streams.
+    * 
+    * @param out Stream receiving standard output of the build, output is discarded if null.
+    * @param err Stream receiving standard error of the build, output is discarded if null.
+    * @return True if build was successful, false otherwise.
+    */
+   boolean executeTaskAndReloadModel(String task, String profile, OutputStream out, OutputStream err,
+            String... arguments);
+
    /**
     * Returns evaluated Gradle project model.
     */
    GradleModel getModel();
 
+   /**
+    * Returns Gradle project model with at least given sections of the effective model evaluated. If the model wasn't
+    * evaluated yet, only these sections are evaluated, which is cheaper than evaluating the full model. Other
+    * sections are evaluated as soon as they are accessed.
+    * 
+    * @see GradleModel#isSectionLoaded(GradleModelSection)
+    */
+   GradleModel getModel(GradleModelSection... sections);
+
+   /**
+    * Returns true if effective sections and project information of the model returned by {@link #getModel()} come
+    * from the last persisted model of the project, which may not reflect current build scripts and is being evaluated
+    * again in the background. Direct sections are parsed from the current build script anyway.
+    * <p/>
+    * Stale models are returned only when enabled by {@link #ALLOW_STALE_MODEL_CONF_KEY}, instead of waiting for
+    * Gradle. Listeners are notified when the fresh model is loaded.
+    * 
+    * @see #addModelListener(GradleModelListener)
+    */
+   boolean isModelStale();
+
+   /**
+    * Registers listener notified when the fresh model replaces the stale one.
+    */
+   void addModelListener(GradleModelListener listener);
+
+   void removeModelListener(GradleModelListener listener);
+
    /**
     * Merges all changes with the old model and persists them to the build script.
     */
@@ -6,15 +6,101 @@
  */
 package org.jboss.forge.addon.gradle.projects;
 
+import java.io.OutputStream;
+import java.util.concurrent.CompletableFuture;
+
+import org.gradle.tooling.CancellationToken;
+import org.gradle.tooling.GradleConnectionException;
+import org.gradle.tooling.UnknownModelException;
+import org.gradle.tooling.UnsupportedVersionException;
+
 /**
  * Manages Gradle build system.
+ * <p/>
+ * All Gradle invocations are scheduled, so that invocations on the same root project never run concurrently, while
+ * invocations on independent projects may run in parallel.
  * 
  * @author Adam Wyłuda
  */
 public interface GradleManager
 {
    /**
+    * Runs Gradle build and waits for it to finish, discarding its output. If the calling thread is interrupted then
+    * the build is cancelled.
+    * 
     * @return True if build was successful, false otherwise.
     */
    boolean runGradleBuild(String directory, String task, String profile, String... arguments);
+
+   /**
+    * Runs Gradle build and waits for it to finish. If the calling thread is interrupted then the build is cancelled.
+    * 
+    * @param out Stream receiving standard output of the build, output is discarded if null.
+    * @param err Stream receiving standard error of the build, output is discarded if null.
+    * @return True if build was successful, false otherwise.
+    */
+   boolean runGradleBuild(String directory, String task, String profile, OutputStream out, OutputStream err,
+            String... arguments);
+
+   /**
+    * Runs Gradle build without blocking the calling thread.
+    * 
+    * @param cancellationToken Token which cancels the build, may be null.
+    * @param out Stream receiving standard output of the build, output is discarded if null.
+    * @param err Stream receiving standard error of the build, output is discarded if null.
+    * @return Future completed with the outcome of the build when it finishes, fails or is cancelled.
+    */
+   CompletableFuture<BuildOutcome> runGradleBuildAsync(String directory, String task, String profile,
+            CancellationToken cancellationToken, OutputStream out, OutputStream err, String... arguments);
+
+   /**
+    * Runs Gradle build and fetches model of given type after the projects are configured, in a single Gradle
+    * invocation. Waits for the build to finish; if the calling thread is interrupted then the build is cancelled.
+    * 
+    * @param out Stream receiving standard output of the build, output is discarded if null.
+    * @param err Stream receiving standard error of the build, output is discarded if null.
+    * @see #runGradleBuildWithModelAsync(String, String, String, Class, CancellationToken, OutputStream,
+    *      OutputStream, String...)
+    */
+   <T> ModelBuildOutcome<T> runGradleBuildWithModel(String directory, String task, String profile, Class<T> modelType,
+            OutputStream out, OutputStream err, String... arguments);
+
+   /**
+    * Runs Gradle build and fetches model of given type after the projects are configured, in a single Gradle
+    * invocation, without blocking the calling thread. This saves the configuration phase of a separate model fetch.
+    * 
+    * @param cancellationToken Token which cancels the build, may be null.
+    * @param out Stream receiving standard output of the build, output is discarded if null.
+    * @param err Stream receiving standard error of the build, output is discarded if null.
+    * @return Future completed with the outcome of the build when it finishes, fails or is cancelled. If Gradle
+    *         version of the project can't run phased build actions then the outcome fails with
+    *         {@link UnsupportedVersionException}.
+    */
+   <T> CompletableFuture<ModelBuildOutcome<T>> runGradleBuildWithModelAsync(String directory, String task,
+            String profile, Class<T> modelType, CancellationToken cancellationToken, OutputStream out,
+            OutputStream err, String... arguments);
+
+   /**
+    * Fetches custom model of given type from the project using Gradle Tooling API and waits for it. If the calling
+    * thread is interrupted then the fetch is cancelled.
+    * 
+    * @throws GradleConnectionException If model couldn't be fetched, e.g. when no model builder is registered for
+    *            given type ({@link UnknownModelException}).
+    */
+   <T> T getModel(String directory, Class<T> modelType, String... arguments);
+
+   /**
+    * Fetches custom model of given type from the project without blocking the calling thread.
+    * 
+    * @param cancellationToken Token which cancels the fetch, may be null.
+    * @return Future completed with the model, or completed exceptionally with {@link GradleConnectionException}.
+    */
+   <T> CompletableFuture<T> getModelAsync(String directory, Class<T> modelType, CancellationToken cancellationToken,
+            String... arguments);
+
+   /**
+    * Returns current state of the queue of Gradle invocations. Invocations on the same root project run one at a time
+    * and the number of concurrently running invocations is limited, so invocations may have to wait before they start.
+    */
+   BuildQueueStatistics getBuildQueueStatistics();
 }
@@ -0,0 +1,22 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects;
+
+import org.jboss.forge.addon.gradle.projects.model.GradleModel;
+
+/**
+ * Receives models of a project which were refreshed in the background, see {@link GradleFacet#isModelStale()}.
+ * 
+ * @author Adam Wyłuda
+ */
+public interface GradleModelListener
+{
+   /**
+    * Called from a background thread when fresh model of the project replaced the stale one.
+    */
+   void modelRefreshed(GradleFacet facet, GradleModel model);
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects;
+
+/**
+ * Result of a Gradle build which also fetched a model of the project after it was configured.
+ * 
+ * @see GradleManager#runGradleBuildWithModelAsync(String, String, String, Class,
+ *      org.gradle.tooling.CancellationToken, java.io.OutputStream, java.io.OutputStream, String...)
+ * 
+ * @author Adam Wyłuda
+ */
+public class ModelBuildOutcome<T> extends BuildOutcome
+{
+   private final T model;
+
+   protected ModelBuildOutcome(BuildOutcome outcome, T model)
+   {
+      super(outcome.isSuccess(), outcome.isCancelled(), outcome.getFailure());
+      this.model = model;
+   }
+
+   public static <T> ModelBuildOutcome<T> create(BuildOutcome outcome, T model)
+   {
+      return new ModelBuildOutcome<T>(outcome, model);
+   }
+
+   /**
+    * Returns model fetched after the projects were configured, or null if the build failed or was cancelled before
+    * that. Model is available even if the tasks failed afterwards.
+    */
+   public T getModel()
+   {
+      return model;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "ModelBuildOutcome [success=" + isSuccess() + ", cancelled=" + isCancelled() + ", failure="
+               + getFailure() + ", model=" + model + "]";
+   }
+}
@@ -6,6 +6,7 @@
  */
 package org.jboss.forge.addon.gradle.projects.model;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -18,8 +19,10 @@ import org.jboss.forge.furnace.util.Strings;
  * 
  * @author Adam Wyłuda
  */
-public class GradleDependencyBuilder implements GradleDependency
+public class GradleDependencyBuilder implements GradleDependency, Serializable
 {
+   private static final long serialVersionUID = 1L;
+
    static final String DEFAULT_PACKAGING = "jar";
 
    private String configurationName = GradleDependencyConfiguration.COMPILE.getName();
@@ -221,4 +221,11 @@ public interface GradleModel
     * Returns list of Gradle source sets.
     */
    List<GradleSourceSet> getEffectiveSourceSets();
+
+   /**
+    * Returns true if given section of the effective model was evaluated. Sections which weren't evaluated are empty.
+    * 
+    * @see GradleFacet#getModel(GradleModelSection...)
+    */
+   boolean isSectionLoaded(GradleModelSection section);
 }
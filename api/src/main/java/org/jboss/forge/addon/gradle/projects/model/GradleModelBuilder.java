@@ -6,19 +6,24 @@
  */
 package org.jboss.forge.addon.gradle.projects.model;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Default implementation of the {@link GradleModel}.
  * 
  * @author Adam Wyłuda
  */
-public class GradleModelBuilder implements GradleModel
+public class GradleModelBuilder implements GradleModel, Serializable
 {
+   private static final long serialVersionUID = 1L;
+
    private String group = "";
    private String name = "";
    private String version = "";
@@ -43,6 +48,7 @@ public class GradleModelBuilder implements GradleModel
    private Map<String, String> properties = new HashMap<String, String>();
    private Map<String, String> effectiveProperties = new HashMap<String, String>();
    private List<GradleSourceSet> effectiveSourceSets = new ArrayList<GradleSourceSet>();
+   private Set<GradleModelSection> loadedSections = EnumSet.allOf(GradleModelSection.class);
 
    GradleModelBuilder()
    {
@@ -84,6 +90,14 @@ public class GradleModelBuilder implements GradleModel
       builder.properties = new HashMap<String, String>(model.getProperties());
       builder.effectiveProperties = new HashMap<String, String>(model.getEffectiveProperties());
       builder.effectiveSourceSets = GradleSourceSetBuilder.deepCopy(model.getEffectiveSourceSets());
+      builder.loadedSections = EnumSet.noneOf(GradleModelSection.class);
+      for (GradleModelSection section : GradleModelSection.values())
+      {
+         if (model.isSectionLoaded(section))
+         {
+            builder.loadedSections.add(section);
+         }
+      }
 
       return builder;
    }
@@ -514,6 +528,22 @@ public class GradleModelBuilder implements GradleModel
       return this;
    }
 
+   @Override
+   public boolean isSectionLoaded(GradleModelSection section)
+   {
+      // Models cached before sections were introduced don't have them, but they were always fully evaluated
+      return loadedSections == null || loadedSections.contains(section);
+   }
+
+   /**
+    * Sets sections of the effective model which were evaluated, by default all sections are loaded.
+    */
+   public GradleModelBuilder setLoadedSections(Set<GradleModelSection> sections)
+   {
+      this.loadedSections = sections.isEmpty() ? EnumSet.noneOf(GradleModelSection.class) : EnumSet.copyOf(sections);
+      return this;
+   }
+
    private GradleDependency depWhichEqualsTo(List<GradleDependency> deps, GradleDependency dependency)
    {
       GradleDependencyBuilder builder = GradleDependencyBuilder.create(dependency);
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects.model;
+
+/**
+ * Section of the effective model which may be evaluated separately. Project information (group, name, version,
+ * packaging, paths and compatibility) is always evaluated.
+ * 
+ * @see GradleModel#isSectionLoaded(GradleModelSection)
+ * 
+ * @author Adam Wyłuda
+ */
+public enum GradleModelSection
+{
+   TASKS("tasks"),
+   DEPENDENCIES("dependencies"),
+   MANAGED_DEPENDENCIES("managedDependencies"),
+   REPOSITORIES("repositories"),
+   PLUGINS("plugins"),
+   SOURCE_SETS("sourceSets"),
+   PROPERTIES("properties"),
+
+   /**
+    * Effective models of profiles, evaluated by the same Gradle invocation as the project.
+    */
+   PROFILES("profiles");
+
+   private final String name;
+
+   private GradleModelSection(String name)
+   {
+      this.name = name;
+   }
+
+   /**
+    * Returns name of the section, as understood by the forgeOutput task.
+    */
+   public String getName()
+   {
+      return name;
+   }
+}
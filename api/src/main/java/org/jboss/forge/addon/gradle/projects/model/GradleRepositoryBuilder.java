@@ -6,6 +6,7 @@
  */
 package org.jboss.forge.addon.gradle.projects.model;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -16,8 +17,10 @@ import java.util.List;
  * 
  * @author Adam Wyłuda
  */
-public class GradleRepositoryBuilder implements GradleRepository
+public class GradleRepositoryBuilder implements GradleRepository, Serializable
 {
+   private static final long serialVersionUID = 1L;
+
    private String name = "MavenRepo";
    private String url;
    
@@ -6,6 +6,7 @@
  */
 package org.jboss.forge.addon.gradle.projects.model;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -17,8 +18,10 @@ import java.util.List;
  * 
  * @author Adam Wyłuda
  */
-public class GradleSourceSetBuilder implements GradleSourceSet
+public class GradleSourceSetBuilder implements GradleSourceSet, Serializable
 {
+   private static final long serialVersionUID = 1L;
+
    private String name = "";
    private List<GradleSourceDirectory> javaDirs = new ArrayList<GradleSourceDirectory>();
    private List<GradleSourceDirectory> resourceDirs = new ArrayList<GradleSourceDirectory>();
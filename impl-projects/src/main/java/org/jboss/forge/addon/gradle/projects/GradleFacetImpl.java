@@ -7,18 +7,44 @@
 package org.jboss.forge.addon.gradle.projects;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javax.inject.Inject;
 
+import org.gradle.internal.impldep.com.google.common.base.Joiner;
+import org.gradle.internal.impldep.com.google.common.collect.Lists;
 import org.gradle.internal.impldep.com.google.common.collect.Maps;
+import org.gradle.tooling.BuildActionFailureException;
+import org.gradle.tooling.UnsupportedVersionException;
 import org.jboss.forge.addon.configuration.Configuration;
 import org.jboss.forge.addon.facets.AbstractFacet;
 import org.jboss.forge.addon.gradle.parser.GradleSourceUtil;
 import org.jboss.forge.addon.gradle.projects.model.GradleModel;
+import org.jboss.forge.addon.gradle.projects.model.GradleModelBuilder;
 import org.jboss.forge.addon.gradle.projects.model.GradleModelLoadUtil;
 import org.jboss.forge.addon.gradle.projects.model.GradleModelMergeUtil;
+import org.jboss.forge.addon.gradle.projects.model.GradleModelSection;
 import org.jboss.forge.addon.gradle.projects.model.GradleProfile;
+import org.jboss.forge.addon.gradle.projects.model.LazyGradleModel;
+import org.jboss.forge.addon.gradle.projects.model.tooling.ForgeOutputModel;
 import org.jboss.forge.addon.projects.Project;
 import org.jboss.forge.addon.resource.FileResource;
 import org.jboss.forge.addon.resource.Resource;
@@ -39,6 +65,23 @@ public class GradleFacetImpl extends AbstractFacet<Project> implements GradleFac
             "    mavenCentral()\n" +
             "}\n";
    private static final String FORGE_OUTPUT_LIBRARY_LOCATION_CONF_KEY = "forgeOutputLibraryLocation";
+   private static final Logger LOG = Logger.getLogger(GradleFacetImpl.class.getName());
+   // Options setting project or system properties, init scripts, build files or directories
+   private static final List<String> MODEL_OPTIONS = Arrays.asList("-P", "--project-prop", "-D", "--system-prop",
+            "-I", "--init-script", "-b", "--build-file", "-c", "--settings-file", "-p", "--project-dir", "-g",
+            "--gradle-user-home");
+
+   // Refreshing threads mostly wait for Gradle, which is limited by the build scheduler anyway
+   private static final Executor REFRESH_EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory()
+   {
+      @Override
+      public Thread newThread(Runnable runnable)
+      {
+         Thread thread = new Thread(runnable, "Gradle model refresh");
+         thread.setDaemon(true);
+         return thread;
+      }
+   });
 
    @Inject
    private GradleManager manager;
@@ -46,10 +89,21 @@ public class GradleFacetImpl extends AbstractFacet<Project> implements GradleFac
    private ResourceFactory resourceFactory;
    @Inject
    private Configuration configuration;
+   @Inject
+   private GradleModelCache modelCache;
+   @Inject
+   private GradleBuildInputsWatcher watcher;
 
    // Cached model
    private GradleModel model;
    private Map<String, GradleModel> profileModels;
+   // Fingerprint of build inputs the model was evaluated from and watcher generation at that time
+   private String modelFingerprint;
+   private long modelGeneration;
+   // True if the model was read from the model cache and is being refreshed
+   private boolean modelStale;
+
+   private final List<GradleModelListener> listeners = new CopyOnWriteArrayList<>();
 
    @Override
    public boolean install()
@@ -80,13 +134,92 @@ public class GradleFacetImpl extends AbstractFacet<Project> implements GradleFac
    @Override
    public boolean executeTask(String task, String profile, String... arguments)
    {
-      return manager.runGradleBuild(getFaceted().getRoot().getFullyQualifiedName(), task, profile, arguments);
+      return executeTask(task, profile, null, null, arguments);
+   }
+
+   @Override
+   public boolean executeTask(String task, String profile, OutputStream out, OutputStream err, String... arguments)
+   {
+      return manager.runGradleBuild(getFaceted().getRoot().getFullyQualifiedName(), task, profile, out, err,
+               arguments);
+   }
+
+   @Override
+   public boolean executeTaskAndReloadModel(String task, String profile, String... arguments)
+   {
+      return executeTaskAndReloadModel(task, profile, null, null, arguments);
+   }
+
+   @Override
+   public boolean executeTaskAndReloadModel(String task, String profile, OutputStream out, OutputStream err,
+            String... arguments)
+   {
+      if (!isForgeOutputLibraryInstalled())
+      {
+         installForgeOutputLibrary();
+      }
+
+      long generation = startWatching();
+      String fingerprint = GradleBuildInputs.fingerprint(getProjectDirectory());
+      List<String> argList = Lists.newArrayList(arguments);
+      argList.add("-I");
+      argList.add(configuration.getString(FORGE_OUTPUT_LIBRARY_LOCATION_CONF_KEY));
+
+      ModelBuildOutcome<ForgeOutputModel> outcome = manager.runGradleBuildWithModel(
+               getFaceted().getRoot().getFullyQualifiedName(), task, profile, ForgeOutputModel.class, out, err,
+               argList.toArray(new String[argList.size()]));
+
+      if (outcome.getFailure() instanceof UnsupportedVersionException
+               || outcome.getFailure() instanceof BuildActionFailureException)
+      {
+         // Gradle version doesn't support phased build actions or the model couldn't be built,
+         // it will be loaded separately when needed
+         synchronized (this)
+         {
+            this.model = null;
+         }
+         return executeTask(task, profile, out, err, arguments);
+      }
+
+      // Model evaluated with a profile or other build configuration differs from the base model
+      GradleModel loadedModel = null;
+      if (outcome.getModel() != null && Strings.isNullOrEmpty(profile) && !affectsModel(arguments))
+      {
+         loadedModel = GradleModelLoadUtil.load(getBuildScriptResource().getContents(), getProfileScripts(),
+                  outcome.getModel());
+         modelCache.store(getProjectDirectory(), fingerprint, loadedModel);
+      }
+      synchronized (this)
+      {
+         if (loadedModel != null)
+         {
+            setLoadedModel(loadedModel, fingerprint, generation);
+         }
+         else
+         {
+            this.model = null;
+         }
+      }
+      return outcome.isSuccess();
+   }
+
+   @Override
+   public GradleModel getModel(GradleModelSection... sections)
+   {
+      GradleModel model = getModel();
+      if (model instanceof LazyGradleModel)
+      {
+         Set<GradleModelSection> requested = EnumSet.noneOf(GradleModelSection.class);
+         Collections.addAll(requested, sections);
+         return ((LazyGradleModel) model).getModel(requested);
+      }
+      return model;
    }
 
    @Override
-   public GradleModel getModel()
+   public synchronized GradleModel getModel()
    {
-      if (this.model != null)
+      if (this.model != null && isModelUpToDate())
       {
          return this.model;
       }
@@ -95,21 +228,48 @@ public class GradleFacetImpl extends AbstractFacet<Project> implements GradleFac
    }
 
    @Override
-   public void setModel(GradleModel newModel)
+   public synchronized boolean isModelStale()
+   {
+      return modelStale;
+   }
+
+   @Override
+   public void addModelListener(GradleModelListener listener)
+   {
+      listeners.add(listener);
+   }
+
+   @Override
+   public void removeModelListener(GradleModelListener listener)
    {
+      listeners.remove(listener);
+   }
+
+   @Override
+   public synchronized void setModel(GradleModel newModel)
+   {
+      long generation = startWatching();
+      // Changes of other scripts than build.gradle can't be applied to the model
+      boolean derivable = true;
+
+      // Old model is read before any script is changed, which would make it out of date. Merging and renaming need
+      // only its direct sections and project information, which is evaluated without any section.
+      GradleModel oldModel = getModel();
       String oldSource = getBuildScriptResource().getContents();
-      String newSource = GradleModelMergeUtil.merge(oldSource, model, newModel);
+      String newSource = GradleModelMergeUtil.merge(oldSource, oldModel, newModel);
       getBuildScriptResource().setContents(newSource);
 
       // If we need to change model name then it must be done in settings.gradle
-      if (!this.model.getName().equals(newModel.getName()))
+      if (!oldModel.getName().equals(newModel.getName()))
       {
-         String settingsScript = getSettingsScriptResource().exists() ? getSettingsScriptResource().getContents() : "";
+         derivable = false;
+         FileResource<?> settingsScriptResource = getSettingsScriptResource(oldModel.getRootProjectPath());
+         String settingsScript = settingsScriptResource.exists() ? settingsScriptResource.getContents() : "";
          // Because setting project name in model also changes the project path
          // we must take project path from old model
-         settingsScript = GradleSourceUtil.setProjectName(settingsScript, this.model.getProjectPath(),
+         settingsScript = GradleSourceUtil.setProjectName(settingsScript, oldModel.getProjectPath(),
                   newModel.getName());
-         getSettingsScriptResource().setContents(settingsScript);
+         settingsScriptResource.setContents(settingsScript);
       }
 
       // Update profiles
@@ -126,9 +286,10 @@ public class GradleFacetImpl extends AbstractFacet<Project> implements GradleFac
          // Merge new profile contents
          String oldProfileSource = profileScriptResource.getContents();
          String newProfileSource = GradleModelMergeUtil.merge(oldProfileSource,
-                  profileModels.get(profile.getName()), profile.getModel());
+                  getProfileModels().get(profile.getName()), profile.getModel());
          if (!newProfileSource.equals(oldProfileSource))
          {
+            derivable = false;
             profileScriptResource.setContents(newProfileSource);
          }
       }
@@ -155,11 +316,22 @@ public class GradleFacetImpl extends AbstractFacet<Project> implements GradleFac
          }
          if (!hasProfile)
          {
+            derivable = false;
             resource.delete();
          }
       }
 
-      this.model = null;
+      GradleModel evaluatedModel = getEvaluatedModel();
+      GradleModel updatedModel = derivable && evaluatedModel != null
+               ? GradleModelMergeUtil.apply(evaluatedModel, newModel) : null;
+      if (updatedModel != null)
+      {
+         setLoadedModel(updatedModel, GradleBuildInputs.fingerprint(getProjectDirectory()), generation);
+      }
+      else
+      {
+         this.model = null;
+      }
    }
 
    @Override
@@ -168,12 +340,10 @@ public class GradleFacetImpl extends AbstractFacet<Project> implements GradleFac
       return (FileResource<?>) getFaceted().getRoot().getChild("build.gradle");
    }
 
-   @SuppressWarnings("unchecked")
    @Override
    public FileResource<?> getSettingsScriptResource()
    {
-      return resourceFactory.create(FileResource.class, new File(
-               getModel().getRootProjectPath(), "settings.gradle"));
+      return getSettingsScriptResource(getModel().getRootProjectPath());
    }
 
    @Override
@@ -202,28 +372,246 @@ public class GradleFacetImpl extends AbstractFacet<Project> implements GradleFac
    }
 
    private void loadModel()
+   {
+      // Fingerprint must be computed before evaluation, so that changes made meanwhile invalidate the cached model
+      long generation = startWatching();
+      final String fingerprint = GradleBuildInputs.fingerprint(getProjectDirectory());
+      GradleModel cachedModel = modelCache.load(getProjectDirectory(), fingerprint);
+      if (cachedModel != null)
+      {
+         setLoadedModel(cachedModel, fingerprint, generation);
+         return;
+      }
+
+      final String script = getBuildScriptResource().getContents();
+      if (configuration.getBoolean(ALLOW_STALE_MODEL_CONF_KEY, false))
+      {
+         GradleModelCache.Entry staleEntry = modelCache.read(getProjectDirectory());
+         if (staleEntry != null)
+         {
+            // Stale model stands for the effective sections of current build inputs until they are evaluated again,
+            // direct sections are parsed from the current script
+            GradleModel staleModel = lazyModel(script, fingerprint, null, staleEntry.getModel());
+            setLoadedModel(staleModel, fingerprint, generation);
+            this.modelStale = true;
+            refreshModel(staleModel, loadedSections(staleEntry.getModel()), script, fingerprint);
+            return;
+         }
+      }
+
+      // Gradle is run only when some of the effective model sections is needed
+      setLoadedModel(lazyModel(script, fingerprint, null, null), fingerprint, generation);
+   }
+
+   /**
+    * Creates model which evaluates effective model sections of given script when they are needed, unless they are
+    * loaded in given partial model or stale model (both may be null).
+    */
+   private GradleModel lazyModel(final String script, final String fingerprint, GradleModel partialModel,
+            GradleModel staleModel)
+   {
+      return new LazyGradleModel(script, partialModel, staleModel, new Function<Set<GradleModelSection>, GradleModel>()
+      {
+         @Override
+         public GradleModel apply(Set<GradleModelSection> sections)
+         {
+            return evaluateModel(script, fingerprint, sections);
+         }
+      });
+   }
+
+   private static Set<GradleModelSection> loadedSections(GradleModel model)
+   {
+      Set<GradleModelSection> sections = EnumSet.noneOf(GradleModelSection.class);
+      for (GradleModelSection section : GradleModelSection.values())
+      {
+         if (model.isSectionLoaded(section))
+         {
+            sections.add(section);
+         }
+      }
+      return sections;
+   }
+
+   /**
+    * Evaluates given sections in the background, which are the ones loaded in the stale model, and replaces the stale
+    * model with the result, unless it was replaced meanwhile. If evaluation fails then the model is dropped, so that
+    * it is evaluated again by the next {@link #getModel()} call, which reports the failure.
+    */
+   private void refreshModel(final GradleModel staleModel, final Set<GradleModelSection> sections,
+            final String script, final String fingerprint)
+   {
+      CompletableFuture.supplyAsync(new Supplier<GradleModel>()
+      {
+         @Override
+         public GradleModel get()
+         {
+            GradleModel freshModel = evaluateModel(script, fingerprint, sections);
+            // Full model is stored in the model cache, other sections are evaluated when needed
+            return sections.size() == GradleModelSection.values().length ? freshModel
+                     : lazyModel(script, fingerprint, freshModel, null);
+         }
+      }, REFRESH_EXECUTOR).whenComplete(new BiConsumer<GradleModel, Throwable>()
+      {
+         @Override
+         public void accept(GradleModel freshModel, Throwable failure)
+         {
+            synchronized (GradleFacetImpl.this)
+            {
+               if (model != staleModel)
+               {
+                  return;
+               }
+               if (failure != null)
+               {
+                  LOG.log(Level.WARNING, "Could not refresh Gradle model of " + getProjectDirectory(), failure);
+                  model = null;
+                  modelStale = false;
+                  return;
+               }
+               setLoadedModel(freshModel, fingerprint, modelGeneration);
+            }
+            for (GradleModelListener listener : listeners)
+            {
+               listener.modelRefreshed(GradleFacetImpl.this, freshModel);
+            }
+         }
+      });
+   }
+
+   /**
+    * Evaluates effective model with given sections by Gradle. Models with all sections are stored in the model cache.
+    */
+   private GradleModel evaluateModel(String script, String fingerprint, Set<GradleModelSection> sections)
    {
       if (!isForgeOutputLibraryInstalled())
       {
          installForgeOutputLibrary();
       }
-      runGradleWithForgeOutputLibrary();
 
-      String forgeOutput = readForgeOutputAndClean();
-
-      String script = getBuildScriptResource().getContents();
       Map<String, String> profileScripts = getProfileScripts();
 
-      GradleModel loadedModel = GradleModelLoadUtil.load(script, profileScripts, forgeOutput);
+      GradleModel loadedModel;
+      try
+      {
+         ForgeOutputModel output = manager.getModel(getFaceted().getRoot().getFullyQualifiedName(),
+                  ForgeOutputModel.class, forgeOutputArguments(sections));
+         loadedModel = GradleModelLoadUtil.load(script, profileScripts, output);
+      }
+      catch (UnsupportedVersionException e)
+      {
+         // Gradle versions which can't build custom models (UnknownModelException is a subclass of
+         // UnsupportedVersionException) still can write the model to forge-output.xml
+         runGradleWithForgeOutputLibrary(sections);
+         loadedModel = loadForgeOutputAndClean(script, profileScripts);
+      }
+
+      if (sections.size() < GradleModelSection.values().length)
+      {
+         return GradleModelBuilder.create(loadedModel).setLoadedSections(sections);
+      }
+      modelCache.store(getProjectDirectory(), fingerprint, loadedModel);
+      return loadedModel;
+   }
+
+   /**
+    * Starts watching build inputs of the project, if it isn't watched yet.
+    * 
+    * @return Current watcher generation, which must be read before the build inputs.
+    */
+   private long startWatching()
+   {
+      watcher.watch(getProjectDirectory());
+      return watcher.getGeneration(getProjectDirectory());
+   }
 
-      // Set resources for profiles
-      profileModels = Maps.newHashMap();
-      for (GradleProfile profile : loadedModel.getProfiles())
+   /**
+    * Checks whether build inputs changed since the model was loaded. Inputs are compared only if the watcher noticed
+    * some change, so writes which don't change the contents (e.g. by {@link #setModel(GradleModel)}) don't invalidate
+    * the model. Polling watcher notices changes late, so inputs are compared on every access then. Projects which
+    * can't be watched keep the model until it is set.
+    */
+   private boolean isModelUpToDate()
+   {
+      long generation = watcher.getGeneration(getProjectDirectory());
+      if (generation == modelGeneration && !watcher.isPolling())
+      {
+         return true;
+      }
+      modelGeneration = generation;
+      if (GradleBuildInputs.fingerprint(getProjectDirectory()).equals(modelFingerprint))
       {
-         profileModels.put(profile.getName(), profile.getModel());
+         return true;
       }
+      this.model = null;
+      this.profileModels = null;
+      return false;
+   }
 
+   /**
+    * Checks whether given command line arguments change configuration of the project, unlike task names or logging
+    * options.
+    */
+   private static boolean affectsModel(String... arguments)
+   {
+      for (String argument : arguments)
+      {
+         for (String option : MODEL_OPTIONS)
+         {
+            if (argument.startsWith(option))
+            {
+               return true;
+            }
+         }
+      }
+      return false;
+   }
+
+   private File getProjectDirectory()
+   {
+      return new File(getFaceted().getRoot().getFullyQualifiedName());
+   }
+
+   private void setLoadedModel(GradleModel loadedModel, String fingerprint, long generation)
+   {
+      this.modelFingerprint = fingerprint;
+      this.modelGeneration = generation;
+      this.profileModels = null;
       this.model = loadedModel;
+      this.modelStale = false;
+   }
+
+   /**
+    * Returns current model if it's fully evaluated and up to date, otherwise null.
+    */
+   private GradleModel getEvaluatedModel()
+   {
+      if (model instanceof LazyGradleModel)
+      {
+         LazyGradleModel lazyModel = (LazyGradleModel) model;
+         return lazyModel.isEffectiveModelLoaded() ? lazyModel.getEffectiveModel() : null;
+      }
+      return model;
+   }
+
+   private Map<String, GradleModel> getProfileModels()
+   {
+      // Profiles are part of the effective model, so they are collected only when needed
+      if (profileModels == null)
+      {
+         profileModels = Maps.newHashMap();
+         for (GradleProfile profile : model.getProfiles())
+         {
+            profileModels.put(profile.getName(), profile.getModel());
+         }
+      }
+      return profileModels;
+   }
+
+   @SuppressWarnings("unchecked")
+   private FileResource<?> getSettingsScriptResource(String rootProjectPath)
+   {
+      return resourceFactory.create(FileResource.class, new File(rootProjectPath, "settings.gradle"));
    }
 
    private FileResource<?> getProfileScriptResource(String name)
@@ -250,13 +638,22 @@ public class GradleFacetImpl extends AbstractFacet<Project> implements GradleFac
       return profileScripts;
    }
 
-   private String readForgeOutputAndClean()
+   private GradleModel loadForgeOutputAndClean(String script, Map<String, String> profileScripts)
    {
-      Resource<?> forgeOutputFile = getFaceted().getRoot().getChild(GradleSourceUtil.FORGE_OUTPUT_XML);
-      String forgeOutput = forgeOutputFile.getContents();
-      forgeOutputFile.delete();
-
-      return forgeOutput;
+      Resource<?> forgeOutputFile = getFaceted().getRoot().getChild(GradleSourceUtil.FORGE_OUTPUT_BINARY);
+      try (InputStream forgeOutput = forgeOutputFile.getResourceInputStream())
+      {
+         // Output is decoded while it's read, so that it's never held in memory as a whole
+         return GradleModelLoadUtil.load(script, profileScripts, forgeOutput);
+      }
+      catch (IOException e)
+      {
+         throw new IllegalStateException("Could not read " + GradleSourceUtil.FORGE_OUTPUT_BINARY, e);
+      }
+      finally
+      {
+         forgeOutputFile.delete();
+      }
    }
 
    private boolean isForgeOutputLibraryInstalled()
@@ -284,9 +681,30 @@ public class GradleFacetImpl extends AbstractFacet<Project> implements GradleFac
       configuration.setProperty(FORGE_OUTPUT_LIBRARY_LOCATION_CONF_KEY, forgeLib.getFullyQualifiedName());
    }
 
-   private void runGradleWithForgeOutputLibrary()
+   /**
+    * Runs forgeOutput task, which evaluates only given sections of the effective model.
+    */
+   private void runGradleWithForgeOutputLibrary(Set<GradleModelSection> sections)
    {
+      List<String> arguments = Lists.newArrayList(forgeOutputArguments(sections));
+      arguments.add(GradleSourceUtil.FORGE_OUTPUT_BINARY_FORMAT);
       manager.runGradleBuild(getFaceted().getRoot().getFullyQualifiedName(),
-               GradleSourceUtil.FORGE_OUTPUT_TASK, "", "-I", configuration.getString(FORGE_OUTPUT_LIBRARY_LOCATION_CONF_KEY));
+               GradleSourceUtil.FORGE_OUTPUT_TASK, "", arguments.toArray(new String[arguments.size()]));
+   }
+
+   private String[] forgeOutputArguments(Set<GradleModelSection> sections)
+   {
+      String library = configuration.getString(FORGE_OUTPUT_LIBRARY_LOCATION_CONF_KEY);
+      if (sections.size() == GradleModelSection.values().length)
+      {
+         return new String[] { "-I", library };
+      }
+      List<String> names = Lists.newArrayList();
+      for (GradleModelSection section : sections)
+      {
+         names.add(section.getName());
+      }
+      return new String[] { "-I", library,
+               GradleSourceUtil.FORGE_OUTPUT_SECTIONS_PROPERTY + Joiner.on(',').join(names) };
    }
 }
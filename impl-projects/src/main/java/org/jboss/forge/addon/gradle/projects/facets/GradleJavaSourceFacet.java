@@ -15,6 +15,7 @@ import org.jboss.forge.addon.facets.constraints.FacetConstraint;
 import org.jboss.forge.addon.facets.constraints.FacetConstraints;
 import org.jboss.forge.addon.gradle.projects.GradleFacet;
 import org.jboss.forge.addon.gradle.projects.model.GradleModel;
+import org.jboss.forge.addon.gradle.projects.model.GradleModelSection;
 import org.jboss.forge.addon.gradle.projects.model.GradleSourceDirectory;
 import org.jboss.forge.addon.gradle.projects.model.GradleSourceSet;
 import org.jboss.forge.addon.parser.java.facets.JavaSourceFacet;
@@ -106,7 +107,7 @@ public class GradleJavaSourceFacet extends AbstractFacet<Project> implements Jav
    public List<DirectoryResource> getSourceDirectories()
    {
       List<DirectoryResource> resources = Lists.newArrayList();
-      GradleModel model = getFaceted().getFacet(GradleFacet.class).getModel();
+      GradleModel model = getFaceted().getFacet(GradleFacet.class).getModel(GradleModelSection.SOURCE_SETS);
 
       for (GradleSourceSet sourceSet : model.getEffectiveSourceSets())
       {
@@ -122,7 +123,7 @@ public class GradleJavaSourceFacet extends AbstractFacet<Project> implements Jav
    @Override
    public DirectoryResource getSourceDirectory()
    {
-      GradleModel model = getFaceted().getFacet(GradleFacet.class).getModel();
+      GradleModel model = getFaceted().getFacet(GradleFacet.class).getModel(GradleModelSection.SOURCE_SETS);
       GradleSourceDirectory dir = GradleResourceUtil.findSourceSetNamed(model.getEffectiveSourceSets(), "main")
                .getJavaDirectories().get(0);
       return directoryResourceFromRelativePath(dir.getPath());
@@ -131,7 +132,7 @@ public class GradleJavaSourceFacet extends AbstractFacet<Project> implements Jav
    @Override
    public DirectoryResource getTestSourceDirectory()
    {
-      GradleModel model = getFaceted().getFacet(GradleFacet.class).getModel();
+      GradleModel model = getFaceted().getFacet(GradleFacet.class).getModel(GradleModelSection.SOURCE_SETS);
       GradleSourceDirectory dir = GradleResourceUtil.findSourceSetNamed(model.getEffectiveSourceSets(), "test")
                .getJavaDirectories().get(0);
       return directoryResourceFromRelativePath(dir.getPath());
@@ -241,10 +242,10 @@ public class GradleJavaSourceFacet extends AbstractFacet<Project> implements Jav
    private List<DirectoryResource> getJavaSourcesFromSourceSet(String sourceSetName)
    {
       List<DirectoryResource> resources = Lists.newArrayList();
-      GradleFacet gradleFacet = getFaceted().getFacet(GradleFacet.class);
+      GradleModel model = getFaceted().getFacet(GradleFacet.class).getModel(GradleModelSection.SOURCE_SETS);
 
       for (GradleSourceDirectory sourceDir : GradleResourceUtil
-               .findSourceSetNamed(gradleFacet.getModel().getEffectiveSourceSets(), sourceSetName)
+               .findSourceSetNamed(model.getEffectiveSourceSets(), sourceSetName)
                .getJavaDirectories())
       {
          resources.add(directoryResourceFromRelativePath(sourceDir.getPath()));
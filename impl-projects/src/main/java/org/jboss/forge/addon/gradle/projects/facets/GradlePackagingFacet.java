@@ -73,7 +73,7 @@ public class GradlePackagingFacet extends AbstractFacet<Project> implements Pack
    @Override
    public Resource<?> executeBuild(String... args)
    {
-      getGradleFacet().executeTask("build", "", args);
+      getGradleFacet().executeTaskAndReloadModel("build", "", args);
       return getFinalArtifact();
    }
 
@@ -137,6 +137,13 @@ public class GradlePackagingFacet extends AbstractFacet<Project> implements Pack
 
       @Override
       public Resource<?> build() throws BuildException
+      {
+         // Output is discarded when no streams are given
+         return build(null, null);
+      }
+
+      @Override
+      public Resource<?> build(PrintStream out, PrintStream err) throws BuildException
       {
          if (!(arguments.contains("build") || arguments.contains("assemble")))
          {
@@ -151,17 +158,10 @@ public class GradlePackagingFacet extends AbstractFacet<Project> implements Pack
             arguments.add("--quiet");
          }
 
-         getGradleFacet().executeTask(runTests ? "test" : "", "",
+         getGradleFacet().executeTaskAndReloadModel(runTests ? "test" : "", "", out, err,
                   (String[]) arguments.toArray(new String[arguments.size()]));
          return getFinalArtifact();
       }
-
-      @Override
-      public Resource<?> build(PrintStream out, PrintStream err) throws BuildException
-      {
-         // TODO: Redirect to provided out and err
-         return build();
-      }
    }
 
    private static class GradleBuildResult implements BuildResult
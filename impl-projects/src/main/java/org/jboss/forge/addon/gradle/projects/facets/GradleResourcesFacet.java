@@ -14,6 +14,7 @@ import org.jboss.forge.addon.facets.constraints.FacetConstraint;
 import org.jboss.forge.addon.facets.constraints.FacetConstraints;
 import org.jboss.forge.addon.gradle.projects.GradleFacet;
 import org.jboss.forge.addon.gradle.projects.model.GradleModel;
+import org.jboss.forge.addon.gradle.projects.model.GradleModelSection;
 import org.jboss.forge.addon.gradle.projects.model.GradleSourceDirectory;
 import org.jboss.forge.addon.gradle.projects.model.GradleSourceSet;
 import org.jboss.forge.addon.projects.Project;
@@ -49,7 +50,7 @@ public class GradleResourcesFacet extends AbstractFacet<Project> implements Reso
    public List<DirectoryResource> getResourceDirectories()
    {
       List<DirectoryResource> resources = Lists.newArrayList();
-      GradleModel model = getFaceted().getFacet(GradleFacet.class).getModel();
+      GradleModel model = getFaceted().getFacet(GradleFacet.class).getModel(GradleModelSection.SOURCE_SETS);
 
       for (GradleSourceSet sourceSet : model.getEffectiveSourceSets())
       {
@@ -65,7 +66,7 @@ public class GradleResourcesFacet extends AbstractFacet<Project> implements Reso
    @Override
    public DirectoryResource getResourceDirectory()
    {
-      GradleModel model = getFaceted().getFacet(GradleFacet.class).getModel();
+      GradleModel model = getFaceted().getFacet(GradleFacet.class).getModel(GradleModelSection.SOURCE_SETS);
       GradleSourceDirectory dir = GradleResourceUtil.findSourceSetNamed(model.getEffectiveSourceSets(), "main")
                .getResourceDirectories().get(0);
       return directoryResourceFromRelativePath(dir.getPath());
@@ -74,7 +75,7 @@ public class GradleResourcesFacet extends AbstractFacet<Project> implements Reso
    @Override
    public DirectoryResource getTestResourceDirectory()
    {
-      GradleModel model = getFaceted().getFacet(GradleFacet.class).getModel();
+      GradleModel model = getFaceted().getFacet(GradleFacet.class).getModel(GradleModelSection.SOURCE_SETS);
       GradleSourceDirectory dir = GradleResourceUtil.findSourceSetNamed(model.getEffectiveSourceSets(), "test")
                .getResourceDirectories().get(0);
       return directoryResourceFromRelativePath(dir.getPath());
@@ -121,7 +122,7 @@ public class GradleResourcesFacet extends AbstractFacet<Project> implements Reso
    private List<DirectoryResource> getResourcesFromSourceSet(String sourceSetName)
    {
       List<DirectoryResource> resources = Lists.newArrayList();
-      GradleModel model = getFaceted().getFacet(GradleFacet.class).getModel();
+      GradleModel model = getFaceted().getFacet(GradleFacet.class).getModel(GradleModelSection.SOURCE_SETS);
 
       for (GradleSourceDirectory sourceDir : GradleResourceUtil
                .findSourceSetNamed(model.getEffectiveSourceSets(), sourceSetName)
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.parser;
+
+import java.util.List;
+import java.util.Map;
+
+import org.jboss.forge.addon.gradle.projects.model.GradleDependency;
+import org.jboss.forge.addon.gradle.projects.model.GradlePlugin;
+import org.jboss.forge.addon.gradle.projects.model.GradleRepository;
+
+/**
+ * Build script which is parsed once and then queried many times, unlike {@link GradleSourceUtil} functions which
+ * parse given source on every call.
+ * 
+ * @see GradleSourceUtil
+ * 
+ * @author Adam Wyłuda
+ */
+public class GradleScriptDocument
+{
+   private final String source;
+   private final SimpleGroovyParser parser;
+
+   private GradleScriptDocument(String source)
+   {
+      this.source = source;
+      this.parser = SimpleGroovyParser.fromSource(source);
+   }
+
+   public static GradleScriptDocument parse(String source)
+   {
+      return new GradleScriptDocument(source);
+   }
+
+   public String getSource()
+   {
+      return source;
+   }
+
+   public SimpleGroovyParser getParser()
+   {
+      return parser;
+   }
+
+   /**
+    * @see GradleSourceUtil#getDependencies(String)
+    */
+   public List<GradleDependency> getDependencies()
+   {
+      return GradleSourceUtil.getDependencies(parser);
+   }
+
+   /**
+    * @see GradleSourceUtil#getDirectDependencies(String)
+    */
+   public List<GradleDependency> getDirectDependencies()
+   {
+      return GradleSourceUtil.getDirectDependencies(parser);
+   }
+
+   /**
+    * @see GradleSourceUtil#getManagedDependencies(String)
+    */
+   public List<GradleDependency> getManagedDependencies()
+   {
+      return GradleSourceUtil.getManagedDependencies(parser);
+   }
+
+   /**
+    * @see GradleSourceUtil#getPlugins(String)
+    */
+   public List<GradlePlugin> getPlugins()
+   {
+      return GradleSourceUtil.getPlugins(parser);
+   }
+
+   /**
+    * @see GradleSourceUtil#getRepositories(String)
+    */
+   public List<GradleRepository> getRepositories()
+   {
+      return GradleSourceUtil.getRepositories(parser);
+   }
+
+   /**
+    * @see GradleSourceUtil#getDirectProperties(String)
+    */
+   public Map<String, String> getDirectProperties()
+   {
+      return GradleSourceUtil.getDirectProperties(parser);
+   }
+
+   /**
+    * @see GradleSourceUtil#checkForIncludeForgeLibrary(String)
+    */
+   public boolean includesForgeLibrary()
+   {
+      return GradleSourceUtil.checkForIncludeForgeLibrary(parser);
+   }
+}
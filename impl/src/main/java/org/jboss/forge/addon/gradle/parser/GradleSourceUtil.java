@@ -35,6 +35,9 @@ public class GradleSourceUtil
    public static final String FORGE_OUTPUT_LIBRARY_RESOURCE = "/forgeOutput.gradle";
    public static final String FORGE_OUTPUT_TASK = "forgeOutput";
    public static final String FORGE_OUTPUT_XML = "forge-output.xml";
+   public static final String FORGE_OUTPUT_BINARY = "forge-output.bin";
+   public static final String FORGE_OUTPUT_BINARY_FORMAT = "-PforgeOutputFormat=binary";
+   public static final String FORGE_OUTPUT_SECTIONS_PROPERTY = "-PforgeOutputSections=";
    public static final String PROFILE_SUFFIX = "-profile.gradle";
 
    public static final String INCLUDE_FORGE_LIBRARY = "apply from: 'forge.gradle'\n";
@@ -45,6 +48,14 @@ public class GradleSourceUtil
 
    public static final String PROJECT_PROPERTY_PREFIX = "ext.";
 
+   private static final InvocationPath DEPENDENCIES_PATH = InvocationPath.compile("dependencies");
+   private static final InvocationPath ALLPROJECTS_DEPENDENCIES_PATH =
+            InvocationPath.compile("allprojects/dependencies");
+   private static final InvocationPath DIRECT_DEPENDENCY_PATH = InvocationPath.of("dependencies", DIRECT_CONFIG);
+   private static final InvocationPath ALLPROJECTS_DIRECT_DEPENDENCY_PATH =
+            InvocationPath.of("allprojects", "dependencies", DIRECT_CONFIG);
+   private static final InvocationPath REPOSITORY_URL_PATH = InvocationPath.compile("repositories/maven/url");
+
    /**
     * Sets the project name in Gradle project settings script.
     * 
@@ -63,23 +74,28 @@ public class GradleSourceUtil
 
    public static String setArchiveName(String source, String archiveName)
    {
-      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(source);
+      SourceEditBatch batch = new SourceEditBatch(source);
+      setArchiveName(batch, archiveName);
+      return batch.apply();
+   }
+
+   /**
+    * Adds setting of the archive name to the batch.
+    */
+   public static void setArchiveName(SourceEditBatch batch, String archiveName)
+   {
       String archiveNameInvocationString = archiveNameString(archiveName);
 
-      for (InvocationWithString invocation : parser.getInvocationsWithString())
+      for (InvocationWithString invocation : batch.getParser().getInvocationsWithString())
       {
          if (invocation.getMethodName().equals(ARCHIVE_NAME_METHOD))
          {
-            source = SourceUtil.removeSourceFragment(source, invocation);
-            source = SourceUtil.insertString(source, archiveNameInvocationString,
-                     invocation.getLineNumber(), invocation.getColumnNumber());
-            return source;
+            batch.replace(invocation, archiveNameInvocationString);
+            return;
          }
       }
 
-      source = SourceUtil.addNewLineAtEnd(source) + archiveNameInvocationString + "\n";
-
-      return source;
+      batch.append(archiveNameInvocationString + "\n", true);
    }
 
    private static String archiveNameString(String archiveName)
@@ -88,6 +104,16 @@ public class GradleSourceUtil
    }
 
    public static String insertDependency(String source, GradleDependency dep)
+   {
+      SourceEditBatch batch = new SourceEditBatch(source);
+      insertDependency(batch, dep);
+      return batch.apply();
+   }
+
+   /**
+    * Adds insertion of given dependency to the batch.
+    */
+   public static void insertDependency(SourceEditBatch batch, GradleDependency dep)
    {
       String depString;
       List<GradleDependency> excludes = dep.getExcludedDependencies();
@@ -103,22 +129,32 @@ public class GradleSourceUtil
                   dep.getGroup(), dep.getExcludedDependencies());
       }
 
-      source = SourceUtil.insertIntoInvocationAtPath(source, depString, "dependencies");
-      return source;
+      SourceUtil.insertIntoInvocationAtPath(batch, depString, "dependencies");
    }
 
    public static String removeDependency(String source, GradleDependency dep)
             throws UnremovableElementException
    {
-      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(source);
-      for (InvocationWithClosure deps : allDependencyInvocations(parser))
+      SourceEditBatch batch = new SourceEditBatch(source);
+      removeDependency(batch, dep);
+      return batch.apply();
+   }
+
+   /**
+    * Adds removal of given dependency to the batch.
+    */
+   public static void removeDependency(SourceEditBatch batch, GradleDependency dep)
+            throws UnremovableElementException
+   {
+      for (InvocationWithClosure deps : allDependencyInvocations(batch.getParser()))
       {
          // Search in string invocations
          for (InvocationWithString invocation : deps.getInvocationsWithString())
          {
             if (isDependencyInvocation(invocation) && dep.equals(dependencyFromInvocation(invocation)))
             {
-               return SourceUtil.removeSourceFragmentWithLine(source, invocation);
+               batch.removeWithLine(invocation);
+               return;
             }
          }
 
@@ -127,7 +163,8 @@ public class GradleSourceUtil
          {
             if (isDependencyInvocation(invocation) && dep.equals(dependencyFromInvocation(invocation)))
             {
-               return SourceUtil.removeSourceFragmentWithLine(source, invocation);
+               batch.removeWithLine(invocation);
+               return;
             }
          }
 
@@ -136,7 +173,8 @@ public class GradleSourceUtil
          {
             if (isDependencyInvocation(invocation) && dep.equals(dependencyFromInvocation(invocation)))
             {
-               return SourceUtil.removeSourceFragmentWithLine(source, invocation);
+               batch.removeWithLine(invocation);
+               return;
             }
          }
       }
@@ -148,10 +186,14 @@ public class GradleSourceUtil
     * Returns a list of dependencies which are declared in given source.
     */
    public static List<GradleDependency> getDependencies(String source)
+   {
+      return GradleScriptDocument.parse(source).getDependencies();
+   }
+
+   static List<GradleDependency> getDependencies(SimpleGroovyParser parser)
    {
       List<GradleDependency> result = Lists.newArrayList();
 
-      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(source);
       for (InvocationWithClosure deps : allDependencyInvocations(parser))
       {
          // Search in string invocations
@@ -186,29 +228,45 @@ public class GradleSourceUtil
    }
 
    public static String insertDirectDependency(String source, String group, String name)
+   {
+      SourceEditBatch batch = new SourceEditBatch(source);
+      insertDirectDependency(batch, group, name);
+      return batch.apply();
+   }
+
+   /**
+    * Adds insertion of given direct dependency to the batch.
+    */
+   public static void insertDirectDependency(SourceEditBatch batch, String group, String name)
    {
       String depString = String.format("%s group: \"%s\", name: \"%s\"", DIRECT_CONFIG, group, name);
-      source = SourceUtil.insertIntoInvocationAtPath(source, depString, "dependencies");
-      return source;
+      SourceUtil.insertIntoInvocationAtPath(batch, depString, "dependencies");
    }
 
    public static String removeDirectDependency(String source, String group, String name)
             throws UnremovableElementException
+   {
+      SourceEditBatch batch = new SourceEditBatch(source);
+      removeDirectDependency(batch, group, name);
+      return batch.apply();
+   }
+
+   /**
+    * Adds removal of given direct dependency to the batch.
+    */
+   public static void removeDirectDependency(SourceEditBatch batch, String group, String name)
+            throws UnremovableElementException
    {
       Map<String, String> depMap = Maps.newHashMap();
       depMap.put("group", group);
       depMap.put("name", name);
 
-      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(source);
-      for (InvocationWithClosure deps : parser.allInvocationsAtPath("dependencies"))
+      for (InvocationWithMap invocation : batch.getParser().invocationsWithMapAt(DIRECT_DEPENDENCY_PATH))
       {
-         for (InvocationWithMap invocation : deps.getInvocationsWithMap())
+         if (invocation.getParameters().equals(depMap))
          {
-            if (invocation.getMethodName().equals(DIRECT_CONFIG) &&
-                     invocation.getParameters().equals(depMap))
-            {
-               return SourceUtil.removeSourceFragmentWithLine(source, invocation);
-            }
+            batch.removeWithLine(invocation);
+            return;
          }
       }
 
@@ -220,30 +278,41 @@ public class GradleSourceUtil
     * Returns a list of direct (defined using <i>direct</i> closure) dependencies declared in given source.
     */
    public static List<GradleDependency> getDirectDependencies(String source)
+   {
+      return GradleScriptDocument.parse(source).getDirectDependencies();
+   }
+
+   static List<GradleDependency> getDirectDependencies(SimpleGroovyParser parser)
    {
       List<GradleDependency> deps = Lists.newArrayList();
 
-      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(source);
-      for (InvocationWithClosure invocation : allDependencyInvocations(parser))
+      List<InvocationWithMap> invocations = Lists.newArrayList();
+      invocations.addAll(parser.invocationsWithMapAt(DIRECT_DEPENDENCY_PATH));
+      invocations.addAll(parser.invocationsWithMapAt(ALLPROJECTS_DIRECT_DEPENDENCY_PATH));
+      for (InvocationWithMap mapInvocation : invocations)
       {
-         for (InvocationWithMap mapInvocation : invocation.getInvocationsWithMap())
-         {
-            if (mapInvocation.getMethodName().equals(DIRECT_CONFIG))
-            {
-               Map<String, String> params = mapInvocation.getParameters();
-               GradleDependencyBuilder dep = GradleDependencyBuilder.create()
-                        .setGroup(params.get("group"))
-                        .setName(params.get("name"))
-                        .setConfiguration(GradleDependencyConfiguration.DIRECT);
-               deps.add(dep);
-            }
-         }
+         Map<String, String> params = mapInvocation.getParameters();
+         GradleDependencyBuilder dep = GradleDependencyBuilder.create()
+                  .setGroup(params.get("group"))
+                  .setName(params.get("name"))
+                  .setConfiguration(GradleDependencyConfiguration.DIRECT);
+         deps.add(dep);
       }
 
       return deps;
    }
 
    public static String insertManagedDependency(String source, GradleDependency dep)
+   {
+      SourceEditBatch batch = new SourceEditBatch(source);
+      insertManagedDependency(batch, dep);
+      return batch.apply();
+   }
+
+   /**
+    * Adds insertion of given managed dependency to the batch.
+    */
+   public static void insertManagedDependency(SourceEditBatch batch, GradleDependency dep)
    {
       String depString;
       List<GradleDependency> excludes = dep.getExcludedDependencies();
@@ -261,18 +330,27 @@ public class GradleSourceUtil
                   dep.getGroup(), dep.getExcludedDependencies());
       }
 
-      source = SourceUtil.insertIntoInvocationAtPath(source, depString, "allprojects", "dependencies");
-      return source;
+      SourceUtil.insertIntoInvocationAtPath(batch, depString, "allprojects", "dependencies");
    }
 
    public static String removeManagedDependency(String source, GradleDependency dep)
             throws UnremovableElementException
+   {
+      SourceEditBatch batch = new SourceEditBatch(source);
+      removeManagedDependency(batch, dep);
+      return batch.apply();
+   }
+
+   /**
+    * Adds removal of given managed dependency to the batch.
+    */
+   public static void removeManagedDependency(SourceEditBatch batch, GradleDependency dep)
+            throws UnremovableElementException
    {
       GradleDependencyBuilder builder = GradleDependencyBuilder.create(dep);
       builder.setConfigurationName(MANAGED_CONFIG);
 
-      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(source);
-      for (InvocationWithClosure deps : allDependencyInvocations(parser))
+      for (InvocationWithClosure deps : allDependencyInvocations(batch.getParser()))
       {
          // Search in map invocations
          for (InvocationWithMap invocation : deps.getInvocationsWithMap())
@@ -280,7 +358,8 @@ public class GradleSourceUtil
             if (invocation.getMethodName().equals(MANAGED_CONFIG) &&
                      dep.equals(dependencyFromInvocation(invocation)))
             {
-               return SourceUtil.removeSourceFragmentWithLine(source, invocation);
+               batch.removeWithLine(invocation);
+               return;
             }
          }
 
@@ -290,7 +369,8 @@ public class GradleSourceUtil
             if (invocation.getMethodName().equals(MANAGED_CONFIG) &&
                      dep.equals(dependencyFromInvocation(invocation)))
             {
-               return SourceUtil.removeSourceFragmentWithLine(source, invocation);
+               batch.removeWithLine(invocation);
+               return;
             }
          }
       }
@@ -302,10 +382,14 @@ public class GradleSourceUtil
     * Returns a list of managed dependencies (declared using <i>managed</i> closure) in given source.
     */
    public static List<GradleDependency> getManagedDependencies(String source)
+   {
+      return GradleScriptDocument.parse(source).getManagedDependencies();
+   }
+
+   static List<GradleDependency> getManagedDependencies(SimpleGroovyParser parser)
    {
       List<GradleDependency> list = Lists.newArrayList();
 
-      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(source);
       for (InvocationWithClosure deps : allDependencyInvocations(parser))
       {
          // Search in map invocations
@@ -331,10 +415,14 @@ public class GradleSourceUtil
    }
 
    public static List<GradlePlugin> getPlugins(String source)
+   {
+      return GradleScriptDocument.parse(source).getPlugins();
+   }
+
+   static List<GradlePlugin> getPlugins(SimpleGroovyParser parser)
    {
       List<GradlePlugin> plugins = Lists.newArrayList();
 
-      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(source);
       for (InvocationWithMap invocation : parser.getInvocationsWithMap())
       {
          if (invocation.getMethodName().equals("apply"))
@@ -355,35 +443,59 @@ public class GradleSourceUtil
     * it adds it at the end of source.
     */
    public static String insertPlugin(String source, String clazz)
+   {
+      SourceEditBatch batch = new SourceEditBatch(source);
+      insertPlugin(batch, clazz);
+      return batch.apply();
+   }
+
+   /**
+    * Adds insertion of given plugin to the batch.
+    * 
+    * @see #insertPlugin(String, String)
+    */
+   public static void insertPlugin(SourceEditBatch batch, String clazz)
    {
       String pluginString = String.format("\napply plugin: '%s'", clazz);
 
-      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(source);
+      SimpleGroovyParser parser = batch.getParser();
       if (parser.getInvocationsWithMap().size() > 0)
       {
          InvocationWithMap lastInvocation = parser.getInvocationsWithMap().get(
                   parser.getInvocationsWithMap().size() - 1);
-         source = SourceUtil.insertString(source, pluginString, lastInvocation.getLastLineNumber(),
-                  lastInvocation.getLastColumnNumber());
+         batch.insert(batch.getLineOffsets().positionOf(lastInvocation.getLastLineNumber(),
+                  lastInvocation.getLastColumnNumber()), pluginString);
       }
       else
       {
-         source += pluginString;
+         // Next plugin would be inserted after this one, not at the end of source
+         batch.createPath("apply");
+         batch.append(pluginString, false);
       }
-      return source;
    }
 
    public static String removePlugin(String source, String clazz)
             throws UnremovableElementException
    {
-      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(source);
-      for (InvocationWithMap invocation : parser.getInvocationsWithMap())
+      SourceEditBatch batch = new SourceEditBatch(source);
+      removePlugin(batch, clazz);
+      return batch.apply();
+   }
+
+   /**
+    * Adds removal of given plugin to the batch.
+    */
+   public static void removePlugin(SourceEditBatch batch, String clazz)
+            throws UnremovableElementException
+   {
+      for (InvocationWithMap invocation : batch.getParser().getInvocationsWithMap())
       {
          if ((invocation.getMethodName().equals("apply") || invocation.getMethodName().equals("project.apply")) &&
                   invocation.getParameters().size() == 1 &&
                   clazz.equals(invocation.getParameters().get("plugin")))
          {
-            return SourceUtil.removeSourceFragmentWithLine(source, invocation);
+            batch.removeWithLine(invocation);
+            return;
          }
       }
 
@@ -391,45 +503,59 @@ public class GradleSourceUtil
    }
 
    public static List<GradleRepository> getRepositories(String source)
+   {
+      return GradleScriptDocument.parse(source).getRepositories();
+   }
+
+   static List<GradleRepository> getRepositories(SimpleGroovyParser parser)
    {
       List<GradleRepository> repos = Lists.newArrayList();
 
-      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(source);
-      for (InvocationWithClosure closure : parser.allInvocationsAtPath("repositories", "maven"))
+      for (InvocationWithString invocation : parser.invocationsWithStringAt(REPOSITORY_URL_PATH))
       {
-         for (InvocationWithString invocation : closure.getInvocationsWithString())
-         {
-            if (invocation.getMethodName().equals("url"))
-            {
-               repos.add(GradleRepositoryBuilder.create().setUrl(invocation.getString()));
-            }
-         }
+         repos.add(GradleRepositoryBuilder.create().setUrl(invocation.getString()));
       }
 
       return repos;
    }
 
    public static String insertRepository(String source, String url)
+   {
+      SourceEditBatch batch = new SourceEditBatch(source);
+      insertRepository(batch, url);
+      return batch.apply();
+   }
+
+   /**
+    * Adds insertion of given repository to the batch.
+    */
+   public static void insertRepository(SourceEditBatch batch, String url)
    {
       // TODO Repository name?
       String repoString = String.format("url '%s'", url);
-      source = SourceUtil.insertIntoInvocationAtPath(source, repoString, "repositories", "maven");
-      return source;
+      SourceUtil.insertIntoInvocationAtPath(batch, repoString, "repositories", "maven");
    }
 
    public static String removeRepository(String source, String url)
             throws UnremovableElementException
    {
-      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(source);
-      for (InvocationWithClosure repos : parser.allInvocationsAtPath("repositories", "maven"))
+      SourceEditBatch batch = new SourceEditBatch(source);
+      removeRepository(batch, url);
+      return batch.apply();
+   }
+
+   /**
+    * Adds removal of given repository to the batch.
+    */
+   public static void removeRepository(SourceEditBatch batch, String url)
+            throws UnremovableElementException
+   {
+      for (InvocationWithString invocation : batch.getParser().invocationsWithStringAt(REPOSITORY_URL_PATH))
       {
-         for (InvocationWithString invocation : repos.getInvocationsWithString())
+         if (invocation.getString().equals(url))
          {
-            if (invocation.getMethodName().equals("url") &&
-                     invocation.getString().equals(url))
-            {
-               return SourceUtil.removeSourceFragmentWithLine(source, invocation);
-            }
+            batch.removeWithLine(invocation);
+            return;
          }
       }
 
@@ -446,25 +572,32 @@ public class GradleSourceUtil
     */
    public static String setProperty(String source, String key, String value)
    {
-      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(source);
+      SourceEditBatch batch = new SourceEditBatch(source);
+      setProperty(batch, key, value);
+      return batch.apply();
+   }
+
+   /**
+    * Adds setting of given property to the batch.
+    * 
+    * @see #setProperty(String, String, String)
+    */
+   public static void setProperty(SourceEditBatch batch, String key, String value)
+   {
       String assignmentString = variableAssignmentString(key, value);
 
-      for (VariableAssignment assignment : parser.getVariableAssignments())
+      for (VariableAssignment assignment : batch.getParser().getVariableAssignments())
       {
          // If it's already defined somewhere
          if (assignment.getVariable().equals(key))
          {
-            source = SourceUtil.removeSourceFragment(source, assignment);
-            source = SourceUtil.insertString(source, assignmentString,
-                     assignment.getLineNumber(), assignment.getColumnNumber());
-            return source;
+            batch.replace(assignment, assignmentString);
+            return;
          }
       }
 
       // If it was not defined anywhere
-      source = SourceUtil.addNewLineAtEnd(source) + assignmentString + "\n";
-
-      return source;
+      batch.append(assignmentString + "\n", true);
    }
 
    private static String variableAssignmentString(String variable, String value)
@@ -474,12 +607,22 @@ public class GradleSourceUtil
 
    public static String removeProperty(String source, String key) throws UnremovableElementException
    {
-      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(source);
-      for (VariableAssignment assignment : parser.getVariableAssignments())
+      SourceEditBatch batch = new SourceEditBatch(source);
+      removeProperty(batch, key);
+      return batch.apply();
+   }
+
+   /**
+    * Adds removal of given property to the batch.
+    */
+   public static void removeProperty(SourceEditBatch batch, String key) throws UnremovableElementException
+   {
+      for (VariableAssignment assignment : batch.getParser().getVariableAssignments())
       {
          if (assignment.getVariable().equals(key))
          {
-            return SourceUtil.removeSourceFragmentWithLine(source, assignment);
+            batch.removeWithLine(assignment);
+            return;
          }
       }
 
@@ -489,11 +632,17 @@ public class GradleSourceUtil
    // There is no way to remove a task because tasks are composed of many actions
    // so we can only insert new tasks
    public static String insertTask(String source, String name, List<String> dependsOn, String type, String code)
+   {
+      SourceEditBatch batch = new SourceEditBatch(source);
+      insertTask(batch, name, dependsOn, type, code);
+      return batch.apply();
+   }
+
+   public static void insertTask(SourceEditBatch batch, String name, List<String> dependsOn, String type, String code)
    {
       String taskDeclarationString = taskDeclarationString(name, dependsOn, type);
       String taskString = String.format("\ntask %s << {\n%s\n}\n", taskDeclarationString, code);
-      source += taskString;
-      return source;
+      batch.append(taskString, false);
    }
 
    private static String taskDeclarationString(String name, List<String> dependsOn, String type)
@@ -544,7 +693,11 @@ public class GradleSourceUtil
     */
    public static boolean checkForIncludeForgeLibrary(String source)
    {
-      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(source);
+      return GradleScriptDocument.parse(source).includesForgeLibrary();
+   }
+
+   static boolean checkForIncludeForgeLibrary(SimpleGroovyParser parser)
+   {
       for (InvocationWithMap invocation : parser.getInvocationsWithMap())
       {
          if (invocation.getMethodName().equals("apply"))
@@ -577,7 +730,11 @@ public class GradleSourceUtil
     */
    public static Map<String, String> getDirectProperties(String source)
    {
-      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(source);
+      return GradleScriptDocument.parse(source).getDirectProperties();
+   }
+
+   static Map<String, String> getDirectProperties(SimpleGroovyParser parser)
+   {
       Map<String, String> properties = Maps.newHashMap();
       for (VariableAssignment assignment : parser.getVariableAssignments())
       {
@@ -593,8 +750,8 @@ public class GradleSourceUtil
    private static List<InvocationWithClosure> allDependencyInvocations(SimpleGroovyParser parser)
    {
       List<InvocationWithClosure> depsInvocations = Lists.newArrayList();
-      depsInvocations.addAll(parser.allInvocationsAtPath("dependencies"));
-      depsInvocations.addAll(parser.allInvocationsAtPath("allprojects", "dependencies"));
+      depsInvocations.addAll(parser.invocationsWithClosureAt(DEPENDENCIES_PATH));
+      depsInvocations.addAll(parser.invocationsWithClosureAt(ALLPROJECTS_DEPENDENCIES_PATH));
       return depsInvocations;
    }
 
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.parser;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.gradle.internal.impldep.com.google.common.base.Preconditions;
+import org.gradle.internal.impldep.com.google.common.collect.Lists;
+
+/**
+ * Compiled path of nested invocations, e.g. {@code dependencies/*}{@code /compile}, which is matched against the
+ * invocation tree in a single traversal using the name indexes of invocations with closure.
+ * <p/>
+ * Every segment but the last one matches invocations with closure of given method, {@value #ANY} matches any
+ * method. The last segment matches elements of the requested kind, e.g. invocations with string or variable
+ * assignments. Matched elements are returned in order of appearance.
+ * 
+ * @see SimpleGroovyParser#invocationsWithClosureAt(InvocationPath)
+ * 
+ * @author Adam Wyłuda
+ */
+public class InvocationPath
+{
+   public static final String ANY = "*";
+   public static final String SEPARATOR = "/";
+
+   private final String[] segments;
+
+   private InvocationPath(String[] segments)
+   {
+      Preconditions.checkArgument(segments.length > 0, "Path must have at least one element");
+      for (String segment : segments)
+      {
+         Preconditions.checkArgument(!segment.isEmpty(), "Path elements must not be empty");
+      }
+      this.segments = segments;
+   }
+
+   /**
+    * Compiles path with segments separated by {@value #SEPARATOR}.
+    */
+   public static InvocationPath compile(String path)
+   {
+      return new InvocationPath(path.split(SEPARATOR, -1));
+   }
+
+   /**
+    * Creates path of given segments.
+    */
+   public static InvocationPath of(String... segments)
+   {
+      return new InvocationPath(segments.clone());
+   }
+
+   public List<String> getSegments()
+   {
+      return Collections.unmodifiableList(Arrays.asList(segments));
+   }
+
+   public List<InvocationWithClosure> invocationsWithClosureIn(InvocationWithClosure root)
+   {
+      List<InvocationWithClosure> list = Lists.newArrayList();
+      for (InvocationWithClosure parent : parentsIn(root))
+      {
+         list.addAll(isAny() ? parent.getInvocationsWithClosure() : parent.invocationsWithClosureByName(last()));
+      }
+      return list;
+   }
+
+   public List<InvocationWithString> invocationsWithStringIn(InvocationWithClosure root)
+   {
+      List<InvocationWithString> list = Lists.newArrayList();
+      for (InvocationWithClosure parent : parentsIn(root))
+      {
+         list.addAll(isAny() ? parent.getInvocationsWithString() : parent.invocationsWithStringByName(last()));
+      }
+      return list;
+   }
+
+   public List<InvocationWithMap> invocationsWithMapIn(InvocationWithClosure root)
+   {
+      List<InvocationWithMap> list = Lists.newArrayList();
+      for (InvocationWithClosure parent : parentsIn(root))
+      {
+         list.addAll(isAny() ? parent.getInvocationsWithMap() : parent.invocationsWithMapByName(last()));
+      }
+      return list;
+   }
+
+   public List<VariableAssignment> variableAssignmentsIn(InvocationWithClosure root)
+   {
+      List<VariableAssignment> list = Lists.newArrayList();
+      for (InvocationWithClosure parent : parentsIn(root))
+      {
+         list.addAll(isAny() ? parent.getVariableAssignments() : parent.variableAssignmentsByName(last()));
+      }
+      return list;
+   }
+
+   /**
+    * Returns invocations matching all segments but the last one. Invocations are matched level by level, keeping
+    * order of their parents, so the result is in order of appearance.
+    */
+   private List<InvocationWithClosure> parentsIn(InvocationWithClosure root)
+   {
+      List<InvocationWithClosure> invocations = Collections.singletonList(root);
+      for (int i = 0; i < segments.length - 1 && !invocations.isEmpty(); i++)
+      {
+         List<InvocationWithClosure> subinvocations = Lists.newArrayList();
+         for (InvocationWithClosure invocation : invocations)
+         {
+            subinvocations.addAll(segments[i].equals(ANY) ? invocation.getInvocationsWithClosure()
+                     : invocation.invocationsWithClosureByName(segments[i]));
+         }
+         invocations = subinvocations;
+      }
+      return invocations;
+   }
+
+   private String last()
+   {
+      return segments[segments.length - 1];
+   }
+
+   private boolean isAny()
+   {
+      return last().equals(ANY);
+   }
+
+   @Override
+   public String toString()
+   {
+      StringBuilder builder = new StringBuilder();
+      for (String segment : segments)
+      {
+         if (builder.length() > 0)
+         {
+            builder.append(SEPARATOR);
+         }
+         builder.append(segment);
+      }
+      return builder.toString();
+   }
+}
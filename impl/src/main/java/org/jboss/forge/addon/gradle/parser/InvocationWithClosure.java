@@ -7,11 +7,13 @@
 package org.jboss.forge.addon.gradle.parser;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
 import org.gradle.internal.impldep.com.google.common.base.Optional;
 import org.gradle.internal.impldep.com.google.common.collect.ImmutableList;
+import org.gradle.internal.impldep.com.google.common.collect.Lists;
 import org.gradle.internal.impldep.com.google.common.collect.Maps;
 
 
@@ -31,10 +33,11 @@ public class InvocationWithClosure extends SourceCodeElement
    private final List<InvocationWithMap> mapInvocations;
    private final List<VariableAssignment> variableAssignments;
 
-   private final Map<String, InvocationWithClosure> internalInvocationMap = Maps.newHashMap();
-   private final Map<String, InvocationWithString> stringInvocationMap = Maps.newHashMap();
-   private final Map<String, InvocationWithMap> mapInvocationMap = Maps.newHashMap();
-   private final Map<String, VariableAssignment> variableAssignmentMap = Maps.newHashMap();
+   // Children by name, in order of appearance
+   private final Map<String, List<InvocationWithClosure>> internalInvocationMap = Maps.newHashMap();
+   private final Map<String, List<InvocationWithString>> stringInvocationMap = Maps.newHashMap();
+   private final Map<String, List<InvocationWithMap>> mapInvocationMap = Maps.newHashMap();
+   private final Map<String, List<VariableAssignment>> variableAssignmentMap = Maps.newHashMap();
 
    public InvocationWithClosure(String code, String methodName,  String stringParameter, Map<String, String> mapParameter,
             int lineNumber, int columnNumber, int lastLineNumber, int lastColumnNumber)
@@ -56,7 +59,20 @@ public class InvocationWithClosure extends SourceCodeElement
             List<VariableAssignment> variableAssignments,
             int lineNumber, int columnNumber, int lastLineNumber, int lastColumnNumber)
    {
-      super(code, lineNumber, columnNumber, lastLineNumber, lastColumnNumber);
+      this(code, 0, code.length(), methodName, stringParameter, mapParameter,
+               internalInvocations, stringInvocations, mapInvocations, variableAssignments,
+               lineNumber, columnNumber, lastLineNumber, lastColumnNumber);
+   }
+
+   InvocationWithClosure(String source, int start, int end,
+            String methodName, String stringParameter, Map<String, String> mapParameter,
+            List<InvocationWithClosure> internalInvocations,
+            List<InvocationWithString> stringInvocations,
+            List<InvocationWithMap> mapInvocations,
+            List<VariableAssignment> variableAssignments,
+            int lineNumber, int columnNumber, int lastLineNumber, int lastColumnNumber)
+   {
+      super(source, start, end, lineNumber, columnNumber, lastLineNumber, lastColumnNumber);
       
       this.methodName = methodName;
       this.stringParameter = stringParameter;
@@ -65,25 +81,48 @@ public class InvocationWithClosure extends SourceCodeElement
       this.internalInvocations = ImmutableList.<InvocationWithClosure> copyOf(internalInvocations);
       this.stringInvocations = ImmutableList.<InvocationWithString> copyOf(stringInvocations);
       this.mapInvocations = ImmutableList.<InvocationWithMap> copyOf(mapInvocations);
-      this.variableAssignments = variableAssignments;
+      this.variableAssignments = ImmutableList.<VariableAssignment> copyOf(variableAssignments);
 
       // Filling indexes
       for (InvocationWithClosure invocation : internalInvocations)
       {
-         internalInvocationMap.put(invocation.getMethodName(), invocation);
+         index(internalInvocationMap, invocation.getMethodName(), invocation);
       }
       for (InvocationWithString invocation : stringInvocations)
       {
-         stringInvocationMap.put(invocation.getMethodName(), invocation);
+         index(stringInvocationMap, invocation.getMethodName(), invocation);
       }
       for (InvocationWithMap invocation : mapInvocations)
       {
-         mapInvocationMap.put(invocation.getMethodName(), invocation);
+         index(mapInvocationMap, invocation.getMethodName(), invocation);
       }
       for (VariableAssignment assignment : variableAssignments)
       {
-         variableAssignmentMap.put(assignment.getVariable(), assignment);
+         index(variableAssignmentMap, assignment.getVariable(), assignment);
+      }
+   }
+
+   private static <T> void index(Map<String, List<T>> map, String name, T element)
+   {
+      List<T> list = map.get(name);
+      if (list == null)
+      {
+         list = Lists.newArrayListWithCapacity(1);
+         map.put(name, list);
       }
+      list.add(element);
+   }
+
+   private static <T> List<T> indexed(Map<String, List<T>> map, String name)
+   {
+      List<T> list = map.get(name);
+      return list != null ? Collections.unmodifiableList(list) : Collections.<T> emptyList();
+   }
+
+   private static <T> Optional<T> lastIndexed(Map<String, List<T>> map, String name)
+   {
+      List<T> list = map.get(name);
+      return list != null ? Optional.of(list.get(list.size() - 1)) : Optional.<T> absent();
    }
 
    public String getMethodName()
@@ -121,23 +160,50 @@ public class InvocationWithClosure extends SourceCodeElement
       return variableAssignments;
    }
 
+   /**
+    * Returns the last invocation with closure of given method, see {@link #invocationsWithClosureByName(String)}
+    * for all of them.
+    */
    public Optional<InvocationWithClosure> invocationWithClosureByName(String name)
    {
-      return Optional.fromNullable(internalInvocationMap.get(name));
+      return lastIndexed(internalInvocationMap, name);
    }
 
    public Optional<InvocationWithString> invocationWithStringByName(String name)
    {
-      return Optional.fromNullable(stringInvocationMap.get(name));
+      return lastIndexed(stringInvocationMap, name);
    }
 
    public Optional<InvocationWithMap> invocationWithMapByName(String name)
    {
-      return Optional.fromNullable(mapInvocationMap.get(name));
+      return lastIndexed(mapInvocationMap, name);
    }
 
    public Optional<VariableAssignment> variableAssignmentByName(String name)
    {
-      return Optional.fromNullable(variableAssignmentMap.get(name));
+      return lastIndexed(variableAssignmentMap, name);
+   }
+
+   /**
+    * Returns all invocations with closure of given method, in order of appearance.
+    */
+   public List<InvocationWithClosure> invocationsWithClosureByName(String name)
+   {
+      return indexed(internalInvocationMap, name);
+   }
+
+   public List<InvocationWithString> invocationsWithStringByName(String name)
+   {
+      return indexed(stringInvocationMap, name);
+   }
+
+   public List<InvocationWithMap> invocationsWithMapByName(String name)
+   {
+      return indexed(mapInvocationMap, name);
+   }
+
+   public List<VariableAssignment> variableAssignmentsByName(String name)
+   {
+      return indexed(variableAssignmentMap, name);
    }
 }
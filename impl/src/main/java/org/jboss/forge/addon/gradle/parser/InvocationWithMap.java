@@ -29,6 +29,14 @@ public class InvocationWithMap extends SourceCodeElement
       this.parameters = ImmutableMap.<String, String> copyOf(parameters);
    }
 
+   InvocationWithMap(String source, int start, int end, String methodName, Map<String, String> parameters,
+            int lineNumber, int columnNumber, int lastLineNumber, int lastColumnNumber)
+   {
+      super(source, start, end, lineNumber, columnNumber, lastLineNumber, lastColumnNumber);
+      this.methodName = methodName;
+      this.parameters = ImmutableMap.<String, String> copyOf(parameters);
+   }
+
    public String getMethodName()
    {
       return methodName;
@@ -24,6 +24,14 @@ public class InvocationWithString extends SourceCodeElement
       this.string = string;
    }
 
+   InvocationWithString(String source, int start, int end, String methodName, String string,
+            int lineNumber, int columnNumber, int lastLineNumber, int lastColumnNumber)
+   {
+      super(source, start, end, lineNumber, columnNumber, lastLineNumber, lastColumnNumber);
+      this.methodName = methodName;
+      this.string = string;
+   }
+
    public String getMethodName()
    {
       return methodName;
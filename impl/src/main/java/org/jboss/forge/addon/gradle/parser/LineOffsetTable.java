@@ -0,0 +1,103 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.parser;
+
+import java.util.Arrays;
+
+import org.gradle.internal.impldep.com.google.common.base.Preconditions;
+
+/**
+ * Offsets of line beginnings in source, which translate line and column numbers to positions in source without
+ * scanning it.
+ * <p/>
+ * Lines are counted the same way as {@code source.split("\n")} does, so trailing empty lines don't count.
+ * 
+ * @see SourceUtil#positionInSource(String, int, int)
+ * 
+ * @author Adam Wyłuda
+ */
+public class LineOffsetTable
+{
+   // Beginning of every line, followed by the position just after the end of source plus one
+   private final int[] lineStarts;
+   private final int lineCount;
+
+   private LineOffsetTable(String source)
+   {
+      int[] starts = new int[16];
+      int lines = 0;
+      starts[lines++] = 0;
+      for (int i = source.indexOf('\n'); i >= 0; i = source.indexOf('\n', i + 1))
+      {
+         if (lines == starts.length)
+         {
+            starts = Arrays.copyOf(starts, lines * 2);
+         }
+         starts[lines++] = i + 1;
+      }
+      starts = Arrays.copyOf(starts, lines + 1);
+      starts[lines] = source.length() + 1;
+
+      // Trailing empty lines are dropped, unless the whole source is empty
+      int count = lines;
+      if (!source.isEmpty())
+      {
+         while (count > 0 && starts[count] - starts[count - 1] == 1)
+         {
+            count--;
+         }
+      }
+      this.lineStarts = starts;
+      this.lineCount = count;
+   }
+
+   public static LineOffsetTable of(String source)
+   {
+      return new LineOffsetTable(source);
+   }
+
+   public int getLineCount()
+   {
+      return lineCount;
+   }
+
+   /**
+    * @param lineNumber Line indexed from 1.
+    * @return Length of given line, without end line character.
+    */
+   public int getLineLength(int lineNumber)
+   {
+      Preconditions.checkArgument(lineNumber >= 1 && lineNumber <= lineCount, "Given line number exceeds line count");
+      return lineStarts[lineNumber] - lineStarts[lineNumber - 1] - 1;
+   }
+
+   /**
+    * @param lineNumber Position indexed from 1.
+    * @param columnNumber Position indexed from 1.
+    * @return Real position of given coordinates in file.
+    */
+   public int positionOf(int lineNumber, int columnNumber)
+   {
+      Preconditions.checkArgument(lineNumber >= 1, "Line number must be greater than 0");
+      Preconditions.checkArgument(columnNumber >= 1, "Column number must be greater than 0");
+      Preconditions.checkArgument(lineNumber <= lineCount, "Given line number exceeds line count");
+      Preconditions.checkArgument(columnNumber - 1 <= getLineLength(lineNumber),
+               "Given column number exceeds column count in line");
+
+      return lineStarts[lineNumber - 1] + columnNumber - 1;
+   }
+
+   /**
+    * Returns number of the line (indexed from 1) which contains given position.
+    */
+   public int lineNumberAt(int position)
+   {
+      int index = Arrays.binarySearch(lineStarts, 0, lineCount, position);
+      // Position between line beginnings belongs to the preceding line
+      return index >= 0 ? index + 1 : -index - 1;
+   }
+}
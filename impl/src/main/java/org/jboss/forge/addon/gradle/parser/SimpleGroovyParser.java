@@ -6,7 +6,6 @@
  */
 package org.jboss.forge.addon.gradle.parser;
 
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -29,12 +28,16 @@ import org.codehaus.groovy.ast.expr.VariableExpression;
 import org.codehaus.groovy.ast.stmt.BlockStatement;
 import org.codehaus.groovy.ast.stmt.ExpressionStatement;
 import org.codehaus.groovy.ast.stmt.Statement;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.ErrorCollector;
 import org.codehaus.groovy.control.SourceUnit;
 import org.gradle.internal.impldep.com.google.common.base.Optional;
 import org.gradle.internal.impldep.com.google.common.base.Preconditions;
 import org.gradle.internal.impldep.com.google.common.collect.Lists;
 import org.gradle.internal.impldep.com.google.common.collect.Maps;
 
+import groovy.lang.GroovyClassLoader;
+
 /**
  * This is a minimal groovy parser necessary to obtain information about gradle project. It can create method invocation
  * tree from given source, as gradle build configuration is invocation oriented.
@@ -43,7 +46,7 @@ import org.gradle.internal.impldep.com.google.common.collect.Maps;
  */
 public class SimpleGroovyParser
 {
-   private static class PreInvocationWithClosure
+   static class PreInvocationWithClosure
    {
       public int lineNumber = 1;
       public int columnNumber = 1;
@@ -59,31 +62,331 @@ public class SimpleGroovyParser
       public List<InvocationWithString> invocationWithStringList = Lists.newArrayList();
       public List<VariableAssignment> variableAssignmentList = Lists.newArrayList();
 
-      public InvocationWithClosure create(String source)
+      public InvocationWithClosure create(String source, LineOffsetTable lines)
       {
-         String code = source.substring(SourceUtil.positionInSource(source, lineNumber, columnNumber),
-                  SourceUtil.positionInSource(source, lastLineNumber, lastColumnNumber));
-         return new InvocationWithClosure(code, methodName, stringParameter, mapParameter,
+         return new InvocationWithClosure(source, lines.positionOf(lineNumber, columnNumber),
+                  lines.positionOf(lastLineNumber, lastColumnNumber), methodName, stringParameter, mapParameter,
                   invocationWithClosureList, invocationWithStringList,
                   invocationWithMapList, variableAssignmentList,
                   lineNumber, columnNumber, lastLineNumber, lastColumnNumber);
       }
    }
 
+   /**
+    * Groovy compiler setup shared by all parses, it's created when Groovy front end is needed for the first time.
+    */
+   private static class GroovyFrontEnd
+   {
+      private static final CompilerConfiguration CONFIGURATION = new CompilerConfiguration();
+      // Parse stops at conversion, before any class is resolved or defined, so all threads share the same loader
+      private static final GroovyClassLoader CLASS_LOADER;
+
+      static
+      {
+         CONFIGURATION.setTolerance(1);
+         CLASS_LOADER = new GroovyClassLoader(SimpleGroovyParser.class.getClassLoader(), CONFIGURATION);
+      }
+
+      static SourceUnit createSourceUnit(String source)
+      {
+         return new SourceUnit("script", source, CONFIGURATION, CLASS_LOADER, new ErrorCollector(CONFIGURATION));
+      }
+   }
+
    private final String source;
+   private final LineOffsetTable lines;
    private final InvocationWithClosure root;
 
    private SimpleGroovyParser(String source)
+   {
+      this(source, true);
+   }
+
+   private SimpleGroovyParser(String source, boolean recognize)
+   {
+      this.source = source;
+      this.lines = LineOffsetTable.of(source);
+      InvocationWithClosure recognized = recognize ? SimpleScriptRecognizer.recognize(source, lines) : null;
+      root = recognized != null ? recognized : createInvocationWithClosureRoot(source);
+   }
+
+   private SimpleGroovyParser(String source, LineOffsetTable lines, InvocationWithClosure root)
    {
       this.source = source;
-      root = createInvocationWithClosureRoot(source);
+      this.lines = lines;
+      this.root = root;
    }
 
+   /**
+    * Returns parser of given source. Parsers are immutable, so parsers of the same source are shared.
+    * 
+    * @see SimpleGroovyParserCache
+    */
    public static SimpleGroovyParser fromSource(String source)
+   {
+      return SimpleGroovyParserCache.shared().parse(source);
+   }
+
+   /**
+    * Parses given source, bypassing the cache.
+    */
+   static SimpleGroovyParser parse(String source)
    {
       return new SimpleGroovyParser(source);
    }
 
+   /**
+    * Parses given source with Groovy front end, even if {@link SimpleScriptRecognizer} could recognize it.
+    */
+   static SimpleGroovyParser parseWithGroovy(String source)
+   {
+      return new SimpleGroovyParser(source, false);
+   }
+
+   /**
+    * Returns parser of the source in which given region is replaced with given text.
+    * <p/>
+    * If the region lies inside of a closure, only the innermost such closure is parsed again, positions of elements
+    * following it are shifted and the rest of the tree is reused. Otherwise, or if the closure can't be parsed on its
+    * own (e.g. the edit closes it), the whole source is parsed.
+    */
+   public SimpleGroovyParser reparse(int start, int end, String replacement)
+   {
+      Preconditions.checkArgument(0 <= start && start <= end && end <= source.length(), "Invalid region");
+      String newSource = source.substring(0, start) + replacement + source.substring(end);
+
+      List<InvocationWithClosure> path = Lists.newArrayList();
+      InvocationWithClosure parent = root;
+      InvocationWithClosure enclosing;
+      while ((enclosing = enclosingInvocation(parent, start, end)) != null)
+      {
+         path.add(enclosing);
+         parent = enclosing;
+      }
+      if (path.isEmpty())
+      {
+         return fromSource(newSource);
+      }
+
+      InvocationWithClosure edited = path.get(path.size() - 1);
+      int editedStart = lines.positionOf(edited.getLineNumber(), edited.getColumnNumber());
+      int editedEnd = lines.positionOf(edited.getLastLineNumber(), edited.getLastColumnNumber());
+      int lineEnd = source.indexOf('\n', editedEnd);
+      // Elements following the closure are shifted by whole lines, so nothing can follow it in its last line
+      if (!source.substring(editedEnd, lineEnd >= 0 ? lineEnd : source.length()).trim().isEmpty())
+      {
+         return fromSource(newSource);
+      }
+
+      InvocationWithClosure reparsed = parseInvocation(edited, newSource.substring(editedStart,
+               editedEnd + replacement.length() - (end - start)));
+      if (reparsed == null)
+      {
+         return fromSource(newSource);
+      }
+
+      LineOffsetTable newLines = LineOffsetTable.of(newSource);
+      int lastLineNumber = edited.getLastLineNumber();
+      int lineShift = reparsed.getLastLineNumber() - lastLineNumber;
+      for (int i = path.size() - 1; i >= 0; i--)
+      {
+         InvocationWithClosure invocation = i > 0 ? path.get(i - 1) : root;
+         reparsed = replaceInvocation(invocation, path.get(i), reparsed, lastLineNumber, lineShift,
+                  newSource, newLines);
+      }
+      SimpleGroovyParser parser = new SimpleGroovyParser(newSource, newLines, reparsed);
+      SimpleGroovyParserCache.shared().put(parser);
+      return parser;
+   }
+
+   /**
+    * Returns child of given invocation with closure which contains given region between its first and last character.
+    */
+   private InvocationWithClosure enclosingInvocation(InvocationWithClosure parent, int start, int end)
+   {
+      for (InvocationWithClosure invocation : parent.getInvocationsWithClosure())
+      {
+         if (lines.positionOf(invocation.getLineNumber(), invocation.getColumnNumber()) < start &&
+                  end < lines.positionOf(invocation.getLastLineNumber(), invocation.getLastColumnNumber()))
+         {
+            return invocation;
+         }
+      }
+      return null;
+   }
+
+   /**
+    * Parses code of the invocation on its own, preceded by whitespaces so that it has the same position as given
+    * invocation. Returns null if the code isn't a single invocation with closure.
+    */
+   private static InvocationWithClosure parseInvocation(InvocationWithClosure invocation, String code)
+   {
+      StringBuilder positionedCode = new StringBuilder();
+      for (int i = 1; i < invocation.getLineNumber(); i++)
+      {
+         positionedCode.append('\n');
+      }
+      for (int i = 1; i < invocation.getColumnNumber(); i++)
+      {
+         positionedCode.append(' ');
+      }
+      positionedCode.append(code);
+
+      SimpleGroovyParser parser;
+      try
+      {
+         parser = new SimpleGroovyParser(positionedCode.toString());
+      }
+      catch (RuntimeException e)
+      {
+         return null;
+      }
+
+      if (parser.getInvocationsWithClosure().size() != 1 || !parser.getInvocationsWithMap().isEmpty() ||
+               !parser.getInvocationsWithString().isEmpty() || !parser.getVariableAssignments().isEmpty())
+      {
+         return null;
+      }
+      InvocationWithClosure result = parser.getInvocationsWithClosure().get(0);
+      if (result.getLineNumber() != invocation.getLineNumber() ||
+               result.getColumnNumber() != invocation.getColumnNumber() ||
+               result.getCodeLength() != code.length() ||
+               !result.getSourceBuffer().regionMatches(result.getStart(), code, 0, code.length()))
+      {
+         return null;
+      }
+      return result;
+   }
+
+   /**
+    * Creates copy of the parent with replaced child invocation, all elements following it are shifted by given
+    * number of lines.
+    * 
+    * @param newSource Source from which the code of parent is taken.
+    */
+   private static InvocationWithClosure replaceInvocation(InvocationWithClosure parent,
+            InvocationWithClosure oldInvocation, InvocationWithClosure newInvocation,
+            int lastLineNumber, int lineShift, String newSource, LineOffsetTable newLines)
+   {
+      List<InvocationWithClosure> invocationsWithClosure = Lists.newArrayList();
+      for (InvocationWithClosure invocation : parent.getInvocationsWithClosure())
+      {
+         invocationsWithClosure.add(invocation == oldInvocation ? newInvocation
+                  : shift(invocation, lastLineNumber, lineShift));
+      }
+      List<InvocationWithMap> invocationsWithMap = Lists.newArrayList();
+      for (InvocationWithMap invocation : parent.getInvocationsWithMap())
+      {
+         invocationsWithMap.add(shift(invocation, lastLineNumber, lineShift));
+      }
+      List<InvocationWithString> invocationsWithString = Lists.newArrayList();
+      for (InvocationWithString invocation : parent.getInvocationsWithString())
+      {
+         invocationsWithString.add(shift(invocation, lastLineNumber, lineShift));
+      }
+      List<VariableAssignment> variableAssignments = Lists.newArrayList();
+      for (VariableAssignment assignment : parent.getVariableAssignments())
+      {
+         variableAssignments.add(shift(assignment, lastLineNumber, lineShift));
+      }
+
+      int parentLastLineNumber = shiftLine(parent.getLastLineNumber(), lastLineNumber, lineShift);
+      return new InvocationWithClosure(newSource,
+               newLines.positionOf(parent.getLineNumber(), parent.getColumnNumber()),
+               newLines.positionOf(parentLastLineNumber, parent.getLastColumnNumber()),
+               parent.getMethodName(), parent.getStringParameter(),
+               parent.getMapParameter(), invocationsWithClosure, invocationsWithString, invocationsWithMap,
+               variableAssignments, parent.getLineNumber(), parent.getColumnNumber(),
+               parentLastLineNumber, parent.getLastColumnNumber());
+   }
+
+   private static InvocationWithClosure shift(InvocationWithClosure invocation, int lastLineNumber, int lineShift)
+   {
+      if (invocation.getLineNumber() <= lastLineNumber || lineShift == 0)
+      {
+         return invocation;
+      }
+      List<InvocationWithClosure> invocationsWithClosure = Lists.newArrayList();
+      for (InvocationWithClosure subinvocation : invocation.getInvocationsWithClosure())
+      {
+         invocationsWithClosure.add(shift(subinvocation, lastLineNumber, lineShift));
+      }
+      List<InvocationWithMap> invocationsWithMap = Lists.newArrayList();
+      for (InvocationWithMap subinvocation : invocation.getInvocationsWithMap())
+      {
+         invocationsWithMap.add(shift(subinvocation, lastLineNumber, lineShift));
+      }
+      List<InvocationWithString> invocationsWithString = Lists.newArrayList();
+      for (InvocationWithString subinvocation : invocation.getInvocationsWithString())
+      {
+         invocationsWithString.add(shift(subinvocation, lastLineNumber, lineShift));
+      }
+      List<VariableAssignment> variableAssignments = Lists.newArrayList();
+      for (VariableAssignment assignment : invocation.getVariableAssignments())
+      {
+         variableAssignments.add(shift(assignment, lastLineNumber, lineShift));
+      }
+      return new InvocationWithClosure(invocation.getSourceBuffer(), invocation.getStart(), invocation.getEnd(),
+               invocation.getMethodName(), invocation.getStringParameter(), invocation.getMapParameter(),
+               invocationsWithClosure, invocationsWithString, invocationsWithMap, variableAssignments,
+               invocation.getLineNumber() + lineShift, invocation.getColumnNumber(),
+               invocation.getLastLineNumber() + lineShift, invocation.getLastColumnNumber());
+   }
+
+   private static InvocationWithMap shift(InvocationWithMap invocation, int lastLineNumber, int lineShift)
+   {
+      if (invocation.getLineNumber() <= lastLineNumber || lineShift == 0)
+      {
+         return invocation;
+      }
+      return new InvocationWithMap(invocation.getSourceBuffer(), invocation.getStart(), invocation.getEnd(),
+               invocation.getMethodName(), invocation.getParameters(),
+               invocation.getLineNumber() + lineShift, invocation.getColumnNumber(),
+               invocation.getLastLineNumber() + lineShift, invocation.getLastColumnNumber());
+   }
+
+   private static InvocationWithString shift(InvocationWithString invocation, int lastLineNumber, int lineShift)
+   {
+      if (invocation.getLineNumber() <= lastLineNumber || lineShift == 0)
+      {
+         return invocation;
+      }
+      return new InvocationWithString(invocation.getSourceBuffer(), invocation.getStart(), invocation.getEnd(),
+               invocation.getMethodName(), invocation.getString(),
+               invocation.getLineNumber() + lineShift, invocation.getColumnNumber(),
+               invocation.getLastLineNumber() + lineShift, invocation.getLastColumnNumber());
+   }
+
+   private static VariableAssignment shift(VariableAssignment assignment, int lastLineNumber, int lineShift)
+   {
+      if (assignment.getLineNumber() <= lastLineNumber || lineShift == 0)
+      {
+         return assignment;
+      }
+      return new VariableAssignment(assignment.getSourceBuffer(), assignment.getStart(), assignment.getEnd(),
+               assignment.getVariable(), assignment.getValue(),
+               assignment.getLineNumber() + lineShift, assignment.getColumnNumber(),
+               assignment.getLastLineNumber() + lineShift, assignment.getLastColumnNumber());
+   }
+
+   private static int shiftLine(int lineNumber, int lastLineNumber, int lineShift)
+   {
+      return lineNumber > lastLineNumber ? lineNumber + lineShift : lineNumber;
+   }
+
+   public String getSource()
+   {
+      return source;
+   }
+
+   /**
+    * Returns line offsets of the parsed source.
+    */
+   public LineOffsetTable getLineOffsets()
+   {
+      return lines;
+   }
+
    public List<InvocationWithClosure> getInvocationsWithClosure()
    {
       return root.getInvocationsWithClosure();
@@ -126,27 +429,30 @@ public class SimpleGroovyParser
 
    public List<InvocationWithClosure> allInvocationsAtPath(String... path)
    {
-      Preconditions.checkArgument(path.length > 0, "Path must have at least one element");
-      List<InvocationWithClosure> list = Lists.newArrayList();
-      allInvocationsAtPath(list, root, path);
-      return list;
+      return InvocationPath.of(path).invocationsWithClosureIn(root);
    }
 
-   private void allInvocationsAtPath(List<InvocationWithClosure> list, InvocationWithClosure invocation, String... path)
+   /**
+    * Returns all invocations with closure matching given path, in order of appearance.
+    */
+   public List<InvocationWithClosure> invocationsWithClosureAt(InvocationPath path)
    {
-      if (path.length == 0)
-      {
-         list.add(invocation);
-         return;
-      }
-      String name = path[0];
-      for (InvocationWithClosure subinvocation : invocation.getInvocationsWithClosure())
-      {
-         if (subinvocation.getMethodName().equals(name))
-         {
-            allInvocationsAtPath(list, subinvocation, Arrays.copyOfRange(path, 1, path.length));
-         }
-      }
+      return path.invocationsWithClosureIn(root);
+   }
+
+   public List<InvocationWithString> invocationsWithStringAt(InvocationPath path)
+   {
+      return path.invocationsWithStringIn(root);
+   }
+
+   public List<InvocationWithMap> invocationsWithMapAt(InvocationPath path)
+   {
+      return path.invocationsWithMapIn(root);
+   }
+
+   public List<VariableAssignment> variableAssignmentsAt(InvocationPath path)
+   {
+      return path.variableAssignmentsIn(root);
    }
 
    private InvocationWithClosure createInvocationWithClosureRoot(String source)
@@ -154,12 +460,12 @@ public class SimpleGroovyParser
       BlockStatement sourceBlockStatement = parseSource(source);
       PreInvocationWithClosure root = new PreInvocationWithClosure();
       fillInvocationFromStatement(sourceBlockStatement, root);
-      return root.create(source);
+      return root.create(source, lines);
    }
 
    private BlockStatement parseSource(String source)
    {
-      SourceUnit sourceUnit = SourceUnit.create("script", source);
+      SourceUnit sourceUnit = GroovyFrontEnd.createSourceUnit(source);
       sourceUnit.parse();
       sourceUnit.nextPhase();
       sourceUnit.convert();
@@ -234,12 +540,10 @@ public class SimpleGroovyParser
          {
             String string = valueFromStringOrGString(argumentExpression);
 
-            String code = source
-                     .substring(
-                              SourceUtil.positionInSource(source, expression.getLineNumber(), expression.getColumnNumber()),
-                              SourceUtil.positionInSource(source, expression.getLastLineNumber(),
-                                       expression.getLastColumnNumber()));
-            InvocationWithString invocation = new InvocationWithString(code, methodName, string,
+            InvocationWithString invocation = new InvocationWithString(source,
+                     lines.positionOf(expression.getLineNumber(), expression.getColumnNumber()),
+                     lines.positionOf(expression.getLastLineNumber(), expression.getLastColumnNumber()),
+                     methodName, string,
                      expression.getLineNumber(), expression.getColumnNumber(),
                      expression.getLastLineNumber(), expression.getLastColumnNumber());
             node.invocationWithStringList.add(invocation);
@@ -296,7 +600,7 @@ public class SimpleGroovyParser
       invocation.lastColumnNumber = expression.getLastColumnNumber();
 
       fillInvocationFromStatement(blockStatement, invocation);
-      node.invocationWithClosureList.add(invocation.create(source));
+      node.invocationWithClosureList.add(invocation.create(source, lines));
    }
 
    private void processTupleExpression(Expression expression,
@@ -318,10 +622,10 @@ public class SimpleGroovyParser
             PreInvocationWithClosure node, String methodName)
    {
       Map<String, String> parameters = mapFromMapEntryExpressions(argumentListExpression.getMapEntryExpressions());
-      String code = source.substring(
-               SourceUtil.positionInSource(source, expression.getLineNumber(), expression.getColumnNumber()),
-               SourceUtil.positionInSource(source, expression.getLastLineNumber(), expression.getLastColumnNumber()));
-      InvocationWithMap invocation = new InvocationWithMap(code, methodName, parameters,
+      InvocationWithMap invocation = new InvocationWithMap(source,
+               lines.positionOf(expression.getLineNumber(), expression.getColumnNumber()),
+               lines.positionOf(expression.getLastLineNumber(), expression.getLastColumnNumber()),
+               methodName, parameters,
                expression.getLineNumber(), expression.getColumnNumber(),
                expression.getLineNumber(), expression.getLastColumnNumber());
       node.invocationWithMapList.add(invocation);
@@ -345,11 +649,9 @@ public class SimpleGroovyParser
          int lastLineNumber = expression.getLastLineNumber();
          int lastColumnNumber = expression.getLastColumnNumber();
 
-         String code = source.substring(SourceUtil.positionInSource(source, lineNumber, columnNumber),
-                  SourceUtil.positionInSource(source, lastLineNumber, lastColumnNumber));
-         VariableAssignment variableAssignment =
-                  new VariableAssignment(code, variable, value,
-                           lineNumber, columnNumber, lastLineNumber, lastColumnNumber);
+         VariableAssignment variableAssignment = new VariableAssignment(source,
+                  lines.positionOf(lineNumber, columnNumber), lines.positionOf(lastLineNumber, lastColumnNumber),
+                  variable, value, lineNumber, columnNumber, lastLineNumber, lastColumnNumber);
          node.variableAssignmentList.add(variableAssignment);
       }
    }
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.parser;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.gradle.internal.impldep.com.google.common.base.Preconditions;
+
+/**
+ * Keeps parsed scripts keyed by their contents, so that the same script which is read many times (e.g. by the facet,
+ * model loading and merging) is parsed by Groovy only once. Parse trees are immutable, so they are shared by all
+ * callers.
+ * <p/>
+ * Size of the cache is limited by estimated memory weight of parse trees; when it's exceeded, the least recently used
+ * trees are evicted.
+ * 
+ * @see SimpleGroovyParser#fromSource(String)
+ * 
+ * @author Adam Wyłuda
+ */
+public class SimpleGroovyParserCache
+{
+   public static final long DEFAULT_MAX_WEIGHT = 16 * 1024 * 1024;
+
+   // Rough size of an element object with its fields and collections, code is a span of the shared source
+   private static final int ELEMENT_WEIGHT = 96;
+
+   private static final SimpleGroovyParserCache SHARED = new SimpleGroovyParserCache(DEFAULT_MAX_WEIGHT);
+
+   private static class Entry
+   {
+      private final SimpleGroovyParser parser;
+      private final long weight;
+
+      Entry(SimpleGroovyParser parser, long weight)
+      {
+         this.parser = parser;
+         this.weight = weight;
+      }
+   }
+
+   private final long maxWeight;
+
+   // Access ordered, so iteration starts from the least recently used tree
+   private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+   private long weight;
+   private long hitCount;
+   private long missCount;
+
+   public SimpleGroovyParserCache(long maxWeight)
+   {
+      Preconditions.checkArgument(maxWeight > 0, "Maximum weight must be greater than 0");
+      this.maxWeight = maxWeight;
+   }
+
+   /**
+    * Returns the cache shared by the whole process.
+    */
+   public static SimpleGroovyParserCache shared()
+   {
+      return SHARED;
+   }
+
+   /**
+    * Returns parser of given source, it's parsed only if the same source isn't cached.
+    */
+   public SimpleGroovyParser parse(String source)
+   {
+      synchronized (this)
+      {
+         Entry entry = entries.get(source);
+         if (entry != null)
+         {
+            hitCount++;
+            return entry.parser;
+         }
+         missCount++;
+      }
+
+      // Parsing is done outside of the lock, same source may be parsed concurrently but it's cached once
+      SimpleGroovyParser parser = SimpleGroovyParser.parse(source);
+      put(parser);
+      return parser;
+   }
+
+   /**
+    * Caches given parser, e.g. created by {@link SimpleGroovyParser#reparse(int, int, String)}.
+    */
+   public synchronized void put(SimpleGroovyParser parser)
+   {
+      long parserWeight = weigh(parser);
+      if (parserWeight > maxWeight)
+      {
+         return;
+      }
+
+      Entry previous = entries.put(parser.getSource(), new Entry(parser, parserWeight));
+      if (previous != null)
+      {
+         weight -= previous.weight;
+      }
+      weight += parserWeight;
+
+      Iterator<Entry> iterator = entries.values().iterator();
+      while (weight > maxWeight)
+      {
+         weight -= iterator.next().weight;
+         iterator.remove();
+      }
+   }
+
+   public synchronized void clear()
+   {
+      entries.clear();
+      weight = 0;
+   }
+
+   public synchronized int size()
+   {
+      return entries.size();
+   }
+
+   /**
+    * Returns estimated memory weight of cached parse trees, in bytes.
+    */
+   public synchronized long getWeight()
+   {
+      return weight;
+   }
+
+   public long getMaxWeight()
+   {
+      return maxWeight;
+   }
+
+   public synchronized long getHitCount()
+   {
+      return hitCount;
+   }
+
+   public synchronized long getMissCount()
+   {
+      return missCount;
+   }
+
+   /**
+    * Estimates memory taken by the parse tree, which is dominated by its source and number of elements.
+    */
+   static long weigh(SimpleGroovyParser parser)
+   {
+      long result = 2L * parser.getSource().length() + 4L * parser.getLineOffsets().getLineCount();
+      result += weigh(parser.getInvocationsWithClosure());
+      result += weigh(parser.getInvocationsWithMap());
+      result += weigh(parser.getInvocationsWithString());
+      result += weigh(parser.getVariableAssignments());
+      return result;
+   }
+
+   private static long weigh(List<? extends SourceCodeElement> elements)
+   {
+      long result = 0;
+      for (SourceCodeElement element : elements)
+      {
+         result += ELEMENT_WEIGHT;
+         if (element instanceof InvocationWithClosure)
+         {
+            InvocationWithClosure invocation = (InvocationWithClosure) element;
+            result += weigh(invocation.getInvocationsWithClosure());
+            result += weigh(invocation.getInvocationsWithMap());
+            result += weigh(invocation.getInvocationsWithString());
+            result += weigh(invocation.getVariableAssignments());
+         }
+      }
+      return result;
+   }
+}
@@ -0,0 +1,546 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.parser;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.gradle.internal.impldep.com.google.common.collect.Maps;
+import org.gradle.internal.impldep.com.google.common.collect.Sets;
+import org.jboss.forge.addon.gradle.parser.SimpleGroovyParser.PreInvocationWithClosure;
+
+/**
+ * Recognizes the common subset of build script syntax without Groovy compiler, producing the same invocation tree
+ * as {@link SimpleGroovyParser} does with Groovy front end.
+ * <p/>
+ * Recognized statements are invocations with a string, named arguments and/or closure (e.g. {@code compile 'x:y:z'},
+ * {@code apply plugin: 'java'}, {@code runtime(group: 'x', name: 'y') { ... }}, {@code mavenCentral()}),
+ * assignments of a string or a simple literal to a variable or property, and {@code def} declarations of such
+ * values. Anything else, including GStrings, escape sequences and tabs, which affect columns reported by Groovy, is
+ * left to Groovy.
+ * 
+ * @author Adam Wyłuda
+ */
+class SimpleScriptRecognizer
+{
+   @SuppressWarnings("serial")
+   private static class UnsupportedSyntaxException extends RuntimeException
+   {
+      UnsupportedSyntaxException()
+      {
+         super(null, null, false, false);
+      }
+   }
+
+   // Thrown whenever recognizer meets unsupported syntax, it's caught before leaving the recognizer
+   private static final UnsupportedSyntaxException UNSUPPORTED = new UnsupportedSyntaxException();
+
+   private static final Set<String> KEYWORDS = Sets.newHashSet("abstract", "as", "assert", "boolean", "break",
+            "byte", "case", "catch", "char", "class", "const", "continue", "def", "default", "do", "double", "else",
+            "enum", "extends", "false", "final", "finally", "float", "for", "goto", "if", "implements", "import",
+            "in", "instanceof", "int", "interface", "long", "native", "new", "null", "package", "private",
+            "protected", "public", "return", "short", "static", "strictfp", "super", "switch", "synchronized",
+            "this", "threadsafe", "throw", "throws", "trait", "transient", "true", "try", "var", "void", "volatile",
+            "while");
+
+   private static final Set<String> LITERALS = Sets.newHashSet("true", "false", "null");
+
+   private final String source;
+   private final LineOffsetTable lines;
+   private int position;
+
+   private SimpleScriptRecognizer(String source, LineOffsetTable lines)
+   {
+      this.source = source;
+      this.lines = lines;
+   }
+
+   /**
+    * Returns invocation tree of given source, or null if it contains syntax which must be parsed by Groovy.
+    */
+   static InvocationWithClosure recognize(String source, LineOffsetTable lines)
+   {
+      if (source.indexOf('\t') >= 0 || source.indexOf('\r') >= 0)
+      {
+         return null;
+      }
+
+      SimpleScriptRecognizer recognizer = new SimpleScriptRecognizer(source, lines);
+      PreInvocationWithClosure root = new PreInvocationWithClosure();
+      try
+      {
+         recognizer.block(root);
+         if (!recognizer.atEnd())
+         {
+            return null;
+         }
+      }
+      catch (UnsupportedSyntaxException e)
+      {
+         return null;
+      }
+      return root.create(source, lines);
+   }
+
+   /**
+    * Recognizes statements until the end of source or closing brace.
+    */
+   private void block(PreInvocationWithClosure node)
+   {
+      while (true)
+      {
+         skipLines();
+         while (peek() == ';')
+         {
+            position++;
+            skipLines();
+         }
+         if (atEnd() || peek() == '}')
+         {
+            return;
+         }
+         statement(node);
+         statementEnd();
+      }
+   }
+
+   private void statement(PreInvocationWithClosure node)
+   {
+      int start = position;
+      String name = identifier();
+
+      if (peek() == '.')
+      {
+         if (KEYWORDS.contains(name))
+         {
+            throw UNSUPPORTED;
+         }
+         StringBuilder variable = new StringBuilder(name);
+         while (peek() == '.')
+         {
+            position++;
+            variable.append('.').append(nonKeywordIdentifier());
+         }
+         skipSpaces();
+         assignment(node, start, variable.toString());
+         return;
+      }
+
+      if (name.equals("def"))
+      {
+         declaration();
+         return;
+      }
+      if (KEYWORDS.contains(name))
+      {
+         throw UNSUPPORTED;
+      }
+
+      if (peek() == '(')
+      {
+         parenthesizedInvocation(node, start, name);
+         return;
+      }
+
+      int nameEnd = position;
+      skipSpaces();
+      boolean separated = position > nameEnd;
+      char c = peek();
+      if (c == '=' && peek(1) != '=')
+      {
+         assignment(node, start, name);
+      }
+      else if (c == '{')
+      {
+         closure(node, start, name, "", Maps.<String, String> newHashMap());
+      }
+      else if (separated && isQuote(c))
+      {
+         String string = string();
+         node.invocationWithStringList.add(new InvocationWithString(source, start, position, name, string,
+                  lineOf(start), columnOf(start), lineOf(position), columnOf(position)));
+      }
+      else if (separated && isIdentifierStart(c))
+      {
+         Map<String, String> parameters = Maps.newHashMap();
+         namedArguments(parameters, false);
+         addInvocationWithMap(node, start, name, parameters);
+      }
+      else if (!isStatementEnd())
+      {
+         throw UNSUPPORTED;
+      }
+   }
+
+   /**
+    * Invocation with arguments in parentheses, optionally followed by a closure.
+    */
+   private void parenthesizedInvocation(PreInvocationWithClosure node, int start, String name)
+   {
+      position++;
+      skipLines();
+      String string = null;
+      Map<String, String> parameters = null;
+      if (isQuote(peek()))
+      {
+         string = string();
+      }
+      else if (isIdentifierStart(peek()))
+      {
+         parameters = Maps.newHashMap();
+         namedArguments(parameters, true);
+      }
+      skipLines();
+      expect(')');
+
+      int end = position;
+      skipSpaces();
+      if (peek() == '{')
+      {
+         closure(node, start, name, string != null ? string : "",
+                  parameters != null ? parameters : Maps.<String, String> newHashMap());
+      }
+      else if (string != null)
+      {
+         node.invocationWithStringList.add(new InvocationWithString(source, start, end, name, string,
+                  lineOf(start), columnOf(start), lineOf(end), columnOf(end)));
+      }
+      else if (parameters != null)
+      {
+         position = end;
+         addInvocationWithMap(node, start, name, parameters);
+      }
+   }
+
+   private void closure(PreInvocationWithClosure node, int start, String name, String stringParameter,
+            Map<String, String> mapParameter)
+   {
+      position++;
+      PreInvocationWithClosure invocation = new PreInvocationWithClosure();
+      invocation.methodName = name;
+      invocation.stringParameter = stringParameter;
+      invocation.mapParameter = mapParameter;
+      block(invocation);
+      expect('}');
+
+      invocation.lineNumber = lineOf(start);
+      invocation.columnNumber = columnOf(start);
+      invocation.lastLineNumber = lineOf(position);
+      invocation.lastColumnNumber = columnOf(position);
+      node.invocationWithClosureList.add(invocation.create(source, lines));
+   }
+
+   /**
+    * Named arguments, which end at the current position.
+    */
+   private void addInvocationWithMap(PreInvocationWithClosure node, int start, String name,
+            Map<String, String> parameters)
+   {
+      // Invocation with map keeps only its first line, so arguments spanning many lines are left to Groovy
+      int lineNumber = lineOf(start);
+      if (lineOf(position) != lineNumber)
+      {
+         throw UNSUPPORTED;
+      }
+      node.invocationWithMapList.add(new InvocationWithMap(source, start, position, name, parameters,
+               lineNumber, columnOf(start), lineNumber, columnOf(position)));
+   }
+
+   /**
+    * Named arguments separated by commas, only string values are put into the map.
+    * 
+    * @param newLines If true then new lines are allowed between arguments.
+    */
+   private void namedArguments(Map<String, String> parameters, boolean newLines)
+   {
+      while (true)
+      {
+         String key = nonKeywordIdentifier();
+         expect(':');
+         skipSpaces();
+         if (isQuote(peek()))
+         {
+            parameters.put(key, string());
+         }
+         else
+         {
+            literal();
+         }
+
+         int end = position;
+         skipWhitespaces(newLines);
+         if (peek() != ',')
+         {
+            position = end;
+            return;
+         }
+         position++;
+         skipWhitespaces(newLines);
+      }
+   }
+
+   private void assignment(PreInvocationWithClosure node, int start, String variable)
+   {
+      if (peek() != '=' || peek(1) == '=')
+      {
+         throw UNSUPPORTED;
+      }
+      position++;
+      skipSpaces();
+      if (isQuote(peek()))
+      {
+         String value = string();
+         node.variableAssignmentList.add(new VariableAssignment(source, start, position, variable, value,
+                  lineOf(start), columnOf(start), lineOf(position), columnOf(position)));
+      }
+      else
+      {
+         literal();
+      }
+   }
+
+   /**
+    * Declaration of a variable, it's never a variable assignment.
+    */
+   private void declaration()
+   {
+      skipSpaces();
+      nonKeywordIdentifier();
+      skipSpaces();
+      if (peek() == '=' && peek(1) != '=')
+      {
+         position++;
+         skipSpaces();
+         if (isQuote(peek()))
+         {
+            string();
+         }
+         else
+         {
+            literal();
+         }
+      }
+   }
+
+   /**
+    * Value which isn't a string: a number, {@code true}, {@code false}, {@code null}, or a variable or property.
+    */
+   private void literal()
+   {
+      char c = peek();
+      if (c >= '0' && c <= '9')
+      {
+         digits();
+         if (peek() == '.' && isDigit(peek(1)))
+         {
+            position++;
+            digits();
+         }
+         if (Character.isLetter(peek()))
+         {
+            position++;
+         }
+         return;
+      }
+
+      String name = identifier();
+      if (LITERALS.contains(name))
+      {
+         return;
+      }
+      if (KEYWORDS.contains(name))
+      {
+         throw UNSUPPORTED;
+      }
+      while (peek() == '.')
+      {
+         position++;
+         nonKeywordIdentifier();
+      }
+   }
+
+   private void digits()
+   {
+      while (isDigit(peek()) || peek() == '_')
+      {
+         position++;
+      }
+   }
+
+   /**
+    * Single or double quoted string in a single line, without escape sequences and GString expressions.
+    */
+   private String string()
+   {
+      char quote = peek();
+      int start = ++position;
+      int end = source.indexOf(quote, start);
+      if (end < 0 || (end == start && peek(1) == quote))
+      {
+         // Triple quoted string
+         throw UNSUPPORTED;
+      }
+      for (int i = start; i < end; i++)
+      {
+         char c = source.charAt(i);
+         if (c == '\n' || c == '\\' || (c == '$' && quote == '"'))
+         {
+            throw UNSUPPORTED;
+         }
+      }
+      position = end + 1;
+      return source.substring(start, end);
+   }
+
+   private String identifier()
+   {
+      if (!isIdentifierStart(peek()))
+      {
+         throw UNSUPPORTED;
+      }
+      int start = position;
+      do
+      {
+         position++;
+      }
+      while (Character.isLetterOrDigit(peek()) || peek() == '_');
+      return source.substring(start, position);
+   }
+
+   private String nonKeywordIdentifier()
+   {
+      String identifier = identifier();
+      if (KEYWORDS.contains(identifier))
+      {
+         throw UNSUPPORTED;
+      }
+      return identifier;
+   }
+
+   /**
+    * Statement must be followed only by a comment in the same line, a semicolon or a closing brace.
+    */
+   private void statementEnd()
+   {
+      skipSpaces();
+      if (!isStatementEnd())
+      {
+         throw UNSUPPORTED;
+      }
+   }
+
+   private boolean isStatementEnd()
+   {
+      return atEnd() || peek() == '\n' || peek() == ';' || peek() == '}';
+   }
+
+   private void expect(char c)
+   {
+      if (peek() != c)
+      {
+         throw UNSUPPORTED;
+      }
+      position++;
+   }
+
+   private void skipWhitespaces(boolean newLines)
+   {
+      if (newLines)
+      {
+         skipLines();
+      }
+      else
+      {
+         skipSpaces();
+      }
+   }
+
+   /**
+    * Skips spaces and a line comment, but not the end of line.
+    */
+   private void skipSpaces()
+   {
+      while (peek() == ' ')
+      {
+         position++;
+      }
+      if (peek() == '/' && peek(1) == '/')
+      {
+         int end = source.indexOf('\n', position);
+         position = end >= 0 ? end : source.length();
+      }
+   }
+
+   /**
+    * Skips spaces, new lines and comments.
+    */
+   private void skipLines()
+   {
+      while (true)
+      {
+         skipSpaces();
+         if (peek() == '\n')
+         {
+            position++;
+         }
+         else if (peek() == '/' && peek(1) == '*')
+         {
+            int end = source.indexOf("*/", position + 2);
+            if (end < 0)
+            {
+               throw UNSUPPORTED;
+            }
+            position = end + 2;
+         }
+         else
+         {
+            return;
+         }
+      }
+   }
+
+   private boolean atEnd()
+   {
+      return position >= source.length();
+   }
+
+   private char peek()
+   {
+      return peek(0);
+   }
+
+   private char peek(int offset)
+   {
+      int index = position + offset;
+      return index < source.length() ? source.charAt(index) : '\0';
+   }
+
+   private int lineOf(int position)
+   {
+      return lines.lineNumberAt(position);
+   }
+
+   private int columnOf(int position)
+   {
+      return position - lines.positionOf(lineOf(position), 1) + 1;
+   }
+
+   private static boolean isQuote(char c)
+   {
+      return c == '\'' || c == '"';
+   }
+
+   private static boolean isDigit(char c)
+   {
+      return c >= '0' && c <= '9';
+   }
+
+   private static boolean isIdentifierStart(char c)
+   {
+      return Character.isLetter(c) || c == '_';
+   }
+}
@@ -6,12 +6,19 @@
  */
 package org.jboss.forge.addon.gradle.parser;
 
+import org.gradle.internal.impldep.com.google.common.base.Preconditions;
+
 /**
+ * Element of parsed source. Its code is kept as a span of the source, which is shared by all elements of the parse
+ * tree, so code of nested elements isn't copied at every level.
+ * 
  * @author Adam Wyłuda
  */
 public abstract class SourceCodeElement
 {
-   private final String code;
+   private final String source;
+   private final int start;
+   private final int end;
    private final int lineNumber;
    private final int columnNumber;
    private final int lastLineNumber;
@@ -19,16 +26,54 @@ public abstract class SourceCodeElement
 
    public SourceCodeElement(String code, int lineNumber, int columnNumber, int lastLineNumber, int lastColumnNumber)
    {
-      this.code = code;
+      this(code, 0, code.length(), lineNumber, columnNumber, lastLineNumber, lastColumnNumber);
+   }
+
+   /**
+    * Creates element which code is given span of the source.
+    */
+   SourceCodeElement(String source, int start, int end,
+            int lineNumber, int columnNumber, int lastLineNumber, int lastColumnNumber)
+   {
+      Preconditions.checkArgument(0 <= start && start <= end && end <= source.length(), "Invalid code span");
+      this.source = source;
+      this.start = start;
+      this.end = end;
       this.lineNumber = lineNumber;
       this.columnNumber = columnNumber;
       this.lastLineNumber = lastLineNumber;
       this.lastColumnNumber = lastColumnNumber;
    }
-   
+
+   /**
+    * Returns code of the element, it's copied from the source on every call.
+    */
    public String getCode()
    {
-      return code;
+      return source.substring(start, end);
+   }
+
+   int getCodeLength()
+   {
+      return end - start;
+   }
+
+   /**
+    * Returns source which contains code of the element, see {@link #getStart()} and {@link #getEnd()}.
+    */
+   String getSourceBuffer()
+   {
+      return source;
+   }
+
+   int getStart()
+   {
+      return start;
+   }
+
+   int getEnd()
+   {
+      return end;
    }
 
    public int getLineNumber()
@@ -0,0 +1,346 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.parser;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+
+import org.gradle.internal.impldep.com.google.common.base.Preconditions;
+import org.gradle.internal.impldep.com.google.common.collect.Lists;
+import org.gradle.internal.impldep.com.google.common.collect.Sets;
+
+/**
+ * Text edits computed against a single parse of the source, which are applied all at once.
+ * <p/>
+ * Every edit replaces a region of the original source, so edits must not depend on each other. Edits which touch the
+ * same region, or a region some other edit relies on (see {@link #guard(int, int)}), are conflicting and then the
+ * batch can't be applied; such edits must be applied one by one, every time to the result of the previous edit.
+ * Insertions at the same position are applied in the order they were added, which is the order sequential edits
+ * anchored at the end of the previous insertion (e.g. closing brace of a closure) would produce.
+ * 
+ * @author Adam Wyłuda
+ */
+public class SourceEditBatch
+{
+   private static class Edit
+   {
+      final int start;
+      final int end;
+      final String text;
+      // Appended at the end of source, after a new line if source doesn't end with one
+      final boolean append;
+      final boolean newLine;
+
+      Edit(int start, int end, String text, boolean append, boolean newLine)
+      {
+         this.start = start;
+         this.end = end;
+         this.text = text;
+         this.append = append;
+         this.newLine = newLine;
+      }
+
+      boolean isInsertion()
+      {
+         return start == end;
+      }
+   }
+
+   private final String source;
+   private SimpleGroovyParser parser;
+   private LineOffsetTable lines;
+
+   // Parser of the source before edits applied by previous batch, which is parsed again incrementally
+   private SimpleGroovyParser previousParser;
+   private int previousEditStart;
+   private int previousEditEnd;
+
+   private final List<Edit> edits = Lists.newArrayList();
+   private final List<int[]> guards = Lists.newArrayList();
+   private final Set<List<String>> createdPaths = Sets.newHashSet();
+   private boolean conflicting;
+
+   public SourceEditBatch(String source)
+   {
+      this.source = source;
+   }
+
+   public SourceEditBatch(SimpleGroovyParser parser)
+   {
+      this.source = parser.getSource();
+      this.parser = parser;
+      this.lines = parser.getLineOffsets();
+   }
+
+   /**
+    * Returns source the edits are computed against.
+    */
+   public String getSource()
+   {
+      return source;
+   }
+
+   /**
+    * Returns parse of the original source, it's created on first use.
+    */
+   public SimpleGroovyParser getParser()
+   {
+      if (parser == null)
+      {
+         if (previousParser != null)
+         {
+            String previousSource = previousParser.getSource();
+            String replacement = source.substring(previousEditStart,
+                     source.length() - (previousSource.length() - previousEditEnd));
+            parser = previousParser.reparse(previousEditStart, previousEditEnd, replacement);
+            previousParser = null;
+         }
+         else
+         {
+            parser = SimpleGroovyParser.fromSource(source);
+         }
+         lines = parser.getLineOffsets();
+      }
+      return parser;
+   }
+
+   public LineOffsetTable getLineOffsets()
+   {
+      if (lines == null)
+      {
+         lines = parser != null ? parser.getLineOffsets() : LineOffsetTable.of(source);
+      }
+      return lines;
+   }
+
+   public boolean isEmpty()
+   {
+      return edits.isEmpty();
+   }
+
+   public void insert(int position, String text)
+   {
+      replace(position, position, text);
+   }
+
+   public void replace(int start, int end, String text)
+   {
+      Preconditions.checkArgument(0 <= start && start <= end && end <= source.length(), "Invalid region");
+      edits.add(new Edit(start, end, text, false, false));
+   }
+
+   /**
+    * Removes given element.
+    * 
+    * @see SourceUtil#removeSourceFragment(String, SourceCodeElement)
+    */
+   public void remove(SourceCodeElement element)
+   {
+      replace(element, "");
+   }
+
+   /**
+    * Replaces given element with text.
+    */
+   public void replace(SourceCodeElement element, String text)
+   {
+      replace(start(element), end(element), text);
+   }
+
+   /**
+    * Replaces given element and surrounding whitespaces with a single new line character.
+    * 
+    * @see SourceUtil#removeSourceFragmentWithLine(String, int, int)
+    */
+   public void removeWithLine(SourceCodeElement element)
+   {
+      int start = start(element);
+      int end = end(element);
+
+      Matcher precedingMatcher = SourceUtil.PRECEDING_WHITESPACE_PATTERN.matcher(source.substring(0, start));
+      precedingMatcher.find();
+      Matcher succeedingMatcher = SourceUtil.SUCCEEDING_WHITESPACE_PATTERN.matcher(source.substring(end));
+      succeedingMatcher.find();
+
+      replace(start - precedingMatcher.group().length(), end + succeedingMatcher.group().length(), "\n");
+   }
+
+   /**
+    * Appends text at the end of source.
+    * 
+    * @param newLine If true then a new line is added before text unless source ends with one at that point.
+    */
+   public void append(String text, boolean newLine)
+   {
+      edits.add(new Edit(source.length(), source.length(), text, true, newLine));
+   }
+
+   /**
+    * Marks region of the original source which given edits rely on, edits of this region make the batch conflicting.
+    * Both ends are inclusive, so insertions at the ends also conflict.
+    */
+   public void guard(int start, int end)
+   {
+      guards.add(new int[] { start, end });
+   }
+
+   /**
+    * Marks that invocation path is created by an edit. Other insertions into this path would have to go into created
+    * invocation, which doesn't exist in the original source, so they make the batch conflicting.
+    */
+   public void createPath(String... path)
+   {
+      if (!createdPaths.add(Arrays.asList(path)))
+      {
+         conflicting = true;
+      }
+   }
+
+   /**
+    * Returns true if edits depend on each other and can't be applied together.
+    */
+   public boolean isConflicting()
+   {
+      if (conflicting)
+      {
+         return true;
+      }
+
+      List<Edit> sorted = sortedEdits();
+      for (int i = 1; i < sorted.size(); i++)
+      {
+         Edit previous = sorted.get(i - 1);
+         Edit edit = sorted.get(i);
+         if (edit.start < previous.end)
+         {
+            return true;
+         }
+         if (edit.start == previous.end && !(previous.isInsertion() && edit.isInsertion()))
+         {
+            return true;
+         }
+         // Only appends follow text appended before
+         if (edit.start == previous.start && previous.append && !edit.append)
+         {
+            return true;
+         }
+      }
+
+      for (int[] guard : guards)
+      {
+         for (Edit edit : edits)
+         {
+            if (edit.start <= guard[1] && edit.end >= guard[0])
+            {
+               return true;
+            }
+         }
+      }
+      return false;
+   }
+
+   /**
+    * Applies all edits in a single pass over the source.
+    * 
+    * @throws IllegalStateException If edits are conflicting.
+    */
+   public String apply()
+   {
+      if (isConflicting())
+      {
+         throw new IllegalStateException("Conflicting edits must be applied one by one");
+      }
+      if (edits.isEmpty())
+      {
+         return source;
+      }
+
+      int length = source.length();
+      for (Edit edit : edits)
+      {
+         length += edit.text.length() + 1;
+      }
+
+      StringBuilder result = new StringBuilder(length);
+      int position = 0;
+      for (Edit edit : sortedEdits())
+      {
+         result.append(source, position, edit.start);
+         if (edit.newLine && (result.length() == 0 || result.charAt(result.length() - 1) != '\n'))
+         {
+            result.append('\n');
+         }
+         result.append(edit.text);
+         position = edit.end;
+      }
+      result.append(source, position, source.length());
+      return result.toString();
+   }
+
+   /**
+    * Applies all edits and returns an empty batch for the result, which is used to make changes depending on these
+    * edits. Parser of the returned batch is derived from parser of this batch, so only the closure containing all
+    * edits is parsed again.
+    * 
+    * @see SimpleGroovyParser#reparse(int, int, String)
+    */
+   public SourceEditBatch next()
+   {
+      SourceEditBatch next = new SourceEditBatch(apply());
+      if (parser == null && previousParser == null)
+      {
+         return next;
+      }
+      if (edits.isEmpty())
+      {
+         next.parser = getParser();
+         next.lines = lines;
+      }
+      else
+      {
+         List<Edit> sorted = sortedEdits();
+         int end = 0;
+         for (Edit edit : sorted)
+         {
+            end = Math.max(end, edit.end);
+         }
+         next.previousParser = getParser();
+         next.previousEditStart = sorted.get(0).start;
+         next.previousEditEnd = end;
+      }
+      return next;
+   }
+
+   private List<Edit> sortedEdits()
+   {
+      Edit[] sorted = edits.toArray(new Edit[edits.size()]);
+      // Sort is stable, insertions at the same position keep their order
+      Arrays.sort(sorted, new Comparator<Edit>()
+      {
+         @Override
+         public int compare(Edit a, Edit b)
+         {
+            return Integer.compare(a.start, b.start);
+         }
+      });
+      return Collections.unmodifiableList(Arrays.asList(sorted));
+   }
+
+   private int start(SourceCodeElement element)
+   {
+      return getLineOffsets().positionOf(element.getLineNumber(), element.getColumnNumber());
+   }
+
+   private int end(SourceCodeElement element)
+   {
+      return getLineOffsets().positionOf(element.getLastLineNumber(), element.getLastColumnNumber());
+   }
+}
@@ -11,7 +11,6 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.gradle.internal.impldep.com.google.common.base.Optional;
-import org.gradle.internal.impldep.com.google.common.base.Preconditions;
 
 
 /**
@@ -32,7 +31,7 @@ public class SourceUtil
    public static String insertString(String source, String string, int lineNumber, int columnNumber)
    {
       int position = positionInSource(source, lineNumber, columnNumber);
-      return source.substring(0, position) + string + source.substring(position);
+      return insertString(source, string, position);
    }
 
    /**
@@ -50,29 +49,8 @@ public class SourceUtil
     */
    public static int positionInSource(String source, int lineNumber, int columnNumber)
    {
-      Preconditions.checkArgument(lineNumber >= 1, "Line number must be greater than 0");
-      Preconditions.checkArgument(columnNumber >= 1, "Column number must be greater than 0");
-
-      // Position is indexed from 1, arrays are indexed from 0, so we fix it
-      lineNumber--;
-      columnNumber--;
-
-      String[] sourceLines = source.split("\n");
-
-      Preconditions.checkArgument(lineNumber < sourceLines.length, "Given line number exceeds line count");
-      Preconditions.checkArgument(columnNumber <= sourceLines[lineNumber].length(),
-               "Given column number exceeds column count in line");
-
-      int precedingCharactersCount = 0;
-      for (int lineIndex = 0; lineIndex < lineNumber; lineIndex++)
-      {
-         // Add length of the line plus one, which counts for end line character
-         precedingCharactersCount += sourceLines[lineIndex].length() + 1;
-      }
-
-      // Position is sum of character count in preceding lines and given column number
-      int position = precedingCharactersCount + columnNumber;
-      return position;
+      // Callers which need more positions in the same source should keep the table
+      return LineOffsetTable.of(source).positionOf(lineNumber, columnNumber);
    }
 
    public static String removeSourceFragment(String source, SourceCodeElement element)
@@ -84,8 +62,9 @@ public class SourceUtil
    public static String removeSourceFragment(String source, int lineNumber, int columnNumber,
             int lastLineNumber, int lastColumnNumber)
    {
-      int beginningPosition = positionInSource(source, lineNumber, columnNumber);
-      int endingPosition = positionInSource(source, lastLineNumber, lastColumnNumber);
+      LineOffsetTable lines = LineOffsetTable.of(source);
+      int beginningPosition = lines.positionOf(lineNumber, columnNumber);
+      int endingPosition = lines.positionOf(lastLineNumber, lastColumnNumber);
       return removeSourceFragment(source, beginningPosition, endingPosition);
    }
 
@@ -109,8 +88,9 @@ public class SourceUtil
    public static String removeSourceFragmentWithLine(String source, int lineNumber, int columnNumber,
             int lastLineNumber, int lastColumnNumber)
    {
-      int beginningPosition = positionInSource(source, lineNumber, columnNumber);
-      int endingPosition = positionInSource(source, lastLineNumber, lastColumnNumber);
+      LineOffsetTable lines = LineOffsetTable.of(source);
+      int beginningPosition = lines.positionOf(lineNumber, columnNumber);
+      int endingPosition = lines.positionOf(lastLineNumber, lastColumnNumber);
       return removeSourceFragmentWithLine(source, beginningPosition, endingPosition);
    }
 
@@ -141,19 +121,33 @@ public class SourceUtil
     */
    public static String appendCodeToClosure(String source, InvocationWithClosure invocation, String codeToBeInserted)
    {
-      String sourceToInvocation = source.substring(0,
-               positionInSource(source, invocation.getLineNumber(), invocation.getColumnNumber()));
-      String invocationIndentation = sourceToInvocation.substring(sourceToInvocation.lastIndexOf("\n") + 1);
+      SourceEditBatch batch = new SourceEditBatch(source);
+      appendCodeToClosure(batch, invocation, codeToBeInserted);
+      return batch.apply();
+   }
+
+   /**
+    * Adds appending of given code as the last line of the closure to the batch.
+    */
+   public static void appendCodeToClosure(SourceEditBatch batch, InvocationWithClosure invocation,
+            String codeToBeInserted)
+   {
+      String source = batch.getSource();
+      LineOffsetTable lines = batch.getLineOffsets();
+      int invocationPosition = lines.positionOf(invocation.getLineNumber(), invocation.getColumnNumber());
+      int lineStart = source.lastIndexOf('\n', invocationPosition - 1) + 1;
+      String invocationIndentation = source.substring(lineStart, invocationPosition);
+      // Indentation of inserted code is taken from this region
+      batch.guard(lineStart, invocationPosition);
 
       String insertedCode = INDENT;
       insertedCode += indentCode(codeToBeInserted, invocationIndentation.length() + INDENT.length()).trim();
       insertedCode = addNewLineAtEnd(insertedCode);
       insertedCode += invocationIndentation;
 
-      return insertString(source,
-               insertedCode,
-               invocation.getLastLineNumber(),
-               fixClosureColumn(source, invocation.getLastLineNumber(), invocation.getLastColumnNumber()) - 1);
+      int lastColumnNumber = fixClosureColumn(source, lines, invocation.getLastLineNumber(),
+               invocation.getLastColumnNumber()) - 1;
+      batch.insert(lines.positionOf(invocation.getLastLineNumber(), lastColumnNumber), insertedCode);
    }
 
    /**
@@ -198,15 +192,26 @@ public class SourceUtil
     */
    public static String insertIntoInvocationAtPath(String source, String codeToBeInserted, String... path)
    {
-      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(source);
-      Optional<InvocationWithClosure> invocationOptional = parser.invocationWithClosureByName(path[0]);
+      SourceEditBatch batch = new SourceEditBatch(source);
+      insertIntoInvocationAtPath(batch, codeToBeInserted, path);
+      return batch.apply();
+   }
+
+   /**
+    * Adds insertion of given code at path to the batch.
+    * 
+    * @see #insertIntoInvocationAtPath(String, String, String...)
+    */
+   public static void insertIntoInvocationAtPath(SourceEditBatch batch, String codeToBeInserted, String... path)
+   {
+      Optional<InvocationWithClosure> invocationOptional = batch.getParser().invocationWithClosureByName(path[0]);
 
       // If the beginning of the path is not present then we append whole path at the end of the source
       if (!invocationOptional.isPresent())
       {
-         source = addNewLineAtEnd(source);
-         source += createInvocationPath(codeToBeInserted, path);
-         return source;
+         batch.createPath(path);
+         batch.append(createInvocationPath(codeToBeInserted, path), true);
+         return;
       }
 
       for (int level = 1; level < path.length; level++)
@@ -217,15 +222,14 @@ public class SourceUtil
          {
             String invocationPath = createInvocationPath(codeToBeInserted,
                      Arrays.copyOfRange(path, level, path.length));
-            source = appendCodeToClosure(source, previousInvocation, invocationPath);
-            return source;
+            batch.createPath(path);
+            appendCodeToClosure(batch, previousInvocation, invocationPath);
+            return;
          }
       }
 
       InvocationWithClosure invocation = invocationOptional.get();
-      source = appendCodeToClosure(source, invocation, codeToBeInserted);
-
-      return source;
+      appendCodeToClosure(batch, invocation, codeToBeInserted);
    }
 
    /**
@@ -291,7 +295,12 @@ public class SourceUtil
     */
    public static int fixClosureColumn(String code, int lineNumber, int columnNumber)
    {
-      String codeBefore = code.substring(0, positionInSource(code, lineNumber, columnNumber));
+      return fixClosureColumn(code, LineOffsetTable.of(code), lineNumber, columnNumber);
+   }
+
+   private static int fixClosureColumn(String code, LineOffsetTable lines, int lineNumber, int columnNumber)
+   {
+      String codeBefore = code.substring(0, lines.positionOf(lineNumber, columnNumber));
       Matcher matcher = PRECEDING_WHITESPACE_PATTERN.matcher(codeBefore);
       matcher.find();
       int whitespaces = matcher.group().length();
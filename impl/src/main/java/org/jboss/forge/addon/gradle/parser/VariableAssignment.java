@@ -25,6 +25,14 @@ public class VariableAssignment extends SourceCodeElement
       this.value = value;
    }
 
+   VariableAssignment(String source, int start, int end, String variable, String value,
+            int lineNumber, int columnNumber, int lastLineNumber, int lastColumnNumber)
+   {
+      super(source, start, end, lineNumber, columnNumber, lastLineNumber, lastColumnNumber);
+      this.variable = variable;
+      this.value = value;
+   }
+
    public String getVariable()
    {
       return variable;
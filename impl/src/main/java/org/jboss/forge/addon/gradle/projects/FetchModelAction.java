@@ -0,0 +1,33 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects;
+
+import org.gradle.tooling.BuildAction;
+import org.gradle.tooling.BuildController;
+
+/**
+ * Build action which fetches model of given type for the default project. It is run inside the Gradle build process.
+ * 
+ * @author Adam Wyłuda
+ */
+class FetchModelAction<T> implements BuildAction<T>
+{
+   private static final long serialVersionUID = 1L;
+
+   private final Class<T> modelType;
+
+   FetchModelAction(Class<T> modelType)
+   {
+      this.modelType = modelType;
+   }
+
+   @Override
+   public T execute(BuildController controller)
+   {
+      return controller.getModel(modelType);
+   }
+}
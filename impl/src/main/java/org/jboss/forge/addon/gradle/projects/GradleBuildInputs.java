@@ -0,0 +1,339 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.gradle.internal.impldep.com.google.common.collect.Lists;
+import org.jboss.forge.addon.gradle.parser.GradleSourceUtil;
+import org.jboss.forge.furnace.util.Strings;
+
+/**
+ * Files which determine the evaluated Gradle model of a project: build script, profile scripts, settings and
+ * properties of the project and its root project, buildSrc of the root project and Gradle wrapper configuration.
+ * 
+ * @author Adam Wyłuda
+ */
+public class GradleBuildInputs
+{
+   public static final String BUILD_SCRIPT = "build.gradle";
+   public static final String SETTINGS_SCRIPT = "settings.gradle";
+   public static final String PROPERTIES_FILE = "gradle.properties";
+   public static final String BUILD_SRC_DIRECTORY = "buildSrc";
+   public static final String WRAPPER_PROPERTIES = "gradle/wrapper/gradle-wrapper.properties";
+
+   private static final List<String> IGNORED_BUILD_SRC_DIRECTORIES = Arrays.asList("build", ".gradle");
+   private static final String GRADLE_LIBRARY_DIRECTORY = "lib";
+   // Version must follow immediately, newer Gradle versions have also gradle-core-api library
+   private static final Pattern GRADLE_CORE_LIBRARY = Pattern.compile("gradle-core-(\\d.*)\\.jar");
+
+   private GradleBuildInputs()
+   {
+   }
+
+   /**
+    * Finds root project directory of a project, which is the closest directory containing settings.gradle, starting
+    * from the project directory itself. If there is no such directory, the project is its own root.
+    */
+   public static File rootProjectDirectory(File projectDirectory)
+   {
+      File directory = normalize(projectDirectory);
+      for (File current = directory; current != null; current = current.getParentFile())
+      {
+         if (new File(current, SETTINGS_SCRIPT).isFile())
+         {
+            return current;
+         }
+      }
+      return directory;
+   }
+
+   /**
+    * Returns build input files of given project. Files which may be created later (like settings.gradle) are included
+    * even if they don't exist.
+    */
+   public static List<File> files(File projectDirectory)
+   {
+      File directory = normalize(projectDirectory);
+      File rootDirectory = rootProjectDirectory(directory);
+
+      List<File> files = Lists.newArrayList();
+      files.add(new File(directory, BUILD_SCRIPT));
+      files.add(new File(directory, PROPERTIES_FILE));
+      files.addAll(profileScripts(directory));
+      if (!rootDirectory.equals(directory))
+      {
+         files.add(new File(rootDirectory, BUILD_SCRIPT));
+         files.add(new File(rootDirectory, PROPERTIES_FILE));
+      }
+      files.add(new File(rootDirectory, SETTINGS_SCRIPT));
+      files.add(new File(rootDirectory, WRAPPER_PROPERTIES));
+      collectFiles(new File(rootDirectory, BUILD_SRC_DIRECTORY), files);
+      return files;
+   }
+
+   /**
+    * Returns directories which contain build input files of given project, including buildSrc directories.
+    */
+   public static List<File> directories(File projectDirectory)
+   {
+      File directory = normalize(projectDirectory);
+      File rootDirectory = rootProjectDirectory(directory);
+
+      List<File> directories = Lists.newArrayList();
+      directories.add(directory);
+      if (!rootDirectory.equals(directory))
+      {
+         directories.add(rootDirectory);
+      }
+      directories.add(new File(rootDirectory, WRAPPER_PROPERTIES).getParentFile());
+      collectDirectories(new File(rootDirectory, BUILD_SRC_DIRECTORY), directories);
+      return directories;
+   }
+
+   /**
+    * Returns true if given file (or directory) is one of the build inputs of given project.
+    */
+   public static boolean isBuildInput(File projectDirectory, File file)
+   {
+      File normalized = normalize(file);
+      // Profile script may have been deleted already
+      if (normalized.getName().endsWith(GradleSourceUtil.PROFILE_SUFFIX)
+               && normalize(projectDirectory).equals(normalized.getParentFile()))
+      {
+         return true;
+      }
+      if (files(projectDirectory).contains(normalized))
+      {
+         return true;
+      }
+      File buildSrc = new File(rootProjectDirectory(projectDirectory), BUILD_SRC_DIRECTORY);
+      return normalized.toPath().startsWith(buildSrc.toPath());
+   }
+
+   /**
+    * Computes SHA-256 fingerprint of build inputs of given project, together with version of Gradle installation and
+    * the Forge output library which is used to evaluate the model.
+    */
+   public static String fingerprint(File projectDirectory)
+   {
+      File directory = normalize(projectDirectory);
+      MessageDigest digest = sha256();
+
+      for (File file : files(directory))
+      {
+         update(digest, file.getPath());
+         if (file.isFile())
+         {
+            try (InputStream input = new FileInputStream(file))
+            {
+               update(digest, input);
+            }
+            catch (IOException e)
+            {
+               // File changed while it was being read, fingerprint won't match any stored one
+               update(digest, "unreadable:" + System.nanoTime());
+            }
+         }
+         else
+         {
+            update(digest, "missing");
+         }
+      }
+
+      // Gradle version of projects without wrapper is given by the installation, which may be upgraded in place
+      String gradleHome = System.getenv("GRADLE_HOME");
+      if (!Strings.isNullOrEmpty(gradleHome))
+      {
+         update(digest, "GRADLE_HOME=" + gradleHome);
+         update(digest, "GRADLE_VERSION=" + gradleVersion(new File(gradleHome)));
+      }
+
+      try (InputStream input = GradleBuildInputs.class
+               .getResourceAsStream(GradleSourceUtil.FORGE_OUTPUT_LIBRARY_RESOURCE))
+      {
+         if (input != null)
+         {
+            update(digest, input);
+         }
+      }
+      catch (IOException e)
+      {
+         throw new IllegalStateException("Could not read Forge output library", e);
+      }
+
+      return toHex(digest.digest());
+   }
+
+   /**
+    * Reads version of Gradle installation from the name of its core library, e.g. {@code lib/gradle-core-2.0.jar}.
+    * If there is no such library, names of all libraries of the installation are returned instead, so that they
+    * still change with the version.
+    */
+   static String gradleVersion(File gradleHome)
+   {
+      File[] libraries = new File(gradleHome, GRADLE_LIBRARY_DIRECTORY).listFiles();
+      if (libraries == null)
+      {
+         return "";
+      }
+      List<String> names = Lists.newArrayList();
+      for (File library : libraries)
+      {
+         Matcher matcher = GRADLE_CORE_LIBRARY.matcher(library.getName());
+         if (matcher.matches())
+         {
+            return matcher.group(1);
+         }
+         names.add(library.getName());
+      }
+      Collections.sort(names);
+      return names.toString();
+   }
+
+   static String sha256(String value)
+   {
+      MessageDigest digest = sha256();
+      update(digest, value);
+      return toHex(digest.digest());
+   }
+
+   private static List<File> profileScripts(File directory)
+   {
+      List<File> scripts = Lists.newArrayList();
+      File[] children = directory.listFiles();
+      if (children != null)
+      {
+         for (File child : children)
+         {
+            if (child.isFile() && child.getName().endsWith(GradleSourceUtil.PROFILE_SUFFIX))
+            {
+               scripts.add(child);
+            }
+         }
+      }
+      // Listing order depends on the file system
+      sortByPath(scripts);
+      return scripts;
+   }
+
+   private static void collectFiles(File directory, List<File> files)
+   {
+      File[] children = directory.listFiles();
+      if (children == null)
+      {
+         return;
+      }
+      List<File> sorted = Lists.newArrayList(children);
+      sortByPath(sorted);
+      for (File child : sorted)
+      {
+         if (child.isDirectory())
+         {
+            if (!IGNORED_BUILD_SRC_DIRECTORIES.contains(child.getName()))
+            {
+               collectFiles(child, files);
+            }
+         }
+         else
+         {
+            files.add(child);
+         }
+      }
+   }
+
+   private static void collectDirectories(File directory, List<File> directories)
+   {
+      if (!directory.isDirectory())
+      {
+         return;
+      }
+      directories.add(directory);
+      File[] children = directory.listFiles();
+      if (children != null)
+      {
+         for (File child : children)
+         {
+            if (child.isDirectory() && !IGNORED_BUILD_SRC_DIRECTORIES.contains(child.getName()))
+            {
+               collectDirectories(child, directories);
+            }
+         }
+      }
+   }
+
+   private static void sortByPath(List<File> files)
+   {
+      Collections.sort(files, new Comparator<File>()
+      {
+         @Override
+         public int compare(File a, File b)
+         {
+            return a.getPath().compareTo(b.getPath());
+         }
+      });
+   }
+
+   private static File normalize(File file)
+   {
+      return file.getAbsoluteFile().toPath().normalize().toFile();
+   }
+
+   private static MessageDigest sha256()
+   {
+      try
+      {
+         return MessageDigest.getInstance("SHA-256");
+      }
+      catch (NoSuchAlgorithmException e)
+      {
+         throw new IllegalStateException("SHA-256 is not available", e);
+      }
+   }
+
+   private static void update(MessageDigest digest, String value)
+   {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      digest.update(bytes);
+      // Separator, so that consecutive values can't be confused
+      digest.update((byte) 0);
+   }
+
+   private static void update(MessageDigest digest, InputStream input) throws IOException
+   {
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = input.read(buffer)) != -1)
+      {
+         digest.update(buffer, 0, read);
+      }
+      digest.update((byte) 0);
+   }
+
+   private static String toHex(byte[] bytes)
+   {
+      StringBuilder builder = new StringBuilder(bytes.length * 2);
+      for (byte b : bytes)
+      {
+         builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+         builder.append(Character.forDigit(b & 0xF, 16));
+      }
+      return builder.toString();
+   }
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.enterprise.event.Observes;
+import javax.inject.Singleton;
+
+import org.gradle.internal.impldep.com.google.common.collect.Maps;
+import org.gradle.internal.impldep.com.google.common.collect.Sets;
+import org.jboss.forge.furnace.container.cdi.events.Local;
+import org.jboss.forge.furnace.event.PreShutdown;
+
+/**
+ * Watches build inputs ({@link GradleBuildInputs}) of registered projects for changes.
+ * <p/>
+ * Every watched project has a generation number which is incremented whenever one of its build inputs is created,
+ * modified or deleted. Holders of a cached model remember the generation it was loaded at, and only need to check
+ * the build inputs again when the generation has changed, unless the file system is watched by polling (see
+ * {@link #isPolling()}).
+ * 
+ * @author Adam Wyłuda
+ */
+@Singleton
+public class GradleBuildInputsWatcher
+{
+   private static final Logger LOG = Logger.getLogger(GradleBuildInputsWatcher.class.getName());
+   private static final String POLLING_WATCH_SERVICE = "sun.nio.fs.PollingWatchService";
+   private static final WatchEvent.Kind<?>[] EVENT_KINDS = { ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE };
+   // Shortens polling interval of polling watch services, other watch services ignore it
+   private static final WatchEvent.Modifier[] EVENT_MODIFIERS = highSensitivityModifiers();
+
+   private final Map<File, Long> generations = Maps.newHashMap();
+   private final Map<WatchKey, Path> watchedDirectories = Maps.newHashMap();
+   private final Set<Path> registeredDirectories = Sets.newHashSet();
+   private WatchService watchService;
+   private boolean shutdown;
+
+   /**
+    * Starts watching build inputs of given project. Does nothing if the project is already watched.
+    * 
+    * @return True if the project is watched, false if the file system doesn't support watching.
+    */
+   public synchronized boolean watch(File projectDirectory)
+   {
+      File directory = normalize(projectDirectory);
+      if (generations.containsKey(directory))
+      {
+         return true;
+      }
+      if (shutdown)
+      {
+         return false;
+      }
+
+      try
+      {
+         if (watchService == null)
+         {
+            watchService = FileSystems.getDefault().newWatchService();
+            startWatching(watchService);
+         }
+         for (File inputDirectory : GradleBuildInputs.directories(directory))
+         {
+            register(inputDirectory.toPath());
+         }
+         generations.put(directory, 0L);
+         return true;
+      }
+      catch (IOException | UnsupportedOperationException e)
+      {
+         LOG.log(Level.FINE, "Could not watch build inputs of " + directory, e);
+         return false;
+      }
+   }
+
+   /**
+    * Returns true if build inputs of given project are watched.
+    */
+   public synchronized boolean isWatched(File projectDirectory)
+   {
+      return generations.containsKey(normalize(projectDirectory));
+   }
+
+   /**
+    * Returns true if the file system is watched by polling, so changes are detected with a delay of a few seconds.
+    * Holders of a cached model must then check the build inputs on every access.
+    */
+   public synchronized boolean isPolling()
+   {
+      return watchService != null && watchService.getClass().getName().equals(POLLING_WATCH_SERVICE);
+   }
+
+   /**
+    * Returns number of detected changes of build inputs of given project, or -1 if the project isn't watched.
+    */
+   public synchronized long getGeneration(File projectDirectory)
+   {
+      Long generation = generations.get(normalize(projectDirectory));
+      return generation != null ? generation : -1;
+   }
+
+   /**
+    * Stops watching when the addon is stopped.
+    */
+   public synchronized void shutdown(@Observes @Local PreShutdown event)
+   {
+      shutdown = true;
+      generations.clear();
+      watchedDirectories.clear();
+      registeredDirectories.clear();
+      if (watchService != null)
+      {
+         try
+         {
+            watchService.close();
+         }
+         catch (IOException e)
+         {
+            LOG.log(Level.FINE, "Could not close watch service", e);
+         }
+         watchService = null;
+      }
+   }
+
+   /**
+    * Records change of given file (or of an unknown file in given directory if the event queue overflowed).
+    */
+   synchronized void changed(Path directory, Path file)
+   {
+      for (Map.Entry<File, Long> entry : generations.entrySet())
+      {
+         File projectDirectory = entry.getKey();
+         boolean affected = file != null
+                  ? GradleBuildInputs.isBuildInput(projectDirectory, file.toFile())
+                  : GradleBuildInputs.directories(projectDirectory).contains(directory.toFile());
+         if (affected)
+         {
+            entry.setValue(entry.getValue() + 1);
+         }
+      }
+
+      // New directories in buildSrc must be watched too
+      if (file != null && file.toFile().isDirectory())
+      {
+         for (File projectDirectory : generations.keySet())
+         {
+            for (File inputDirectory : GradleBuildInputs.directories(projectDirectory))
+            {
+               try
+               {
+                  register(inputDirectory.toPath());
+               }
+               catch (IOException e)
+               {
+                  LOG.log(Level.FINE, "Could not watch " + inputDirectory, e);
+               }
+            }
+         }
+      }
+   }
+
+   private void register(Path directory) throws IOException
+   {
+      // Directories which don't exist yet (like buildSrc) are watched through their parent
+      if (directory.toFile().isDirectory() && registeredDirectories.add(directory))
+      {
+         WatchKey key;
+         try
+         {
+            key = directory.register(watchService, EVENT_KINDS, EVENT_MODIFIERS);
+         }
+         catch (UnsupportedOperationException e)
+         {
+            key = directory.register(watchService, EVENT_KINDS);
+         }
+         watchedDirectories.put(key, directory);
+      }
+   }
+
+   private void startWatching(final WatchService service)
+   {
+      Thread thread = new Thread(new Runnable()
+      {
+         @Override
+         public void run()
+         {
+            try
+            {
+               while (true)
+               {
+                  WatchKey key = service.take();
+                  Path directory;
+                  synchronized (GradleBuildInputsWatcher.this)
+                  {
+                     directory = watchedDirectories.get(key);
+                  }
+                  if (directory != null)
+                  {
+                     for (WatchEvent<?> event : key.pollEvents())
+                     {
+                        changed(directory, event.kind() == OVERFLOW ? null
+                                 : directory.resolve((Path) event.context()));
+                     }
+                  }
+                  if (!key.reset())
+                  {
+                     synchronized (GradleBuildInputsWatcher.this)
+                     {
+                        watchedDirectories.remove(key);
+                        registeredDirectories.remove(directory);
+                     }
+                  }
+               }
+            }
+            catch (InterruptedException | ClosedWatchServiceException e)
+            {
+               // Watcher was shut down
+            }
+         }
+      }, "Gradle build inputs watcher");
+      thread.setDaemon(true);
+      thread.start();
+   }
+
+   private static WatchEvent.Modifier[] highSensitivityModifiers()
+   {
+      try
+      {
+         // JDK specific modifier, which isn't available on every platform
+         Class<?> sensitivity = Class.forName("com.sun.nio.file.SensitivityWatchEventModifier");
+         return new WatchEvent.Modifier[] { (WatchEvent.Modifier) sensitivity.getField("HIGH").get(null) };
+      }
+      catch (ReflectiveOperationException | ClassCastException e)
+      {
+         return new WatchEvent.Modifier[0];
+      }
+   }
+
+   private static File normalize(File file)
+   {
+      return file.getAbsoluteFile().toPath().normalize().toFile();
+   }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import org.gradle.internal.impldep.com.google.common.base.Preconditions;
+import org.gradle.internal.impldep.com.google.common.collect.Lists;
+import org.gradle.internal.impldep.com.google.common.collect.Sets;
+
+/**
+ * Schedules Gradle invocations, so that at most {@link #getMaxConcurrentBuilds()} of them run at the same time and
+ * invocations on the same root project never run concurrently (they would share build directories and caches).
+ * <p/>
+ * Invocations are started in submission order, except that an invocation whose root project is busy doesn't hold back
+ * invocations on other root projects. Scheduling never blocks the calling thread.
+ * 
+ * @author Adam Wyłuda
+ */
+public class GradleBuildScheduler
+{
+   /**
+    * System property which overrides the default limit of concurrently running Gradle invocations.
+    */
+   public static final String MAX_CONCURRENT_BUILDS_PROPERTY = "org.jboss.forge.addon.gradle.maxConcurrentBuilds";
+
+   private class Job<T>
+   {
+      private final File rootProjectDirectory;
+      private final Supplier<CompletableFuture<T>> invocation;
+      private final CompletableFuture<T> result = new CompletableFuture<>();
+      private final long queuedAt = currentTimeMillis();
+
+      Job(File rootProjectDirectory, Supplier<CompletableFuture<T>> invocation)
+      {
+         this.rootProjectDirectory = rootProjectDirectory;
+         this.invocation = invocation;
+      }
+
+      void start()
+      {
+         CompletableFuture<T> future;
+         try
+         {
+            future = invocation.get();
+         }
+         catch (RuntimeException e)
+         {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+         }
+         future.whenComplete(new BiConsumer<T, Throwable>()
+         {
+            @Override
+            public void accept(T value, Throwable failure)
+            {
+               finished(Job.this);
+               if (failure != null)
+               {
+                  result.completeExceptionally(failure);
+               }
+               else
+               {
+                  result.complete(value);
+               }
+            }
+         });
+      }
+   }
+
+   private final int maxConcurrentBuilds;
+
+   private final LinkedList<Job<?>> queue = Lists.newLinkedList();
+   private final Set<File> busyRootProjects = Sets.newHashSet();
+   private int runningBuilds;
+   private long startedBuilds;
+   private long totalWaitTimeMillis;
+   private long maxWaitTimeMillis;
+
+   public GradleBuildScheduler()
+   {
+      this(Integer.getInteger(MAX_CONCURRENT_BUILDS_PROPERTY, Runtime.getRuntime().availableProcessors()));
+   }
+
+   public GradleBuildScheduler(int maxConcurrentBuilds)
+   {
+      Preconditions.checkArgument(maxConcurrentBuilds > 0, "Maximum number of concurrent builds must be greater than 0");
+      this.maxConcurrentBuilds = maxConcurrentBuilds;
+   }
+
+   /**
+    * Queues Gradle invocation on given project. Invocation is started (on the calling thread or on the thread which
+    * finished the previous invocation) as soon as there is a free slot and no other invocation runs on the same root
+    * project.
+    * 
+    * @param invocation Starts Gradle invocation and returns future which completes when the invocation finishes.
+    * @return Future completed with the result of the invocation.
+    */
+   public <T> CompletableFuture<T> schedule(File projectDirectory, Supplier<CompletableFuture<T>> invocation)
+   {
+      Job<T> job = new Job<>(GradleBuildInputs.rootProjectDirectory(projectDirectory), invocation);
+      synchronized (this)
+      {
+         queue.add(job);
+      }
+      startReadyJobs();
+      return job.result;
+   }
+
+   /**
+    * Returns number of invocations which wait for a free slot or for their root project.
+    */
+   public synchronized int getQueueDepth()
+   {
+      return queue.size();
+   }
+
+   public synchronized int getRunningBuilds()
+   {
+      return runningBuilds;
+   }
+
+   public synchronized BuildQueueStatistics getStatistics()
+   {
+      return new BuildQueueStatistics(queue.size(), runningBuilds, startedBuilds, totalWaitTimeMillis,
+               maxWaitTimeMillis);
+   }
+
+   public int getMaxConcurrentBuilds()
+   {
+      return maxConcurrentBuilds;
+   }
+
+   long currentTimeMillis()
+   {
+      return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+   }
+
+   private void startReadyJobs()
+   {
+      // Jobs are started outside of the lock, because starting one may take a while
+      for (Job<?> job : takeReadyJobs())
+      {
+         job.start();
+      }
+   }
+
+   private synchronized List<Job<?>> takeReadyJobs()
+   {
+      List<Job<?>> ready = Lists.newArrayList();
+      long now = currentTimeMillis();
+      Iterator<Job<?>> iterator = queue.iterator();
+      while (runningBuilds < maxConcurrentBuilds && iterator.hasNext())
+      {
+         Job<?> job = iterator.next();
+         if (busyRootProjects.add(job.rootProjectDirectory))
+         {
+            iterator.remove();
+            runningBuilds++;
+            startedBuilds++;
+            long waitTime = now - job.queuedAt;
+            totalWaitTimeMillis += waitTime;
+            maxWaitTimeMillis = Math.max(maxWaitTimeMillis, waitTime);
+            ready.add(job);
+         }
+      }
+      return ready;
+   }
+
+   private void finished(Job<?> job)
+   {
+      synchronized (this)
+      {
+         runningBuilds--;
+         busyRootProjects.remove(job.rootProjectDirectory);
+      }
+      startReadyJobs();
+   }
+}
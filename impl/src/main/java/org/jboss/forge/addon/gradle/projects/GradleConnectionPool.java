@@ -0,0 +1,288 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.gradle.internal.impldep.com.google.common.base.Preconditions;
+import org.gradle.tooling.GradleConnector;
+import org.gradle.tooling.ProjectConnection;
+
+/**
+ * Keeps Tooling API connections open between builds, so that each Gradle invocation on the same project doesn't have
+ * to pay connection setup again.
+ * <p/>
+ * Connections are keyed by project directory and Gradle installation. A connection which wasn't used for
+ * {@link #getIdleTimeoutMillis()} is closed by a background sweep. When the pool is full, the least recently used idle
+ * connection is closed to make room for a new one; connections which are currently in use are never closed, so the
+ * pool may temporarily grow over its maximum size.
+ * 
+ * @author Adam Wyłuda
+ */
+public class GradleConnectionPool
+{
+   public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+   public static final int DEFAULT_MAX_SIZE = 8;
+
+   private static final Logger LOG = Logger.getLogger(GradleConnectionPool.class.getName());
+
+   /**
+    * Opens new connections for the pool.
+    */
+   interface ConnectionFactory
+   {
+      ProjectConnection connect(File projectDirectory, File gradleHome);
+   }
+
+   private static class Key
+   {
+      private final File projectDirectory;
+      private final File gradleHome;
+
+      Key(File projectDirectory, File gradleHome)
+      {
+         this.projectDirectory = normalize(projectDirectory);
+         this.gradleHome = gradleHome != null ? normalize(gradleHome) : null;
+      }
+
+      private static File normalize(File file)
+      {
+         return file.getAbsoluteFile().toPath().normalize().toFile();
+      }
+
+      @Override
+      public int hashCode()
+      {
+         return 31 * projectDirectory.hashCode() + (gradleHome != null ? gradleHome.hashCode() : 0);
+      }
+
+      @Override
+      public boolean equals(Object obj)
+      {
+         if (!(obj instanceof Key))
+         {
+            return false;
+         }
+         Key other = (Key) obj;
+         return projectDirectory.equals(other.projectDirectory) &&
+                  (gradleHome == null ? other.gradleHome == null : gradleHome.equals(other.gradleHome));
+      }
+   }
+
+   private static class PooledConnection
+   {
+      private final ProjectConnection connection;
+      private int leases;
+      private long lastUsed;
+
+      PooledConnection(ProjectConnection connection, long now)
+      {
+         this.connection = connection;
+         this.lastUsed = now;
+      }
+   }
+
+   private final ConnectionFactory factory;
+   private final long idleTimeoutMillis;
+   private final int maxSize;
+
+   // Access ordered, so iteration starts from the least recently used connection
+   private final Map<Key, PooledConnection> connections = new LinkedHashMap<>(16, 0.75f, true);
+   private ScheduledExecutorService evictor;
+   private boolean shutdown;
+
+   public GradleConnectionPool()
+   {
+      this(DEFAULT_IDLE_TIMEOUT_MILLIS, DEFAULT_MAX_SIZE);
+   }
+
+   public GradleConnectionPool(long idleTimeoutMillis, int maxSize)
+   {
+      this(new ConnectionFactory()
+      {
+         @Override
+         public ProjectConnection connect(File projectDirectory, File gradleHome)
+         {
+            GradleConnector connector = GradleConnector.newConnector()
+                     .forProjectDirectory(projectDirectory);
+            if (gradleHome != null)
+            {
+               connector = connector.useInstallation(gradleHome);
+            }
+            return connector.connect();
+         }
+      }, idleTimeoutMillis, maxSize);
+   }
+
+   GradleConnectionPool(ConnectionFactory factory, long idleTimeoutMillis, int maxSize)
+   {
+      Preconditions.checkArgument(idleTimeoutMillis > 0, "Idle timeout must be greater than 0");
+      Preconditions.checkArgument(maxSize > 0, "Maximum pool size must be greater than 0");
+
+      this.factory = factory;
+      this.idleTimeoutMillis = idleTimeoutMillis;
+      this.maxSize = maxSize;
+   }
+
+   /**
+    * Returns connection for given project directory and Gradle installation, opening a new one if necessary. Every
+    * acquired connection must be returned to the pool by {@link #release(File, File)}.
+    * 
+    * @param gradleHome Gradle installation directory, or null to use the default distribution of the project.
+    */
+   public synchronized ProjectConnection acquire(File projectDirectory, File gradleHome)
+   {
+      Preconditions.checkState(!shutdown, "Connection pool has been shut down");
+
+      long now = currentTimeMillis();
+      Key key = new Key(projectDirectory, gradleHome);
+      PooledConnection pooled = connections.get(key);
+      if (pooled == null)
+      {
+         makeRoom();
+         pooled = new PooledConnection(factory.connect(key.projectDirectory, key.gradleHome), now);
+         connections.put(key, pooled);
+         startEvictor();
+      }
+      pooled.leases++;
+      pooled.lastUsed = now;
+      return pooled.connection;
+   }
+
+   /**
+    * Returns connection acquired by {@link #acquire(File, File)} back to the pool.
+    */
+   public synchronized void release(File projectDirectory, File gradleHome)
+   {
+      PooledConnection pooled = connections.get(new Key(projectDirectory, gradleHome));
+      if (pooled != null && pooled.leases > 0)
+      {
+         pooled.leases--;
+         pooled.lastUsed = currentTimeMillis();
+      }
+   }
+
+   /**
+    * Closes all connections which are not in use and weren't used for longer than idle timeout.
+    */
+   public synchronized void evictIdleConnections()
+   {
+      evictIdleConnections(currentTimeMillis());
+   }
+
+   synchronized void evictIdleConnections(long now)
+   {
+      Iterator<PooledConnection> iterator = connections.values().iterator();
+      while (iterator.hasNext())
+      {
+         PooledConnection pooled = iterator.next();
+         if (pooled.leases == 0 && now - pooled.lastUsed >= idleTimeoutMillis)
+         {
+            iterator.remove();
+            close(pooled);
+         }
+      }
+   }
+
+   /**
+    * Closes all pooled connections. Pool can't be used after shutdown.
+    */
+   public synchronized void shutdown()
+   {
+      shutdown = true;
+      if (evictor != null)
+      {
+         evictor.shutdownNow();
+         evictor = null;
+      }
+      for (PooledConnection pooled : connections.values())
+      {
+         close(pooled);
+      }
+      connections.clear();
+   }
+
+   public synchronized int size()
+   {
+      return connections.size();
+   }
+
+   public long getIdleTimeoutMillis()
+   {
+      return idleTimeoutMillis;
+   }
+
+   public int getMaxSize()
+   {
+      return maxSize;
+   }
+
+   long currentTimeMillis()
+   {
+      return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+   }
+
+   private void makeRoom()
+   {
+      Iterator<PooledConnection> iterator = connections.values().iterator();
+      while (connections.size() >= maxSize && iterator.hasNext())
+      {
+         PooledConnection pooled = iterator.next();
+         if (pooled.leases == 0)
+         {
+            iterator.remove();
+            close(pooled);
+         }
+      }
+   }
+
+   private void startEvictor()
+   {
+      if (evictor == null)
+      {
+         evictor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+         {
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+               Thread thread = new Thread(runnable, "Gradle connection pool evictor");
+               thread.setDaemon(true);
+               return thread;
+            }
+         });
+         evictor.scheduleWithFixedDelay(new Runnable()
+         {
+            @Override
+            public void run()
+            {
+               evictIdleConnections();
+            }
+         }, idleTimeoutMillis, idleTimeoutMillis, TimeUnit.MILLISECONDS);
+      }
+   }
+
+   private void close(PooledConnection pooled)
+   {
+      try
+      {
+         pooled.connection.close();
+      }
+      catch (RuntimeException e)
+      {
+         LOG.log(Level.FINE, "Could not close Gradle connection", e);
+      }
+   }
+}
@@ -7,98 +7,365 @@
 package org.jboss.forge.addon.gradle.projects;
 
 import java.io.File;
-import java.io.IOException;
 import java.io.OutputStream;
-import java.io.PrintStream;
 import java.util.List;
-import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import javax.enterprise.event.Observes;
+import javax.inject.Singleton;
 
 import org.gradle.internal.impldep.com.google.common.collect.Lists;
+import org.gradle.tooling.BuildActionExecuter;
+import org.gradle.tooling.BuildCancelledException;
 import org.gradle.tooling.BuildLauncher;
+import org.gradle.tooling.CancellationToken;
+import org.gradle.tooling.CancellationTokenSource;
 import org.gradle.tooling.GradleConnectionException;
 import org.gradle.tooling.GradleConnector;
+import org.gradle.tooling.IntermediateResultHandler;
+import org.gradle.tooling.LongRunningOperation;
+import org.gradle.tooling.ModelBuilder;
 import org.gradle.tooling.ProjectConnection;
 import org.gradle.tooling.ResultHandler;
+import org.jboss.forge.furnace.container.cdi.events.Local;
+import org.jboss.forge.furnace.event.PreShutdown;
 import org.jboss.forge.furnace.util.Strings;
 
 /**
  * @author Adam Wyłuda
  */
+@Singleton
 public class GradleManagerImpl implements GradleManager
 {
-   private static class ResultHolder
+   private static final OutputStream DISCARD = new OutputStream()
    {
-      private volatile boolean result;
-   }
+      @Override
+      public void write(int b)
+      {
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len)
+      {
+      }
+   };
+
+   private final GradleConnectionPool connectionPool = new GradleConnectionPool();
+   private final GradleBuildScheduler scheduler = new GradleBuildScheduler();
 
    @Override
    public boolean runGradleBuild(String directory, String task, String profile, String... arguments)
    {
-      String gradleHome = System.getenv("GRADLE_HOME");
+      return runGradleBuild(directory, task, profile, null, null, arguments);
+   }
 
-      GradleConnector connector = GradleConnector.newConnector()
-               .forProjectDirectory(new File(directory));
-      if (!Strings.isNullOrEmpty(gradleHome))
+   @Override
+   public boolean runGradleBuild(String directory, String task, String profile, OutputStream out, OutputStream err,
+            String... arguments)
+   {
+      CancellationTokenSource cancellationTokenSource = GradleConnector.newCancellationTokenSource();
+      try
       {
-         connector = connector.useInstallation(new File(gradleHome));
+         return runGradleBuildAsync(directory, task, profile, cancellationTokenSource.token(), out, err, arguments)
+                  .get().isSuccess();
       }
+      catch (InterruptedException e)
+      {
+         cancellationTokenSource.cancel();
+         Thread.currentThread().interrupt();
+         return false;
+      }
+      catch (ExecutionException e)
+      {
+         return false;
+      }
+   }
+
+   @Override
+   public CompletableFuture<BuildOutcome> runGradleBuildAsync(final String directory, final String task,
+            final String profile, final CancellationToken cancellationToken, final OutputStream out,
+            final OutputStream err, final String... arguments)
+   {
+      return scheduler.schedule(new File(directory), new Supplier<CompletableFuture<BuildOutcome>>()
+      {
+         @Override
+         public CompletableFuture<BuildOutcome> get()
+         {
+            return startGradleBuild(directory, task, profile, cancellationToken, out, err, arguments);
+         }
+      });
+   }
 
-      ProjectConnection connection = connector.connect();
+   private CompletableFuture<BuildOutcome> startGradleBuild(String directory, String task, String profile,
+            CancellationToken cancellationToken, OutputStream out, OutputStream err, String... arguments)
+   {
+      final File projectDirectory = new File(directory);
+      final File gradleHome = gradleHome();
+      final CompletableFuture<BuildOutcome> future = new CompletableFuture<>();
 
-      BuildLauncher launcher = connection.newBuild().forTasks(task);
+      ProjectConnection connection = connectionPool.acquire(projectDirectory, gradleHome);
+      try
+      {
+         BuildLauncher launcher = connection.newBuild()
+                  .forTasks(task)
+                  .withArguments(buildArguments(profile, arguments));
+         routeOutput(launcher, out, err);
 
-      List<String> argList = Lists.newArrayList(arguments);
+         if (cancellationToken != null)
+         {
+            launcher = launcher.withCancellationToken(cancellationToken);
+         }
 
-      if (!Strings.isNullOrEmpty(profile))
+         launcher.run(new ResultHandler<Object>()
+         {
+            @Override
+            public void onComplete(Object result)
+            {
+               connectionPool.release(projectDirectory, gradleHome);
+               future.complete(BuildOutcome.success());
+            }
+
+            @Override
+            public void onFailure(GradleConnectionException failure)
+            {
+               connectionPool.release(projectDirectory, gradleHome);
+               future.complete(failure instanceof BuildCancelledException
+                        ? BuildOutcome.cancelled(failure)
+                        : BuildOutcome.failure(failure));
+            }
+         });
+      }
+      catch (RuntimeException e)
       {
-         argList.add("-Pprofile=" + profile);
+         connectionPool.release(projectDirectory, gradleHome);
+         future.complete(BuildOutcome.failure(e));
       }
 
-      launcher = launcher.withArguments(argList.toArray(new String[argList.size()]));
+      return future;
+   }
 
-      // Workaround to hide Gradle output in shell
-      PrintStream originalOut = System.out;
-      final ResultHolder holder = new ResultHolder();
-      final CountDownLatch latch = new CountDownLatch(1);
+   @Override
+   public <T> ModelBuildOutcome<T> runGradleBuildWithModel(String directory, String task, String profile,
+            Class<T> modelType, OutputStream out, OutputStream err, String... arguments)
+   {
+      CancellationTokenSource cancellationTokenSource = GradleConnector.newCancellationTokenSource();
       try
       {
-         System.setOut(new PrintStream(new OutputStream()
+         return runGradleBuildWithModelAsync(directory, task, profile, modelType, cancellationTokenSource.token(),
+                  out, err, arguments).get();
+      }
+      catch (InterruptedException e)
+      {
+         cancellationTokenSource.cancel();
+         Thread.currentThread().interrupt();
+         return ModelBuildOutcome.create(BuildOutcome.cancelled(e), null);
+      }
+      catch (ExecutionException e)
+      {
+         return ModelBuildOutcome.create(BuildOutcome.failure(e.getCause()), null);
+      }
+   }
+
+   @Override
+   public <T> CompletableFuture<ModelBuildOutcome<T>> runGradleBuildWithModelAsync(final String directory,
+            final String task, final String profile, final Class<T> modelType,
+            final CancellationToken cancellationToken, final OutputStream out, final OutputStream err,
+            final String... arguments)
+   {
+      return scheduler.schedule(new File(directory), new Supplier<CompletableFuture<ModelBuildOutcome<T>>>()
+      {
+         @Override
+         public CompletableFuture<ModelBuildOutcome<T>> get()
          {
+            return startGradleBuildWithModel(directory, task, profile, modelType, cancellationToken, out, err,
+                     arguments);
+         }
+      });
+   }
+
+   private <T> CompletableFuture<ModelBuildOutcome<T>> startGradleBuildWithModel(String directory, String task,
+            String profile, Class<T> modelType, CancellationToken cancellationToken, OutputStream out,
+            OutputStream err, String... arguments)
+   {
+      final File projectDirectory = new File(directory);
+      final File gradleHome = gradleHome();
+      final CompletableFuture<ModelBuildOutcome<T>> future = new CompletableFuture<>();
+      // Model arrives from the build process before the tasks are run
+      final AtomicReference<T> model = new AtomicReference<>();
 
+      ProjectConnection connection = connectionPool.acquire(projectDirectory, gradleHome);
+      try
+      {
+         BuildActionExecuter<Void> executer = connection.action()
+                  .projectsLoaded(new FetchModelAction<T>(modelType), new IntermediateResultHandler<T>()
+                  {
+                     @Override
+                     public void onComplete(T result)
+                     {
+                        model.set(result);
+                     }
+                  })
+                  .build()
+                  .forTasks(task)
+                  .withArguments(buildArguments(profile, arguments));
+         routeOutput(executer, out, err);
+
+         if (cancellationToken != null)
+         {
+            executer = executer.withCancellationToken(cancellationToken);
+         }
+
+         executer.run(new ResultHandler<Void>()
+         {
             @Override
-            public void write(int b) throws IOException
+            public void onComplete(Void result)
             {
+               connectionPool.release(projectDirectory, gradleHome);
+               future.complete(ModelBuildOutcome.create(BuildOutcome.success(), model.get()));
             }
-         }));
 
-         launcher.run(new ResultHandler<Object>()
+            @Override
+            public void onFailure(GradleConnectionException failure)
+            {
+               connectionPool.release(projectDirectory, gradleHome);
+               future.complete(ModelBuildOutcome.create(failure instanceof BuildCancelledException
+                        ? BuildOutcome.cancelled(failure)
+                        : BuildOutcome.failure(failure), model.get()));
+            }
+         });
+      }
+      catch (RuntimeException e)
+      {
+         connectionPool.release(projectDirectory, gradleHome);
+         future.complete(ModelBuildOutcome.create(BuildOutcome.failure(e), model.get()));
+      }
+
+      return future;
+   }
+
+   @Override
+   public <T> T getModel(String directory, Class<T> modelType, String... arguments)
+   {
+      CancellationTokenSource cancellationTokenSource = GradleConnector.newCancellationTokenSource();
+      try
+      {
+         return getModelAsync(directory, modelType, cancellationTokenSource.token(), arguments).get();
+      }
+      catch (InterruptedException e)
+      {
+         cancellationTokenSource.cancel();
+         Thread.currentThread().interrupt();
+         throw new BuildCancelledException("Fetching " + modelType.getName() + " model was interrupted", e);
+      }
+      catch (ExecutionException e)
+      {
+         if (e.getCause() instanceof RuntimeException)
+         {
+            throw (RuntimeException) e.getCause();
+         }
+         throw new GradleConnectionException("Could not fetch " + modelType.getName() + " model", e.getCause());
+      }
+   }
+
+   @Override
+   public <T> CompletableFuture<T> getModelAsync(final String directory, final Class<T> modelType,
+            final CancellationToken cancellationToken, final String... arguments)
+   {
+      return scheduler.schedule(new File(directory), new Supplier<CompletableFuture<T>>()
+      {
+         @Override
+         public CompletableFuture<T> get()
+         {
+            return startModelFetch(directory, modelType, cancellationToken, arguments);
+         }
+      });
+   }
+
+   @Override
+   public BuildQueueStatistics getBuildQueueStatistics()
+   {
+      return scheduler.getStatistics();
+   }
+
+   private <T> CompletableFuture<T> startModelFetch(String directory, Class<T> modelType,
+            CancellationToken cancellationToken, String... arguments)
+   {
+      final File projectDirectory = new File(directory);
+      final File gradleHome = gradleHome();
+      final CompletableFuture<T> future = new CompletableFuture<>();
+
+      ProjectConnection connection = connectionPool.acquire(projectDirectory, gradleHome);
+      try
+      {
+         ModelBuilder<T> builder = connection.model(modelType).withArguments(arguments);
+         routeOutput(builder, null, null);
+
+         if (cancellationToken != null)
+         {
+            builder = builder.withCancellationToken(cancellationToken);
+         }
+
+         builder.get(new ResultHandler<T>()
          {
             @Override
-            public void onComplete(Object result)
+            public void onComplete(T result)
             {
-               holder.result = true;
-               latch.countDown();
+               connectionPool.release(projectDirectory, gradleHome);
+               future.complete(result);
             }
 
             @Override
             public void onFailure(GradleConnectionException failure)
             {
-               holder.result = false;
-               latch.countDown();
+               connectionPool.release(projectDirectory, gradleHome);
+               future.completeExceptionally(failure);
             }
          });
-
-         latch.await();
       }
-      catch (InterruptedException e)
+      catch (RuntimeException e)
       {
-         e.printStackTrace();
+         connectionPool.release(projectDirectory, gradleHome);
+         future.completeExceptionally(e);
       }
-      finally
+
+      return future;
+   }
+
+   /**
+    * Closes all pooled Gradle connections when the addon is stopped.
+    */
+   public void shutdown(@Observes @Local PreShutdown event)
+   {
+      connectionPool.shutdown();
+   }
+
+   /**
+    * Sends output of a single Gradle invocation to given streams, or discards it if a stream is null.
+    */
+   private void routeOutput(LongRunningOperation operation, OutputStream out, OutputStream err)
+   {
+      operation.setStandardOutput(out != null ? out : DISCARD);
+      operation.setStandardError(err != null ? err : DISCARD);
+   }
+
+   private String[] buildArguments(String profile, String... arguments)
+   {
+      List<String> argList = Lists.newArrayList(arguments);
+
+      if (!Strings.isNullOrEmpty(profile))
       {
-         System.setOut(originalOut);
+         argList.add("-Pprofile=" + profile);
       }
 
-      return holder.result;
+      return argList.toArray(new String[argList.size()]);
+   }
+
+   private File gradleHome()
+   {
+      String gradleHome = System.getenv("GRADLE_HOME");
+      return Strings.isNullOrEmpty(gradleHome) ? null : new File(gradleHome);
    }
 }
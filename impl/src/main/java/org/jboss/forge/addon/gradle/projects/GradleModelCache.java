@@ -0,0 +1,228 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileFilter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.inject.Singleton;
+
+import org.jboss.forge.addon.gradle.projects.model.GradleModel;
+import org.jboss.forge.furnace.util.OperatingSystemUtils;
+
+/**
+ * Stores evaluated Gradle models on disk, so that the model of an unchanged project can be loaded without running
+ * Gradle, even after restart.
+ * <p/>
+ * Every project has a single cache file, which holds the model together with the fingerprint of build inputs
+ * ({@link GradleBuildInputs#fingerprint(File)}) computed before the model was evaluated. Unreadable or incompatible
+ * cache files are treated as missing.
+ * 
+ * @author Adam Wyłuda
+ */
+@Singleton
+public class GradleModelCache
+{
+   private static final Logger LOG = Logger.getLogger(GradleModelCache.class.getName());
+   private static final String CACHE_FILE_SUFFIX = ".model";
+   private static final int MAX_CACHED_MODELS = 256;
+
+   /**
+    * Cached model with the fingerprint of build inputs it was evaluated from.
+    */
+   public static class Entry implements Serializable
+   {
+      private static final long serialVersionUID = 1L;
+
+      private final String fingerprint;
+      private final GradleModel model;
+
+      public Entry(String fingerprint, GradleModel model)
+      {
+         this.fingerprint = fingerprint;
+         this.model = model;
+      }
+
+      public String getFingerprint()
+      {
+         return fingerprint;
+      }
+
+      public GradleModel getModel()
+      {
+         return model;
+      }
+   }
+
+   private final File cacheDirectory;
+
+   public GradleModelCache()
+   {
+      this(new File(OperatingSystemUtils.getUserForgeDir(), "gradle/model-cache"));
+   }
+
+   public GradleModelCache(File cacheDirectory)
+   {
+      this.cacheDirectory = cacheDirectory;
+   }
+
+   /**
+    * Returns cached model of given project if it was evaluated from build inputs with given fingerprint, otherwise
+    * null.
+    */
+   public GradleModel load(File projectDirectory, String fingerprint)
+   {
+      Entry entry = read(projectDirectory);
+      return entry != null && entry.getFingerprint().equals(fingerprint) ? entry.getModel() : null;
+   }
+
+   /**
+    * Returns cached entry of given project regardless of its fingerprint, or null if there is none.
+    */
+   public Entry read(File projectDirectory)
+   {
+      File cacheFile = cacheFile(projectDirectory);
+      if (!cacheFile.isFile())
+      {
+         return null;
+      }
+
+      try (ObjectInputStream input = new ModelInputStream(new BufferedInputStream(new FileInputStream(cacheFile))))
+      {
+         return (Entry) input.readObject();
+      }
+      catch (IOException | ClassNotFoundException | ClassCastException e)
+      {
+         LOG.log(Level.FINE, "Could not read cached Gradle model " + cacheFile, e);
+         cacheFile.delete();
+         return null;
+      }
+   }
+
+   /**
+    * Stores model of given project evaluated from build inputs with given fingerprint. Failures are logged and
+    * otherwise ignored, project will be evaluated by Gradle next time.
+    */
+   public void store(File projectDirectory, String fingerprint, GradleModel model)
+   {
+      File cacheFile = cacheFile(projectDirectory);
+      File temporaryFile = null;
+      try
+      {
+         Files.createDirectories(cacheDirectory.toPath());
+         temporaryFile = File.createTempFile(cacheFile.getName(), ".tmp", cacheDirectory);
+         try (ObjectOutputStream output = new ObjectOutputStream(
+                  new BufferedOutputStream(new FileOutputStream(temporaryFile))))
+         {
+            output.writeObject(new Entry(fingerprint, model));
+         }
+         // Readers never see partially written file
+         Files.move(temporaryFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                  StandardCopyOption.ATOMIC_MOVE);
+         removeOldestEntries();
+      }
+      catch (IOException e)
+      {
+         LOG.log(Level.FINE, "Could not store Gradle model " + cacheFile, e);
+         if (temporaryFile != null)
+         {
+            temporaryFile.delete();
+         }
+      }
+   }
+
+   /**
+    * Removes cached model of given project.
+    */
+   public void invalidate(File projectDirectory)
+   {
+      cacheFile(projectDirectory).delete();
+   }
+
+   public File getCacheDirectory()
+   {
+      return cacheDirectory;
+   }
+
+   /**
+    * Keeps number of cache files bounded, models of projects which are no longer used (e.g. temporary ones) would
+    * otherwise stay forever.
+    */
+   private void removeOldestEntries()
+   {
+      File[] cacheFiles = cacheDirectory.listFiles(new FileFilter()
+      {
+         @Override
+         public boolean accept(File file)
+         {
+            return file.getName().endsWith(CACHE_FILE_SUFFIX);
+         }
+      });
+      if (cacheFiles == null || cacheFiles.length <= MAX_CACHED_MODELS)
+      {
+         return;
+      }
+      Arrays.sort(cacheFiles, new Comparator<File>()
+      {
+         @Override
+         public int compare(File a, File b)
+         {
+            return Long.compare(a.lastModified(), b.lastModified());
+         }
+      });
+      for (int i = 0; i < cacheFiles.length - MAX_CACHED_MODELS; i++)
+      {
+         cacheFiles[i].delete();
+      }
+   }
+
+   private File cacheFile(File projectDirectory)
+   {
+      String path = projectDirectory.getAbsoluteFile().toPath().normalize().toString();
+      return new File(cacheDirectory, GradleBuildInputs.sha256(path) + CACHE_FILE_SUFFIX);
+   }
+
+   /**
+    * Resolves model classes from the addon class loader, which may not be the one of the calling thread.
+    */
+   private static class ModelInputStream extends ObjectInputStream
+   {
+      ModelInputStream(InputStream input) throws IOException
+      {
+         super(input);
+      }
+
+      @Override
+      protected Class<?> resolveClass(ObjectStreamClass description) throws IOException, ClassNotFoundException
+      {
+         try
+         {
+            return Class.forName(description.getName(), false, GradleModelCache.class.getClassLoader());
+         }
+         catch (ClassNotFoundException e)
+         {
+            return super.resolveClass(description);
+         }
+      }
+   }
+}
@@ -0,0 +1,320 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects.model;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.gradle.internal.impldep.com.google.common.collect.Lists;
+import org.gradle.internal.impldep.com.google.common.collect.Maps;
+import org.jboss.forge.furnace.util.Strings;
+
+/**
+ * Decodes binary output of forgeOutput task, binding values directly to model builders.
+ * <p/>
+ * Output starts with {@link #MAGIC} and {@link #VERSION} integers, followed by the project and a list of profiles,
+ * each of them being a name and a project. Lists are written as element count followed by the elements, and project
+ * sections come in the same order as in forge-output.xml.
+ * <p/>
+ * Strings are written as a single integer, if it's not negative then it's the index of a string which was already
+ * written, otherwise <code>-(length + 1)</code> bytes of UTF-8 encoded string follow and the string is added to the
+ * table. That way repeated groups, configuration and task names are written only once.
+ * 
+ * @author Adam Wyłuda
+ */
+class ForgeOutputBinaryDecoder
+{
+   /**
+    * "FGOB" in ASCII.
+    */
+   static final int MAGIC = 0x46474F42;
+   static final int VERSION = 1;
+
+   private final DataInputStream in;
+   private final List<String> strings = new ArrayList<>();
+   private GradleModelBuilder project;
+   private final Map<String, GradleModelBuilder> profiles = new LinkedHashMap<>();
+
+   private ForgeOutputBinaryDecoder(DataInputStream in)
+   {
+      this.in = in;
+   }
+
+   /**
+    * Decodes effective model of the project and its profiles from given binary output.
+    */
+   static ForgeOutputBinaryDecoder decode(InputStream output)
+   {
+      try
+      {
+         ForgeOutputBinaryDecoder decoder = new ForgeOutputBinaryDecoder(
+                  new DataInputStream(new BufferedInputStream(output)));
+         decoder.decodeOutput();
+         return decoder;
+      }
+      catch (IOException e)
+      {
+         throw new IllegalStateException("Could not read Forge output", e);
+      }
+   }
+
+   /**
+    * Returns builder with effective model of the project.
+    */
+   GradleModelBuilder getProject()
+   {
+      return project;
+   }
+
+   /**
+    * Returns builders with effective models of profiles, by profile name, in the order of the output.
+    */
+   Map<String, GradleModelBuilder> getProfiles()
+   {
+      return profiles;
+   }
+
+   private void decodeOutput() throws IOException
+   {
+      if (in.readInt() != MAGIC)
+      {
+         throw new IllegalStateException("Forge output is not in binary format");
+      }
+      int version = in.readInt();
+      if (version != VERSION)
+      {
+         throw new IllegalStateException("Unsupported Forge output version: " + version);
+      }
+
+      project = decodeProject();
+      int profileCount = in.readInt();
+      for (int i = 0; i < profileCount; i++)
+      {
+         String name = string();
+         profiles.put(name, decodeProject());
+      }
+   }
+
+   private GradleModelBuilder decodeProject() throws IOException
+   {
+      GradleModelBuilder builder = GradleModelBuilder.create();
+      builder.setGroup(string());
+      builder.setName(string());
+      builder.setVersion(string());
+      builder.setProjectPath(string());
+      builder.setRootProjectPath(string());
+      builder.setPackaging(string());
+      builder.setArchivePath(string());
+      builder.setArchiveName(GradleModelLoadUtil.archiveNameFromPath(builder.getArchivePath()));
+      builder.setSourceCompatibility(string());
+      builder.setTargetCompatibility(string());
+      builder.setEffectiveProperties(decodeProperties());
+      builder.setEffectiveTasks(decodeTasks());
+      builder.setEffectiveDependencies(decodeDependencies());
+      builder.setEffectiveManagedDependencies(decodeManagedDependencies());
+      builder.setEffectiveRepositories(decodeRepositories());
+      builder.setEffectivePlugins(decodePlugins());
+      builder.setEffectiveSourceSets(decodeSourceSets());
+      return builder;
+   }
+
+   private Map<String, String> decodeProperties() throws IOException
+   {
+      Map<String, String> properties = Maps.newHashMap();
+      int count = in.readInt();
+      for (int i = 0; i < count; i++)
+      {
+         String key = string();
+         properties.put(key, string());
+      }
+      return properties;
+   }
+
+   private List<GradleTask> decodeTasks() throws IOException
+   {
+      int count = in.readInt();
+      List<GradleTask> tasks = new ArrayList<>(count);
+      Map<GradleTask, List<String>> taskDepsMap = new HashMap<>();
+      Map<String, GradleTask> taskByNameMap = new HashMap<>();
+
+      for (int i = 0; i < count; i++)
+      {
+         GradleTask task = GradleTaskBuilder.create().setName(string());
+         tasks.add(task);
+         taskDepsMap.put(task, strings());
+         taskByNameMap.put(task.getName(), task);
+      }
+
+      // Tasks may depend on tasks which come later in the output, so dependencies are completed at the end
+      for (GradleTask task : tasks)
+      {
+         for (String depName : taskDepsMap.get(task))
+         {
+            task.getDependsOn().add(taskByNameMap.get(depName));
+         }
+      }
+
+      return tasks;
+   }
+
+   private List<GradleDependency> decodeDependencies() throws IOException
+   {
+      // Dependency declared in overriding configuration wins
+      Map<String, GradleDependency> depByString = new HashMap<>();
+      int count = in.readInt();
+      for (int i = 0; i < count; i++)
+      {
+         GradleDependency dep = decodeDependency();
+         String gradleString = dep.toGradleString();
+         GradleDependency olderDep = depByString.get(gradleString);
+         if (olderDep == null || dep.getConfiguration().overrides(olderDep.getConfiguration()))
+         {
+            depByString.put(gradleString, dep);
+         }
+      }
+
+      List<GradleDependency> deps = new ArrayList<>();
+      deps.addAll(depByString.values());
+      return deps;
+   }
+
+   private List<GradleDependency> decodeManagedDependencies() throws IOException
+   {
+      int count = in.readInt();
+      List<GradleDependency> deps = new ArrayList<>(count);
+      for (int i = 0; i < count; i++)
+      {
+         deps.add(decodeDependency());
+      }
+      return deps;
+   }
+
+   private GradleDependency decodeDependency() throws IOException
+   {
+      GradleDependencyBuilder depBuilder = GradleDependencyBuilder.create()
+               .setName(string())
+               .setGroup(string())
+               .setVersion(string())
+               .setConfigurationName(string());
+
+      boolean moduleDependency = in.readBoolean();
+      if (moduleDependency)
+      {
+         // Only the first artifact determines classifier and packaging
+         int artifactCount = in.readInt();
+         for (int i = 0; i < artifactCount; i++)
+         {
+            String classifier = string();
+            String type = string();
+            if (i == 0 && !Strings.isNullOrEmpty(classifier))
+            {
+               depBuilder = depBuilder.setClassifier(classifier);
+            }
+            if (i == 0 && !Strings.isNullOrEmpty(type))
+            {
+               depBuilder = depBuilder.setPackaging(type);
+            }
+         }
+
+         int excludeRuleCount = in.readInt();
+         List<GradleDependency> excludedDependencies = Lists.newArrayList();
+         for (int i = 0; i < excludeRuleCount; i++)
+         {
+            excludedDependencies.add(GradleDependencyBuilder.create()
+                     .setGroup(string()).setName(string()));
+         }
+         depBuilder.setExcludedDependencies(excludedDependencies);
+      }
+
+      return depBuilder;
+   }
+
+   private List<GradleRepository> decodeRepositories() throws IOException
+   {
+      int count = in.readInt();
+      List<GradleRepository> repos = new ArrayList<>(count);
+      for (int i = 0; i < count; i++)
+      {
+         repos.add(GradleRepositoryBuilder.create()
+                  .setName(string())
+                  .setUrl(string()));
+      }
+      return repos;
+   }
+
+   private List<GradlePlugin> decodePlugins() throws IOException
+   {
+      int count = in.readInt();
+      List<GradlePlugin> plugins = new ArrayList<>(count);
+      for (int i = 0; i < count; i++)
+      {
+         plugins.add(GradlePluginBuilder.create()
+                  .setClazz(string()));
+      }
+      return plugins;
+   }
+
+   private List<GradleSourceSet> decodeSourceSets() throws IOException
+   {
+      int count = in.readInt();
+      List<GradleSourceSet> sourceSets = new ArrayList<>(count);
+      for (int i = 0; i < count; i++)
+      {
+         sourceSets.add(GradleSourceSetBuilder.create()
+                  .setName(string())
+                  .setJavaDirectories(decodeSourceDirectories())
+                  .setResourceDirectories(decodeSourceDirectories()));
+      }
+      return sourceSets;
+   }
+
+   private List<GradleSourceDirectory> decodeSourceDirectories() throws IOException
+   {
+      int count = in.readInt();
+      List<GradleSourceDirectory> dirs = new ArrayList<>(count);
+      for (int i = 0; i < count; i++)
+      {
+         dirs.add(GradleSourceDirectoryBuilder.create()
+                  .setPath(string()));
+      }
+      return dirs;
+   }
+
+   private List<String> strings() throws IOException
+   {
+      int count = in.readInt();
+      List<String> values = new ArrayList<>(count);
+      for (int i = 0; i < count; i++)
+      {
+         values.add(string());
+      }
+      return values;
+   }
+
+   private String string() throws IOException
+   {
+      int reference = in.readInt();
+      if (reference >= 0)
+      {
+         return strings.get(reference);
+      }
+      byte[] bytes = new byte[-reference - 1];
+      in.readFully(bytes);
+      // Trimmed like the text of forge-output.xml elements
+      String value = new String(bytes, StandardCharsets.UTF_8).trim();
+      strings.add(value);
+      return value;
+   }
+}
@@ -0,0 +1,543 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects.model;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.gradle.internal.impldep.com.google.common.collect.Lists;
+import org.gradle.internal.impldep.com.google.common.collect.Maps;
+import org.jboss.forge.furnace.util.Strings;
+
+/**
+ * Decodes forge-output.xml in a single pass, binding elements directly to model builders, so that no document tree is
+ * built even for projects with thousands of tasks and dependencies.
+ * <p/>
+ * Unknown elements are skipped and missing elements leave the builder defaults.
+ * 
+ * @author Adam Wyłuda
+ */
+class ForgeOutputXmlDecoder
+{
+   private static final XMLInputFactory FACTORY = createFactory();
+
+   private final XMLStreamReader reader;
+   private GradleModelBuilder project;
+   private final Map<String, GradleModelBuilder> profiles = new LinkedHashMap<>();
+
+   private ForgeOutputXmlDecoder(XMLStreamReader reader)
+   {
+      this.reader = reader;
+   }
+
+   /**
+    * Decodes effective model of the project and its profiles from given forge-output.xml.
+    */
+   static ForgeOutputXmlDecoder decode(Reader xmlOutput)
+   {
+      try
+      {
+         XMLStreamReader reader = FACTORY.createXMLStreamReader(xmlOutput);
+         try
+         {
+            ForgeOutputXmlDecoder decoder = new ForgeOutputXmlDecoder(reader);
+            decoder.decodeOutput();
+            return decoder;
+         }
+         finally
+         {
+            reader.close();
+         }
+      }
+      catch (XMLStreamException e)
+      {
+         throw new IllegalStateException("Could not read Forge output", e);
+      }
+   }
+
+   /**
+    * Returns builder with effective model of the project.
+    */
+   GradleModelBuilder getProject()
+   {
+      return project;
+   }
+
+   /**
+    * Returns builders with effective models of profiles, by profile name, in the order of the output.
+    */
+   Map<String, GradleModelBuilder> getProfiles()
+   {
+      return profiles;
+   }
+
+   private void decodeOutput() throws XMLStreamException
+   {
+      reader.nextTag();
+      while (nextChild())
+      {
+         switch (reader.getLocalName())
+         {
+         case "project":
+            project = decodeProject();
+            break;
+         case "profile":
+            decodeProfile();
+            break;
+         default:
+            skip();
+         }
+      }
+   }
+
+   private void decodeProfile() throws XMLStreamException
+   {
+      String name = null;
+      GradleModelBuilder profileProject = null;
+      while (nextChild())
+      {
+         switch (reader.getLocalName())
+         {
+         case "name":
+            name = text();
+            break;
+         case "project":
+            profileProject = decodeProject();
+            break;
+         default:
+            skip();
+         }
+      }
+      profiles.put(name, profileProject);
+   }
+
+   private GradleModelBuilder decodeProject() throws XMLStreamException
+   {
+      GradleModelBuilder builder = GradleModelBuilder.create();
+      while (nextChild())
+      {
+         switch (reader.getLocalName())
+         {
+         case "group":
+            builder.setGroup(text());
+            break;
+         case "name":
+            builder.setName(text());
+            break;
+         case "version":
+            builder.setVersion(text());
+            break;
+         case "projectPath":
+            builder.setProjectPath(text());
+            break;
+         case "rootProjectDirectory":
+            builder.setRootProjectPath(text());
+            break;
+         case "packaging":
+            builder.setPackaging(text());
+            break;
+         case "archivePath":
+            builder.setArchivePath(text());
+            builder.setArchiveName(GradleModelLoadUtil.archiveNameFromPath(builder.getArchivePath()));
+            break;
+         case "sourceCompatibility":
+            builder.setSourceCompatibility(text());
+            break;
+         case "targetCompatibility":
+            builder.setTargetCompatibility(text());
+            break;
+         case "properties":
+            builder.setEffectiveProperties(decodeProperties());
+            break;
+         case "tasks":
+            builder.setEffectiveTasks(decodeTasks());
+            break;
+         case "dependencies":
+            builder.setEffectiveDependencies(decodeDependencies());
+            break;
+         case "managedDependencies":
+            builder.setEffectiveManagedDependencies(decodeManagedDependencies());
+            break;
+         case "repositories":
+            builder.setEffectiveRepositories(decodeRepositories());
+            break;
+         case "plugins":
+            builder.setEffectivePlugins(decodePlugins());
+            break;
+         case "sourceSets":
+            builder.setEffectiveSourceSets(decodeSourceSets());
+            break;
+         default:
+            skip();
+         }
+      }
+      return builder;
+   }
+
+   private Map<String, String> decodeProperties() throws XMLStreamException
+   {
+      Map<String, String> properties = Maps.newHashMap();
+      while (nextChild())
+      {
+         String key = null;
+         String value = null;
+         while (nextChild())
+         {
+            switch (reader.getLocalName())
+            {
+            case "key":
+               key = text();
+               break;
+            case "value":
+               value = text();
+               break;
+            default:
+               skip();
+            }
+         }
+         properties.put(key, value);
+      }
+      return properties;
+   }
+
+   private List<GradleTask> decodeTasks() throws XMLStreamException
+   {
+      List<GradleTask> tasks = new ArrayList<>();
+      Map<GradleTask, List<String>> taskDepsMap = new HashMap<>();
+      Map<String, GradleTask> taskByNameMap = new HashMap<>();
+
+      while (nextChild())
+      {
+         GradleTaskBuilder task = GradleTaskBuilder.create();
+         List<String> taskDeps = new ArrayList<>();
+         while (nextChild())
+         {
+            switch (reader.getLocalName())
+            {
+            case "name":
+               task.setName(text());
+               break;
+            case "dependsOn":
+               while (nextChild())
+               {
+                  taskDeps.add(text());
+               }
+               break;
+            default:
+               skip();
+            }
+         }
+         tasks.add(task);
+         taskDepsMap.put(task, taskDeps);
+         taskByNameMap.put(task.getName(), task);
+      }
+
+      // Tasks may depend on tasks which come later in the output, so dependencies are completed at the end
+      for (GradleTask task : tasks)
+      {
+         for (String depName : taskDepsMap.get(task))
+         {
+            task.getDependsOn().add(taskByNameMap.get(depName));
+         }
+      }
+
+      return tasks;
+   }
+
+   private List<GradleDependency> decodeDependencies() throws XMLStreamException
+   {
+      // Dependency declared in overriding configuration wins
+      Map<String, GradleDependency> depByString = new HashMap<>();
+      while (nextChild())
+      {
+         GradleDependency dep = decodeDependency();
+         String gradleString = dep.toGradleString();
+         GradleDependency olderDep = depByString.get(gradleString);
+         if (olderDep == null || dep.getConfiguration().overrides(olderDep.getConfiguration()))
+         {
+            depByString.put(gradleString, dep);
+         }
+      }
+
+      List<GradleDependency> deps = new ArrayList<>();
+      deps.addAll(depByString.values());
+      return deps;
+   }
+
+   private List<GradleDependency> decodeManagedDependencies() throws XMLStreamException
+   {
+      List<GradleDependency> deps = new ArrayList<>();
+      while (nextChild())
+      {
+         deps.add(decodeDependency());
+      }
+      return deps;
+   }
+
+   private GradleDependency decodeDependency() throws XMLStreamException
+   {
+      String group = null;
+      String name = null;
+      String version = null;
+      String config = null;
+      String classifier = null;
+      String type = null;
+      List<GradleDependency> excludedDependencies = null;
+
+      while (nextChild())
+      {
+         switch (reader.getLocalName())
+         {
+         case "group":
+            group = text();
+            break;
+         case "name":
+            name = text();
+            break;
+         case "version":
+            version = text();
+            break;
+         case "configuration":
+            config = text();
+            break;
+         case "artifacts":
+            // Only the first artifact determines classifier and packaging
+            boolean first = true;
+            while (nextChild())
+            {
+               if (!first)
+               {
+                  skip();
+                  continue;
+               }
+               first = false;
+               while (nextChild())
+               {
+                  switch (reader.getLocalName())
+                  {
+                  case "classifier":
+                     classifier = text();
+                     break;
+                  case "type":
+                     type = text();
+                     break;
+                  default:
+                     skip();
+                  }
+               }
+            }
+            break;
+         case "excludeRules":
+            excludedDependencies = Lists.newArrayList();
+            while (nextChild())
+            {
+               excludedDependencies.add(decodeExcludeRule());
+            }
+            break;
+         default:
+            skip();
+         }
+      }
+
+      GradleDependencyBuilder depBuilder = GradleDependencyBuilder.create()
+               .setGroup(group)
+               .setName(name)
+               .setVersion(version)
+               .setConfigurationName(config);
+
+      if (!Strings.isNullOrEmpty(classifier))
+      {
+         depBuilder = depBuilder.setClassifier(classifier);
+      }
+
+      if (!Strings.isNullOrEmpty(type))
+      {
+         depBuilder = depBuilder.setPackaging(type);
+      }
+
+      if (excludedDependencies != null)
+      {
+         depBuilder.setExcludedDependencies(excludedDependencies);
+      }
+
+      return depBuilder;
+   }
+
+   private GradleDependency decodeExcludeRule() throws XMLStreamException
+   {
+      GradleDependencyBuilder excluded = GradleDependencyBuilder.create();
+      while (nextChild())
+      {
+         switch (reader.getLocalName())
+         {
+         case "group":
+            excluded.setGroup(text());
+            break;
+         case "module":
+            excluded.setName(text());
+            break;
+         default:
+            skip();
+         }
+      }
+      return excluded;
+   }
+
+   private List<GradleRepository> decodeRepositories() throws XMLStreamException
+   {
+      List<GradleRepository> repos = new ArrayList<>();
+      while (nextChild())
+      {
+         GradleRepositoryBuilder repo = GradleRepositoryBuilder.create();
+         while (nextChild())
+         {
+            switch (reader.getLocalName())
+            {
+            case "name":
+               repo.setName(text());
+               break;
+            case "url":
+               repo.setUrl(text());
+               break;
+            default:
+               skip();
+            }
+         }
+         repos.add(repo);
+      }
+      return repos;
+   }
+
+   private List<GradlePlugin> decodePlugins() throws XMLStreamException
+   {
+      List<GradlePlugin> plugins = new ArrayList<>();
+      while (nextChild())
+      {
+         GradlePluginBuilder plugin = GradlePluginBuilder.create();
+         while (nextChild())
+         {
+            if (reader.getLocalName().equals("class"))
+            {
+               plugin.setClazz(text());
+            }
+            else
+            {
+               skip();
+            }
+         }
+         plugins.add(plugin);
+      }
+      return plugins;
+   }
+
+   private List<GradleSourceSet> decodeSourceSets() throws XMLStreamException
+   {
+      List<GradleSourceSet> sourceSets = new ArrayList<>();
+      while (nextChild())
+      {
+         GradleSourceSetBuilder sourceSet = GradleSourceSetBuilder.create();
+         while (nextChild())
+         {
+            switch (reader.getLocalName())
+            {
+            case "name":
+               sourceSet.setName(text());
+               break;
+            case "java":
+               sourceSet.setJavaDirectories(decodeSourceDirectories());
+               break;
+            case "resources":
+               sourceSet.setResourceDirectories(decodeSourceDirectories());
+               break;
+            default:
+               skip();
+            }
+         }
+         sourceSets.add(sourceSet);
+      }
+      return sourceSets;
+   }
+
+   private List<GradleSourceDirectory> decodeSourceDirectories() throws XMLStreamException
+   {
+      List<GradleSourceDirectory> dirs = new ArrayList<>();
+      while (nextChild())
+      {
+         dirs.add(GradleSourceDirectoryBuilder.create()
+                  .setPath(text()));
+      }
+      return dirs;
+   }
+
+   /**
+    * Moves to the next child element of the current element.
+    * 
+    * @return False if there are no more children, reader is then at the end of the current element.
+    */
+   private boolean nextChild() throws XMLStreamException
+   {
+      while (reader.hasNext())
+      {
+         int event = reader.next();
+         if (event == XMLStreamConstants.START_ELEMENT)
+         {
+            return true;
+         }
+         else if (event == XMLStreamConstants.END_ELEMENT)
+         {
+            return false;
+         }
+      }
+      return false;
+   }
+
+   /**
+    * Reads text of the current element, which mustn't have any child elements.
+    */
+   private String text() throws XMLStreamException
+   {
+      return reader.getElementText().trim();
+   }
+
+   /**
+    * Skips the current element with all its children.
+    */
+   private void skip() throws XMLStreamException
+   {
+      int depth = 1;
+      while (depth > 0)
+      {
+         int event = reader.next();
+         if (event == XMLStreamConstants.START_ELEMENT)
+         {
+            depth++;
+         }
+         else if (event == XMLStreamConstants.END_ELEMENT)
+         {
+            depth--;
+         }
+      }
+   }
+
+   private static XMLInputFactory createFactory()
+   {
+      XMLInputFactory factory = XMLInputFactory.newInstance();
+      factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+      factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+      factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+      return factory;
+   }
+}
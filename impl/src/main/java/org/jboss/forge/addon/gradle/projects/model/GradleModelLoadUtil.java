@@ -6,23 +6,58 @@
  */
 package org.jboss.forge.addon.gradle.projects.model;
 
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
 
 import org.gradle.internal.impldep.com.google.common.collect.Lists;
 import org.gradle.internal.impldep.com.google.common.collect.Maps;
-import org.jboss.forge.addon.gradle.parser.GradleSourceUtil;
+import org.jboss.forge.addon.gradle.parser.GradleScriptDocument;
+import org.jboss.forge.addon.gradle.projects.model.tooling.ForgeArtifactOutput;
+import org.jboss.forge.addon.gradle.projects.model.tooling.ForgeDependencyOutput;
+import org.jboss.forge.addon.gradle.projects.model.tooling.ForgeExcludeRuleOutput;
+import org.jboss.forge.addon.gradle.projects.model.tooling.ForgeOutputModel;
+import org.jboss.forge.addon.gradle.projects.model.tooling.ForgeProfileOutput;
+import org.jboss.forge.addon.gradle.projects.model.tooling.ForgeProjectOutput;
+import org.jboss.forge.addon.gradle.projects.model.tooling.ForgeRepositoryOutput;
+import org.jboss.forge.addon.gradle.projects.model.tooling.ForgeSourceSetOutput;
+import org.jboss.forge.addon.gradle.projects.model.tooling.ForgeTaskOutput;
 import org.jboss.forge.furnace.util.Strings;
-import org.jboss.forge.parser.xml.Node;
-import org.jboss.forge.parser.xml.XMLParser;
 
 /**
  * @author Adam Wyłuda
  */
 public class GradleModelLoadUtil
 {
+   private static final int MAX_PARSER_THREADS = 8;
+
+   // Parsing is CPU bound, so there's no point in using more threads than processors
+   private static final ForkJoinPool PARSER_POOL = new ForkJoinPool(
+            Math.min(Runtime.getRuntime().availableProcessors(), MAX_PARSER_THREADS),
+            new ForkJoinWorkerThreadFactory()
+            {
+               @Override
+               public ForkJoinWorkerThread newThread(ForkJoinPool pool)
+               {
+                  ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                  thread.setName("Gradle script parser " + thread.getPoolIndex());
+                  return thread;
+               }
+            }, null, false);
+
    private GradleModelLoadUtil()
    {
    }
@@ -42,179 +77,210 @@ public class GradleModelLoadUtil
     */
    public static GradleModel load(String script, Map<String, String> profileScriptMap, String xmlOutput)
    {
-      Node root = XMLParser.parse(xmlOutput);
-
-      List<GradleProfile> profiles = profilesFromNode(root, profileScriptMap);
-
-      GradleModelBuilder modelBuilder = GradleModelBuilder.create();
-      modelBuilder.setProfiles(profiles);
-      loadEffectiveModel(modelBuilder, root.getSingle("project"), profiles);
-      loadDirectModel(modelBuilder, script);
-
-      return modelBuilder;
+      return load(script, profileScriptMap, new StringReader(xmlOutput));
    }
 
-   private static List<GradleProfile> profilesFromNode(Node rootNode, Map<String, String> profileScriptMap)
+   /**
+    * Loads both direct and effective model from given scripts and Gradle xml output, which is decoded while it's
+    * read.
+    */
+   public static GradleModel load(String script, Map<String, String> profileScriptMap, Reader xmlOutput)
    {
-      List<GradleProfile> profiles = new ArrayList<>();
-      for (Node profileNode : rootNode.get("profile"))
-      {
-         String name = profileNode.getSingle("name").getText().trim();
-         String script = profileScriptMap.get(name);
-
-         GradleModelBuilder modelBuilder = GradleModelBuilder.create();
-         loadEffectiveModel(modelBuilder, profileNode.getSingle("project"), new ArrayList<GradleProfile>());
-         loadDirectModel(modelBuilder, script);
-
-         profiles.add(GradleProfileBuilder.create()
-                  .setName(name)
-                  .setModel(modelBuilder));
-      }
-      return profiles;
+      ForgeOutputXmlDecoder output = ForgeOutputXmlDecoder.decode(xmlOutput);
+      return load(script, profileScriptMap, output.getProject(), output.getProfiles());
    }
 
-   private static void loadDirectModel(GradleModelBuilder builder, String script)
+   /**
+    * Loads both direct and effective model from given scripts and Gradle output, which may be either in binary or
+    * xml format. Format is detected from the beginning of the output.
+    */
+   public static GradleModel load(String script, Map<String, String> profileScriptMap, InputStream output)
    {
-      builder.setDependencies(depsFromScript(script));
-      builder.setManagedDependencies(managedDepsFromScript(script));
-      builder.setPlugins(pluginsFromScript(script));
-      builder.setRepositories(reposFromScript(script));
-      builder.setProperties(propertiesFromScript(script));
-   }
+      try
+      {
+         BufferedInputStream bufferedOutput = new BufferedInputStream(output);
+         bufferedOutput.mark(4);
+         int magic = new DataInputStream(bufferedOutput).readInt();
+         bufferedOutput.reset();
 
-   private static List<GradleDependency> depsFromScript(String script)
-   {
-      List<GradleDependency> deps = Lists.newArrayList();
-      deps.addAll(GradleSourceUtil.getDependencies(script));
-      deps.addAll(GradleSourceUtil.getDirectDependencies(script));
-      return deps;
+         if (magic == ForgeOutputBinaryDecoder.MAGIC)
+         {
+            ForgeOutputBinaryDecoder binaryOutput = ForgeOutputBinaryDecoder.decode(bufferedOutput);
+            return load(script, profileScriptMap, binaryOutput.getProject(), binaryOutput.getProfiles());
+         }
+         // Xml output is written in platform encoding
+         return load(script, profileScriptMap, new InputStreamReader(bufferedOutput));
+      }
+      catch (IOException e)
+      {
+         throw new IllegalStateException("Could not read Forge output", e);
+      }
    }
 
-   private static List<GradleDependency> managedDepsFromScript(String script)
+   private static GradleModel load(String script, Map<String, String> profileScriptMap,
+            GradleModelBuilder modelBuilder, Map<String, GradleModelBuilder> profileBuilders)
    {
-      return GradleSourceUtil.getManagedDependencies(script);
-   }
+      List<String> profileNames = Lists.newArrayList();
+      List<GradleModelBuilder> builders = Lists.newArrayList(modelBuilder);
+      List<String> scripts = Lists.newArrayList(script);
+      for (Map.Entry<String, GradleModelBuilder> entry : profileBuilders.entrySet())
+      {
+         profileNames.add(entry.getKey());
+         builders.add(entry.getValue());
+         scripts.add(profileScriptMap.get(entry.getKey()));
+      }
+      loadDirectModels(builders, scripts);
 
-   private static List<GradlePlugin> pluginsFromScript(String script)
-   {
-      return GradleSourceUtil.getPlugins(script);
-   }
+      modelBuilder.setProfiles(profiles(profileNames, builders));
 
-   private static List<GradleRepository> reposFromScript(String script)
-   {
-      return GradleSourceUtil.getRepositories(script);
+      return modelBuilder;
    }
 
-   private static Map<String, String> propertiesFromScript(String script)
+   /**
+    * Loads both direct and effective model from given scripts and model fetched by Gradle Tooling API.
+    */
+   public static GradleModel load(String script, Map<String, String> profileScriptMap, ForgeOutputModel output)
    {
-      return GradleSourceUtil.getDirectProperties(script);
-   }
+      GradleModelBuilder modelBuilder = GradleModelBuilder.create();
+      List<String> profileNames = Lists.newArrayList();
+      List<GradleModelBuilder> builders = Lists.newArrayList(modelBuilder);
+      List<String> scripts = Lists.newArrayList(script);
+      for (ForgeProfileOutput profileOutput : output.getProfiles())
+      {
+         String name = text(profileOutput.getName());
+         GradleModelBuilder profileBuilder = GradleModelBuilder.create();
+         loadEffectiveModel(profileBuilder, profileOutput.getProject(), new ArrayList<GradleProfile>());
 
-   private static void loadEffectiveModel(GradleModelBuilder builder,
-            Node projectNode, List<GradleProfile> profiles)
-   {
-      builder.setGroup(groupFromNode(projectNode));
-      builder.setName(nameFromNode(projectNode));
-      builder.setVersion(versionFromNode(projectNode));
-      builder.setPackaging(packagingFromNode(projectNode));
-      builder.setArchivePath(archivePathFromNode(projectNode));
-      builder.setArchiveName(archiveNameFromPath(builder.getArchivePath()));
-      builder.setSourceCompatibility(sourceCompatibilityFromNode(projectNode));
-      builder.setTargetCompatibility(targetCompatibilityFromNode(projectNode));
-      builder.setProjectPath(projectPathFromNode(projectNode));
-      builder.setRootProjectPath(rootProjectPathFromNode(projectNode));
-      builder.setEffectiveTasks(tasksFromNode(projectNode));
-      builder.setEffectiveDependencies(depsFromNode(projectNode));
-      builder.setEffectiveManagedDependencies(managedDepsFromNode(projectNode));
-      builder.setEffectivePlugins(pluginsFromNode(projectNode));
-      builder.setEffectiveRepositories(reposFromNode(projectNode));
-      builder.setEffectiveSourceSets(sourceSetsFromNode(projectNode));
-      builder.setEffectiveProperties(propertiesFromNode(projectNode));
-   }
+         profileNames.add(name);
+         builders.add(profileBuilder);
+         scripts.add(profileScriptMap.get(name));
+      }
+      loadDirectModels(builders, scripts);
 
-   private static String groupFromNode(Node projectNode)
-   {
-      return projectNode.getSingle("group").getText().trim();
-   }
+      List<GradleProfile> profiles = profiles(profileNames, builders);
+      modelBuilder.setProfiles(profiles);
+      loadEffectiveModel(modelBuilder, output.getProject(), profiles);
 
-   private static String nameFromNode(Node projectNode)
-   {
-      return projectNode.getSingle("name").getText().trim();
+      return modelBuilder;
    }
 
-   private static String versionFromNode(Node projectNode)
+   /**
+    * Loads direct models of independent scripts concurrently, each builder gets model of the script at the same
+    * index. Builders are filled before this method returns, so results don't depend on the order of parsing.
+    */
+   private static void loadDirectModels(List<GradleModelBuilder> builders, List<String> scripts)
    {
-      return projectNode.getSingle("version").getText().trim();
-   }
+      if (builders.size() == 1)
+      {
+         loadDirectModel(builders.get(0), scripts.get(0));
+         return;
+      }
 
-   private static String projectPathFromNode(Node projectNode)
-   {
-      return projectNode.getSingle("projectPath").getText().trim();
-   }
+      final List<ForkJoinTask<?>> tasks = Lists.newArrayList();
+      for (int i = 0; i < builders.size(); i++)
+      {
+         final GradleModelBuilder builder = builders.get(i);
+         final String script = scripts.get(i);
+         tasks.add(ForkJoinTask.adapt(new Runnable()
+         {
+            @Override
+            public void run()
+            {
+               loadDirectModel(builder, script);
+            }
+         }));
+      }
+      PARSER_POOL.invoke(new RecursiveAction()
+      {
+         private static final long serialVersionUID = 1L;
 
-   private static String rootProjectPathFromNode(Node projectNode)
-   {
-      return projectNode.getSingle("rootProjectDirectory").getText().trim();
+         @Override
+         protected void compute()
+         {
+            invokeAll(tasks);
+         }
+      });
    }
 
-   private static String packagingFromNode(Node projectNode)
+   private static void loadDirectModel(GradleModelBuilder builder, String script)
    {
-      return projectNode.getSingle("packaging").getText().trim();
+      // All sections are read from a single parse of the script
+      GradleScriptDocument document = GradleScriptDocument.parse(script);
+      builder.setDependencies(depsFromScript(document));
+      builder.setManagedDependencies(document.getManagedDependencies());
+      builder.setPlugins(document.getPlugins());
+      builder.setRepositories(document.getRepositories());
+      builder.setProperties(document.getDirectProperties());
    }
 
-   private static String archivePathFromNode(Node projectNode)
+   private static List<GradleDependency> depsFromScript(GradleScriptDocument document)
    {
-      return projectNode.getSingle("archivePath").getText().trim();
+      List<GradleDependency> deps = Lists.newArrayList();
+      deps.addAll(document.getDependencies());
+      deps.addAll(document.getDirectDependencies());
+      return deps;
    }
 
-   private static String archiveNameFromPath(String archivePath)
+   /**
+    * Creates profiles from loaded models, profile builders follow the project builder.
+    */
+   private static List<GradleProfile> profiles(List<String> names, List<GradleModelBuilder> builders)
    {
-      if (!Strings.isNullOrEmpty(archivePath))
-      {
-         return archivePath.substring(archivePath.lastIndexOf("/") + 1, archivePath.lastIndexOf("."));
-      }
-      else
+      List<GradleProfile> profiles = new ArrayList<>();
+      for (int i = 0; i < names.size(); i++)
       {
-         return "";
+         // Profile copies the model, so it must be created after the model is loaded
+         profiles.add(GradleProfileBuilder.create()
+                  .setName(names.get(i))
+                  .setModel(builders.get(i + 1)));
       }
+      return profiles;
    }
 
-   private static String sourceCompatibilityFromNode(Node projectNode)
-   {
-      return projectNode.getSingle("sourceCompatibility").getText().trim();
-   }
-
-   private static String targetCompatibilityFromNode(Node projectNode)
+   private static void loadEffectiveModel(GradleModelBuilder builder,
+            ForgeProjectOutput project, List<GradleProfile> profiles)
    {
-      return projectNode.getSingle("targetCompatibility").getText().trim();
+      builder.setGroup(text(project.getGroup()));
+      builder.setName(text(project.getName()));
+      builder.setVersion(text(project.getVersion()));
+      builder.setPackaging(text(project.getPackaging()));
+      builder.setArchivePath(text(project.getArchivePath()));
+      builder.setArchiveName(archiveNameFromPath(builder.getArchivePath()));
+      builder.setSourceCompatibility(text(project.getSourceCompatibility()));
+      builder.setTargetCompatibility(text(project.getTargetCompatibility()));
+      builder.setProjectPath(text(project.getProjectPath()));
+      builder.setRootProjectPath(text(project.getRootProjectDirectory()));
+      builder.setEffectiveTasks(tasksFromOutput(project));
+      builder.setEffectiveDependencies(depsFromOutput(project));
+      builder.setEffectiveManagedDependencies(managedDepsFromOutput(project));
+      builder.setEffectivePlugins(pluginsFromOutput(project));
+      builder.setEffectiveRepositories(reposFromOutput(project));
+      builder.setEffectiveSourceSets(sourceSetsFromOutput(project));
+      builder.setEffectiveProperties(propertiesFromOutput(project));
    }
 
-   private static List<GradleTask> tasksFromNode(Node projectNode)
+   private static List<GradleTask> tasksFromOutput(ForgeProjectOutput project)
    {
       List<GradleTask> tasks = new ArrayList<>();
       Map<GradleTask, List<String>> taskDepsMap = new HashMap<>();
       Map<String, GradleTask> taskByNameMap = new HashMap<>();
 
-      for (Node taskNode : projectNode.getSingle("tasks").get("task"))
+      for (ForgeTaskOutput taskOutput : project.getTasks())
       {
-         String name = taskNode.getSingle("name").getText().trim();
          List<String> taskDeps = new ArrayList<>();
-         for (Node dependsOnNode : taskNode.getSingle("dependsOn").get("task"))
+         for (String dependsOn : taskOutput.getDependsOn())
          {
-            String text = dependsOnNode.getText().trim();
-            taskDeps.add(text);
+            taskDeps.add(text(dependsOn));
          }
-         GradleTask task = GradleTaskBuilder.create().setName(name);
+         GradleTask task = GradleTaskBuilder.create().setName(text(taskOutput.getName()));
          tasks.add(task);
          taskDepsMap.put(task, taskDeps);
          taskByNameMap.put(task.getName(), task);
       }
 
-      // We couldn't get full set of dependencies so we will complete it now
       for (GradleTask task : tasks)
       {
-         List<String> deps = taskDepsMap.get(task);
-         for (String depName : deps)
+         for (String depName : taskDepsMap.get(task))
          {
             task.getDependsOn().add(taskByNameMap.get(depName));
          }
@@ -223,28 +289,20 @@ public class GradleModelLoadUtil
       return tasks;
    }
 
-   private static List<GradleDependency> depsFromNode(Node projectNode)
+   private static List<GradleDependency> depsFromOutput(ForgeProjectOutput project)
    {
-      // Gradle string -> Best dependency
-      // (one which has the biggest priority, determined by overrides relationship)
+      // Dependency declared in overriding configuration wins
       Map<String, GradleDependency> depByString = new HashMap<>();
 
-      for (Node depNode : projectNode.getSingle("dependencies").get("dependency"))
+      for (ForgeDependencyOutput depOutput : project.getDependencies())
       {
-         GradleDependency gradleDep = depFromNode(depNode);
+         GradleDependency gradleDep = depFromOutput(depOutput);
          String gradleString = gradleDep.toGradleString();
-         if (!depByString.containsKey(gradleString))
+         GradleDependency olderDep = depByString.get(gradleString);
+         if (olderDep == null || gradleDep.getConfiguration().overrides(olderDep.getConfiguration()))
          {
             depByString.put(gradleString, gradleDep);
          }
-         else
-         {
-            GradleDependency olderDep = depByString.get(gradleString);
-            if (gradleDep.getConfiguration().overrides(olderDep.getConfiguration()))
-            {
-               depByString.put(gradleString, gradleDep);
-            }
-         }
       }
 
       List<GradleDependency> deps = new ArrayList<>();
@@ -252,46 +310,29 @@ public class GradleModelLoadUtil
       return deps;
    }
 
-   private static List<GradleDependency> managedDepsFromNode(Node projectNode)
+   private static List<GradleDependency> managedDepsFromOutput(ForgeProjectOutput project)
    {
       List<GradleDependency> deps = new ArrayList<>();
-      for (Node depNode : projectNode.getSingle("managedDependencies").get("dependency"))
+      for (ForgeDependencyOutput depOutput : project.getManagedDependencies())
       {
-         deps.add(depFromNode(depNode));
+         deps.add(depFromOutput(depOutput));
       }
       return deps;
    }
 
-   private static GradleDependency depFromNode(Node depNode)
+   private static GradleDependency depFromOutput(ForgeDependencyOutput depOutput)
    {
-      String group = depNode.getSingle("group").getText().trim();
-      String name = depNode.getSingle("name").getText().trim();
-      String version = depNode.getSingle("version").getText().trim();
-      String config = depNode.getSingle("configuration").getText().trim();
-
       GradleDependencyBuilder depBuilder = GradleDependencyBuilder.create()
-               .setGroup(group)
-               .setName(name)
-               .setVersion(version)
-               .setConfigurationName(config);
-
-      depBuilder = loadClassifierAndPackagingFromNode(depBuilder, depNode);
-      depBuilder = loadExcludedDependenciesFromNode(depBuilder, depNode);
-
-      return depBuilder;
-   }
-
-   private static GradleDependencyBuilder loadClassifierAndPackagingFromNode(
-            GradleDependencyBuilder depBuilder,
-            Node depNode)
-   {
-      Node artifactsNode = depNode.getSingle("artifacts");
-      Node artifactNode = artifactsNode != null ? artifactsNode.getSingle("artifact") : null;
+               .setGroup(text(depOutput.getGroup()))
+               .setName(text(depOutput.getName()))
+               .setVersion(text(depOutput.getVersion()))
+               .setConfigurationName(text(depOutput.getConfiguration()));
 
-      if (artifactNode != null)
+      if (!depOutput.getArtifacts().isEmpty())
       {
-         String classifier = artifactNode.getSingle("classifier").getText().trim();
-         String type = artifactNode.getSingle("type").getText().trim();
+         ForgeArtifactOutput artifact = depOutput.getArtifacts().get(0);
+         String classifier = text(artifact.getClassifier());
+         String type = text(artifact.getType());
 
          if (!Strings.isNullOrEmpty(classifier))
          {
@@ -304,109 +345,94 @@ public class GradleModelLoadUtil
          }
       }
 
-      return depBuilder;
-   }
-
-   private static GradleDependencyBuilder loadExcludedDependenciesFromNode(
-            GradleDependencyBuilder depBuilder,
-            Node depNode)
-   {
-      Node excludeRulesNode = depNode.getSingle("excludeRules");
-
-      if (excludeRulesNode == null)
-      {
-         return depBuilder;
-      }
-
-      List<GradleDependency> excludedDependencies = Lists.newArrayList();
-      for (Node excludeRuleNode : excludeRulesNode.get("excludeRule"))
+      if (!depOutput.getExcludeRules().isEmpty())
       {
-         String group = excludeRuleNode.getSingle("group").getText().trim();
-         String module = excludeRuleNode.getSingle("module").getText().trim();
-         excludedDependencies.add(GradleDependencyBuilder.create()
-                  .setGroup(group).setName(module));
+         List<GradleDependency> excludedDependencies = Lists.newArrayList();
+         for (ForgeExcludeRuleOutput excludeRule : depOutput.getExcludeRules())
+         {
+            excludedDependencies.add(GradleDependencyBuilder.create()
+                     .setGroup(text(excludeRule.getGroup())).setName(text(excludeRule.getModule())));
+         }
+         depBuilder.setExcludedDependencies(excludedDependencies);
       }
-      depBuilder.setExcludedDependencies(excludedDependencies);
 
       return depBuilder;
    }
 
-   private static List<GradlePlugin> pluginsFromNode(Node projectNode)
+   private static List<GradlePlugin> pluginsFromOutput(ForgeProjectOutput project)
    {
       List<GradlePlugin> plugins = new ArrayList<>();
-      for (Node pluginNode : projectNode.getSingle("plugins").get("plugin"))
+      for (String clazz : project.getPlugins())
       {
-         plugins.add(pluginFromNode(pluginNode));
+         plugins.add(GradlePluginBuilder.create()
+                  .setClazz(text(clazz)));
       }
       return plugins;
    }
 
-   private static GradlePlugin pluginFromNode(Node pluginNode)
-   {
-      String clazz = pluginNode.getSingle("class").getText().trim();
-      return GradlePluginBuilder.create()
-               .setClazz(clazz);
-   }
-
-   private static List<GradleRepository> reposFromNode(Node projectNode)
+   private static List<GradleRepository> reposFromOutput(ForgeProjectOutput project)
    {
       List<GradleRepository> repos = new ArrayList<>();
-      for (Node repoNode : projectNode.getSingle("repositories").get("repository"))
+      for (ForgeRepositoryOutput repoOutput : project.getRepositories())
       {
-         String name = repoNode.getSingle("name").getText().trim();
-         String url = repoNode.getSingle("url").getText().trim();
          repos.add(GradleRepositoryBuilder.create()
-                  .setName(name)
-                  .setUrl(url));
+                  .setName(text(repoOutput.getName()))
+                  .setUrl(text(repoOutput.getUrl())));
       }
       return repos;
    }
 
-   private static List<GradleSourceSet> sourceSetsFromNode(Node projectNode)
+   private static List<GradleSourceSet> sourceSetsFromOutput(ForgeProjectOutput project)
    {
       List<GradleSourceSet> sourceSets = new ArrayList<>();
-      for (Node sourceSetNode : projectNode.getSingle("sourceSets").get("sourceSet"))
+      for (ForgeSourceSetOutput sourceSetOutput : project.getSourceSets())
       {
-         sourceSets.add(sourceSetFromNode(sourceSetNode));
+         sourceSets.add(GradleSourceSetBuilder.create()
+                  .setName(text(sourceSetOutput.getName()))
+                  .setJavaDirectories(sourceDirectoriesFromOutput(sourceSetOutput.getJavaDirectories()))
+                  .setResourceDirectories(sourceDirectoriesFromOutput(sourceSetOutput.getResourceDirectories())));
       }
       return sourceSets;
    }
 
-   private static GradleSourceSet sourceSetFromNode(Node sourceSetNode)
+   private static List<GradleSourceDirectory> sourceDirectoriesFromOutput(List<String> paths)
    {
-      String name = sourceSetNode.getSingle("name").getText().trim();
-      List<GradleSourceDirectory> javaSourceDirs = new ArrayList<>();
-      for (Node directoryNode : sourceSetNode.getSingle("java").get("directory"))
-      {
-         javaSourceDirs.add(sourceDirectoryFromNode(directoryNode));
-      }
-      List<GradleSourceDirectory> resourceSourceDirs = new ArrayList<>();
-      for (Node directoryNode : sourceSetNode.getSingle("resources").get("directory"))
+      List<GradleSourceDirectory> dirs = new ArrayList<>();
+      for (String path : paths)
       {
-         resourceSourceDirs.add(sourceDirectoryFromNode(directoryNode));
+         dirs.add(GradleSourceDirectoryBuilder.create()
+                  .setPath(text(path)));
       }
-      return GradleSourceSetBuilder.create()
-               .setName(name)
-               .setJavaDirectories(javaSourceDirs)
-               .setResourceDirectories(resourceSourceDirs);
+      return dirs;
    }
 
-   private static GradleSourceDirectory sourceDirectoryFromNode(Node directoryNode)
+   private static Map<String, String> propertiesFromOutput(ForgeProjectOutput project)
    {
-      String path = directoryNode.getText().trim();
-      return GradleSourceDirectoryBuilder.create()
-               .setPath(path);
+      Map<String, String> properties = Maps.newHashMap();
+      for (Map.Entry<String, String> entry : project.getProperties().entrySet())
+      {
+         properties.put(text(entry.getKey()), text(entry.getValue()));
+      }
+      return properties;
    }
 
-   private static Map<String, String> propertiesFromNode(Node projectNode)
+   static String archiveNameFromPath(String archivePath)
    {
-      Map<String, String> properties = Maps.newHashMap();
-      for (Node propertyNode : projectNode.getSingle("properties").get("property"))
+      if (!Strings.isNullOrEmpty(archivePath))
       {
-         String key = propertyNode.getSingle("key").getText().trim();
-         String value = propertyNode.getSingle("value").getText().trim();
-         properties.put(key, value);
+         return archivePath.substring(archivePath.lastIndexOf("/") + 1, archivePath.lastIndexOf("."));
       }
-      return properties;
+      else
+      {
+         return "";
+      }
+   }
+
+   /**
+    * Converts model value the same way as it would be printed to and read back from forge-output.xml.
+    */
+   private static String text(Object value)
+   {
+      return String.valueOf(value).trim();
    }
 }
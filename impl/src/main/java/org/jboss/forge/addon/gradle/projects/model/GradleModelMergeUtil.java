@@ -6,6 +6,7 @@
  */
 package org.jboss.forge.addon.gradle.projects.model;
 
+import java.io.File;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -13,6 +14,7 @@ import java.util.Set;
 import org.gradle.internal.impldep.com.google.common.collect.Lists;
 import org.gradle.internal.impldep.com.google.common.collect.Maps;
 import org.jboss.forge.addon.gradle.parser.GradleSourceUtil;
+import org.jboss.forge.addon.gradle.parser.SourceEditBatch;
 import org.jboss.forge.furnace.util.Strings;
 
 /**
@@ -20,110 +22,299 @@ import org.jboss.forge.furnace.util.Strings;
  */
 public class GradleModelMergeUtil
 {
+   /**
+    * Single change of the script, which adds its edits to given batch.
+    */
+   private interface SourceChange
+   {
+      void addTo(SourceEditBatch batch);
+   }
+
    private GradleModelMergeUtil()
    {
    }
 
    /**
     * Calculates differences between the old and new model, and then persists these changes in script.
+    * <p/>
+    * All changes are computed against a single parse of the script and applied in one pass, unless some of them
+    * depend on others (e.g. many dependencies are inserted into a closure which doesn't exist yet), then they are
+    * applied one by one.
     */
    public static String merge(String source, GradleModel oldModel, GradleModel newModel)
    {
+      List<SourceChange> changes = changes(oldModel, newModel);
+
+      SourceEditBatch batch = new SourceEditBatch(source);
+      for (SourceChange change : changes)
+      {
+         change.addTo(batch);
+      }
+      if (!batch.isConflicting())
+      {
+         return batch.apply();
+      }
+
+      // Every change is applied to the result of the previous one, which is parsed again only incrementally
+      SourceEditBatch changeBatch = new SourceEditBatch(batch.getParser());
+      for (SourceChange change : changes)
+      {
+         change.addTo(changeBatch);
+         changeBatch = changeBatch.next();
+      }
+      return changeBatch.getSource();
+   }
+
+   private static List<SourceChange> changes(GradleModel oldModel, GradleModel newModel)
+   {
+      List<SourceChange> changes = Lists.newArrayList();
+
       if (!newModel.getGroup().equals(oldModel.getGroup()))
       {
-         source = setGroup(source, newModel.getGroup());
+         setGroup(changes, newModel.getGroup());
       }
       if (!newModel.getVersion().equals(oldModel.getVersion()))
       {
-         source = setVersion(source, newModel.getVersion());
+         setVersion(changes, newModel.getVersion());
       }
       if (!newModel.getArchiveName().equals(oldModel.getArchiveName()))
       {
-         source = setArchiveName(source, newModel.getArchiveName());
+         setArchiveName(changes, newModel.getArchiveName());
       }
       if (!newModel.getPackaging().equals(oldModel.getPackaging()))
       {
-         source = setPackaging(source, newModel.getPackaging());
+         setPackaging(changes, newModel.getPackaging());
       }
       if (!newModel.getSourceCompatibility().equals(oldModel.getSourceCompatibility()))
       {
-         source = setSourceCompatibility(source, newModel.getSourceCompatibility());
+         setSourceCompatibility(changes, newModel.getSourceCompatibility());
       }
       if (!newModel.getTargetCompatiblity().equals(oldModel.getTargetCompatiblity()))
       {
-         source = setTargetCompatibility(source, newModel.getTargetCompatiblity());
+         setTargetCompatibility(changes, newModel.getTargetCompatiblity());
       }
 
-      source = addTasks(source, newModel.getTasks());
+      addTasks(changes, newModel.getTasks());
 
-      source = addDependencies(source, subtract(newModel.getDependencies(), oldModel.getDependencies()));
-      source = removeDependencies(source, subtract(oldModel.getDependencies(), newModel.getDependencies()));
+      addDependencies(changes, subtract(newModel.getDependencies(), oldModel.getDependencies()));
+      removeDependencies(changes, subtract(oldModel.getDependencies(), newModel.getDependencies()));
 
-      source = addManagedDependencies(source,
+      addManagedDependencies(changes,
                subtract(newModel.getManagedDependencies(), oldModel.getManagedDependencies()));
-      source = removeManagedDependencies(source,
+      removeManagedDependencies(changes,
                subtract(oldModel.getManagedDependencies(), newModel.getManagedDependencies()));
 
-      source = addPlugins(source, subtract(newModel.getPlugins(), oldModel.getPlugins()));
-      source = removePlugins(source, subtract(oldModel.getPlugins(), newModel.getPlugins()));
+      addPlugins(changes, subtract(newModel.getPlugins(), oldModel.getPlugins()));
+      removePlugins(changes, subtract(oldModel.getPlugins(), newModel.getPlugins()));
+
+      addRepositories(changes, subtract(newModel.getRepositories(), oldModel.getRepositories()));
+      removeRepositories(changes, subtract(oldModel.getRepositories(), newModel.getRepositories()));
+
+      removeProperties(changes, subtract(oldModel.getProperties(), newModel.getProperties()).keySet());
+      setProperties(changes, subtract(newModel.getProperties(), oldModel.getProperties()));
+
+      return changes;
+   }
+
+   /**
+    * Applies the same differences between the old and new model, which {@link #merge(String, GradleModel, GradleModel)}
+    * persists in script, to the old model, including their impact on the effective model. This spares evaluation of
+    * the model after changes which are made by Forge.
+    * <p/>
+    * Returns null if the effective model can't be derived from these changes, e.g. when a plugin is applied, and it
+    * must be evaluated again.
+    */
+   public static GradleModel apply(GradleModel oldModel, GradleModel newModel)
+   {
+      for (GradleModelSection section : GradleModelSection.values())
+      {
+         if (!oldModel.isSectionLoaded(section))
+         {
+            return null;
+         }
+      }
+      if (!newModel.getName().equals(oldModel.getName())
+               || !newModel.getPackaging().equals(oldModel.getPackaging())
+               || !subtractPlugins(newModel.getPlugins(), oldModel).isEmpty()
+               || !subtractPlugins(oldModel.getPlugins(), newModel).isEmpty())
+      {
+         // Plugins add tasks, configurations and source sets
+         return null;
+      }
+
+      GradleModelBuilder result = GradleModelBuilder.create(oldModel);
+      result.setGroup(newModel.getGroup());
+      result.setVersion(newModel.getVersion());
+      result.setSourceCompatibility(newModel.getSourceCompatibility());
+      result.setTargetCompatibility(newModel.getTargetCompatiblity());
+      if (!newModel.getArchiveName().equals(oldModel.getArchiveName()))
+      {
+         result.setArchiveName(newModel.getArchiveName());
+         if (!Strings.isNullOrEmpty(oldModel.getArchivePath()))
+         {
+            File archiveDirectory = new File(oldModel.getArchivePath()).getParentFile();
+            result.setArchivePath(new File(archiveDirectory, newModel.getArchiveName()).getPath());
+         }
+      }
+
+      for (GradleTask task : newModel.getTasks())
+      {
+         if (!result.hasEffectiveTask(task))
+         {
+            result.getEffectiveTasks().add(task);
+         }
+      }
+
+      if (!applyDependencies(result, oldModel, newModel) || !applyManagedDependencies(result, oldModel, newModel))
+      {
+         return null;
+      }
 
-      source = addRepositories(source, subtract(newModel.getRepositories(), oldModel.getRepositories()));
-      source = removeRepositories(source, subtract(oldModel.getRepositories(), newModel.getRepositories()));
+      for (GradleRepository repo : subtractRepositories(newModel.getRepositories(), oldModel))
+      {
+         result.addRepository(repo);
+         result.getEffectiveRepositories().add(repo);
+      }
+      for (GradleRepository repo : subtractRepositories(oldModel.getRepositories(), newModel))
+      {
+         result.removeRepository(repo);
+         result.getEffectiveRepositories().remove(repoWithUrl(result.getEffectiveRepositories(), repo.getUrl()));
+      }
 
-      source = removeProperties(source, subtract(oldModel.getProperties(), newModel.getProperties()).keySet());
-      source = setProperties(source, subtract(newModel.getProperties(), oldModel.getProperties()));
+      for (String property : subtract(oldModel.getProperties(), newModel.getProperties()).keySet())
+      {
+         result.removeProperty(property);
+         result.getEffectiveProperties().remove(property);
+      }
+      for (Map.Entry<String, String> entry : subtract(newModel.getProperties(), oldModel.getProperties()).entrySet())
+      {
+         result.setProperty(entry.getKey(), entry.getValue());
+         result.getEffectiveProperties().put(entry.getKey(), entry.getValue());
+      }
 
-      return source;
+      return result;
+   }
+
+   private static boolean applyDependencies(GradleModelBuilder result, GradleModel oldModel, GradleModel newModel)
+   {
+      List<GradleDependency> added = subtract(newModel.getDependencies(), oldModel.getDependencies());
+      List<GradleDependency> removed = subtract(oldModel.getDependencies(), newModel.getDependencies());
+      List<GradleDependency> changed = Lists.newArrayList(added);
+      changed.addAll(removed);
+      for (GradleDependency dep : changed)
+      {
+         // Version of a direct dependency comes from managed dependencies, maybe from another project
+         if (Strings.isNullOrEmpty(dep.getVersion()) || Strings.isNullOrEmpty(dep.getConfigurationName()))
+         {
+            return false;
+         }
+      }
+      for (GradleDependency dep : added)
+      {
+         result.addDependency(dep);
+         result.getEffectiveDependencies().add(dep);
+      }
+      for (GradleDependency dep : removed)
+      {
+         result.removeDependency(dep);
+         result.getEffectiveDependencies().remove(dep);
+      }
+      return true;
+   }
+
+   private static boolean applyManagedDependencies(GradleModelBuilder result, GradleModel oldModel,
+            GradleModel newModel)
+   {
+      List<GradleDependency> added = subtract(newModel.getManagedDependencies(), oldModel.getManagedDependencies());
+      List<GradleDependency> removed = subtract(oldModel.getManagedDependencies(), newModel.getManagedDependencies());
+      List<GradleDependency> changed = Lists.newArrayList(added);
+      changed.addAll(removed);
+      for (GradleDependency managedDep : changed)
+      {
+         // Changes version of direct dependencies
+         for (GradleDependency dep : newModel.getDependencies())
+         {
+            if (Strings.isNullOrEmpty(dep.getVersion()) && dep.getGroup().equals(managedDep.getGroup())
+                     && dep.getName().equals(managedDep.getName()))
+            {
+               return false;
+            }
+         }
+      }
+      for (GradleDependency dep : added)
+      {
+         result.addManagedDependency(dep);
+         result.getEffectiveManagedDependencies().add(dep);
+      }
+      for (GradleDependency dep : removed)
+      {
+         result.removeManagedDependency(dep);
+         result.getEffectiveManagedDependencies().remove(dep);
+      }
+      return true;
    }
 
-   private static String setGroup(String source, String group)
+   private static void setGroup(List<SourceChange> changes, String group)
    {
-      return GradleSourceUtil.setProperty(source, "group", group);
+      setProperty(changes, "group", group);
    }
 
-   private static String setVersion(String source, String version)
+   private static void setVersion(List<SourceChange> changes, String version)
    {
-      return GradleSourceUtil.setProperty(source, "version", version);
+      setProperty(changes, "version", version);
    }
 
-   private static String setArchiveName(String source, String archiveName)
+   private static void setArchiveName(List<SourceChange> changes, final String archiveName)
    {
-      return GradleSourceUtil.setArchiveName(source, archiveName);
+      changes.add(new SourceChange()
+      {
+         @Override
+         public void addTo(SourceEditBatch batch)
+         {
+            GradleSourceUtil.setArchiveName(batch, archiveName);
+         }
+      });
    }
-   
-   private static String setSourceCompatibility(String source, String sourceCompatibility)
+
+   private static void setSourceCompatibility(List<SourceChange> changes, String sourceCompatibility)
    {
-      return GradleSourceUtil.setProperty(source, "sourceCompatibility", sourceCompatibility);
+      setProperty(changes, "sourceCompatibility", sourceCompatibility);
    }
-   
-   private static String setTargetCompatibility(String source, String targetCompatibility)
+
+   private static void setTargetCompatibility(List<SourceChange> changes, String targetCompatibility)
    {
-      return GradleSourceUtil.setProperty(source, "targetCompatibility", targetCompatibility);
+      setProperty(changes, "targetCompatibility", targetCompatibility);
    }
 
-   private static String setPackaging(String source, String packaging)
+   private static void setPackaging(List<SourceChange> changes, String packaging)
    {
       for (GradlePluginType type : GradlePluginType.values())
       {
          if (type.getPackaging().equals(packaging))
          {
-            source = GradleSourceUtil.insertPlugin(source, !Strings.isNullOrEmpty(type.getShortName())
+            addPlugin(changes, !Strings.isNullOrEmpty(type.getShortName())
                      ? type.getShortName()
                      : type.getClazz());
-            return source;
+            return;
          }
       }
       throw new IllegalArgumentException("There is no plugin which provides " + packaging + " packaging");
    }
 
-   private static String addTasks(String source, List<GradleTask> tasks)
+   private static void addTasks(List<SourceChange> changes, List<GradleTask> tasks)
    {
-      for (GradleTask task : tasks)
+      for (final GradleTask task : tasks)
       {
-         source = GradleSourceUtil.insertTask(source, task.getName(), dependsOn(task.getDependsOn()),
-                  task.getType(), task.getCode());
+         changes.add(new SourceChange()
+         {
+            @Override
+            public void addTo(SourceEditBatch batch)
+            {
+               GradleSourceUtil.insertTask(batch, task.getName(), dependsOn(task.getDependsOn()),
+                        task.getType(), task.getCode());
+            }
+         });
       }
-      return source;
    }
 
    private static List<String> dependsOn(List<GradleTask> tasks)
@@ -136,109 +327,222 @@ public class GradleModelMergeUtil
       return names;
    }
 
-   private static String addDependencies(String source, List<GradleDependency> deps)
+   private static void addDependencies(List<SourceChange> changes, List<GradleDependency> deps)
    {
-      for (GradleDependency dep : deps)
+      for (final GradleDependency dep : deps)
       {
-         if (!Strings.isNullOrEmpty(dep.getVersion()) && !Strings.isNullOrEmpty(dep.getConfigurationName()))
+         changes.add(new SourceChange()
          {
-            source = GradleSourceUtil.insertDependency(source, dep);
-         }
-         else
-         {
-            source = GradleSourceUtil.insertDirectDependency(source, dep.getGroup(), dep.getName());
-         }
+            @Override
+            public void addTo(SourceEditBatch batch)
+            {
+               if (!Strings.isNullOrEmpty(dep.getVersion()) && !Strings.isNullOrEmpty(dep.getConfigurationName()))
+               {
+                  GradleSourceUtil.insertDependency(batch, dep);
+               }
+               else
+               {
+                  GradleSourceUtil.insertDirectDependency(batch, dep.getGroup(), dep.getName());
+               }
+            }
+         });
       }
-      return source;
    }
 
-   private static String removeDependencies(String source, List<GradleDependency> deps)
+   private static void removeDependencies(List<SourceChange> changes, List<GradleDependency> deps)
    {
-      for (GradleDependency dep : deps)
+      for (final GradleDependency dep : deps)
       {
-         if (!Strings.isNullOrEmpty(dep.getVersion()) && !Strings.isNullOrEmpty(dep.getConfigurationName()))
-         {
-            source = GradleSourceUtil.removeDependency(source, dep);
-         }
-         else
+         changes.add(new SourceChange()
          {
-            source = GradleSourceUtil.removeDirectDependency(source, dep.getGroup(), dep.getName());
-         }
+            @Override
+            public void addTo(SourceEditBatch batch)
+            {
+               if (!Strings.isNullOrEmpty(dep.getVersion()) && !Strings.isNullOrEmpty(dep.getConfigurationName()))
+               {
+                  GradleSourceUtil.removeDependency(batch, dep);
+               }
+               else
+               {
+                  GradleSourceUtil.removeDirectDependency(batch, dep.getGroup(), dep.getName());
+               }
+            }
+         });
       }
-      return source;
    }
 
-   private static String addManagedDependencies(String source, List<GradleDependency> deps)
+   private static void addManagedDependencies(List<SourceChange> changes, List<GradleDependency> deps)
    {
-      for (GradleDependency dep : deps)
+      for (final GradleDependency dep : deps)
       {
-         source = GradleSourceUtil.insertManagedDependency(source, dep);
+         changes.add(new SourceChange()
+         {
+            @Override
+            public void addTo(SourceEditBatch batch)
+            {
+               GradleSourceUtil.insertManagedDependency(batch, dep);
+            }
+         });
       }
-      return source;
    }
 
-   private static String removeManagedDependencies(String source, List<GradleDependency> deps)
+   private static void removeManagedDependencies(List<SourceChange> changes, List<GradleDependency> deps)
    {
-      for (GradleDependency dep : deps)
+      for (final GradleDependency dep : deps)
       {
-         source = GradleSourceUtil.removeManagedDependency(source, dep);
+         changes.add(new SourceChange()
+         {
+            @Override
+            public void addTo(SourceEditBatch batch)
+            {
+               GradleSourceUtil.removeManagedDependency(batch, dep);
+            }
+         });
       }
-      return source;
    }
 
-   private static String addPlugins(String source, List<GradlePlugin> plugins)
+   private static void addPlugins(List<SourceChange> changes, List<GradlePlugin> plugins)
    {
       for (GradlePlugin plugin : plugins)
       {
-         source = GradleSourceUtil.insertPlugin(source, plugin.getClazz());
+         addPlugin(changes, plugin.getClazz());
       }
-      return source;
    }
 
-   private static String removePlugins(String source, List<GradlePlugin> plugins)
+   private static void addPlugin(List<SourceChange> changes, final String clazz)
    {
-      for (GradlePlugin plugin : plugins)
+      changes.add(new SourceChange()
       {
-         source = GradleSourceUtil.removePlugin(source, plugin.getClazz());
+         @Override
+         public void addTo(SourceEditBatch batch)
+         {
+            GradleSourceUtil.insertPlugin(batch, clazz);
+         }
+      });
+   }
+
+   private static void removePlugins(List<SourceChange> changes, List<GradlePlugin> plugins)
+   {
+      for (final GradlePlugin plugin : plugins)
+      {
+         changes.add(new SourceChange()
+         {
+            @Override
+            public void addTo(SourceEditBatch batch)
+            {
+               GradleSourceUtil.removePlugin(batch, plugin.getClazz());
+            }
+         });
       }
-      return source;
    }
 
-   private static String addRepositories(String source, List<GradleRepository> repos)
+   private static void addRepositories(List<SourceChange> changes, List<GradleRepository> repos)
    {
-      for (GradleRepository repo : repos)
+      for (final GradleRepository repo : repos)
       {
-         source = GradleSourceUtil.insertRepository(source, repo.getUrl());
+         changes.add(new SourceChange()
+         {
+            @Override
+            public void addTo(SourceEditBatch batch)
+            {
+               GradleSourceUtil.insertRepository(batch, repo.getUrl());
+            }
+         });
       }
-      return source;
    }
 
-   private static String removeRepositories(String source, List<GradleRepository> repos)
+   private static void removeRepositories(List<SourceChange> changes, List<GradleRepository> repos)
    {
-      for (GradleRepository repo : repos)
+      for (final GradleRepository repo : repos)
       {
-         source = GradleSourceUtil.removeRepository(source, repo.getUrl());
+         changes.add(new SourceChange()
+         {
+            @Override
+            public void addTo(SourceEditBatch batch)
+            {
+               GradleSourceUtil.removeRepository(batch, repo.getUrl());
+            }
+         });
       }
-      return source;
    }
 
-   private static String setProperties(String source, Map<String, String> properties)
+   private static void setProperties(List<SourceChange> changes, Map<String, String> properties)
    {
       for (Map.Entry<String, String> entry : properties.entrySet())
       {
-         source = GradleSourceUtil.setProperty(source, GradleSourceUtil.PROJECT_PROPERTY_PREFIX + entry.getKey(),
-                  entry.getValue());
+         setProperty(changes, GradleSourceUtil.PROJECT_PROPERTY_PREFIX + entry.getKey(), entry.getValue());
+      }
+   }
+
+   private static void setProperty(List<SourceChange> changes, final String key, final String value)
+   {
+      changes.add(new SourceChange()
+      {
+         @Override
+         public void addTo(SourceEditBatch batch)
+         {
+            GradleSourceUtil.setProperty(batch, key, value);
+         }
+      });
+   }
+
+   private static void removeProperties(List<SourceChange> changes, Set<String> properties)
+   {
+      for (final String property : properties)
+      {
+         changes.add(new SourceChange()
+         {
+            @Override
+            public void addTo(SourceEditBatch batch)
+            {
+               GradleSourceUtil.removeProperty(batch, GradleSourceUtil.PROJECT_PROPERTY_PREFIX + property);
+            }
+         });
       }
-      return source;
    }
 
-   private static String removeProperties(String source, Set<String> properties)
+   /**
+    * Returns plugins which are not applied in given model.
+    */
+   private static List<GradlePlugin> subtractPlugins(List<GradlePlugin> plugins, GradleModel model)
    {
-      for (String property : properties)
+      List<GradlePlugin> result = Lists.newArrayList();
+      for (GradlePlugin plugin : plugins)
       {
-         source = GradleSourceUtil.removeProperty(source, GradleSourceUtil.PROJECT_PROPERTY_PREFIX + property);
+         if (!model.hasPlugin(plugin))
+         {
+            result.add(plugin);
+         }
+      }
+      return result;
+   }
+
+   /**
+    * Returns repositories which are not declared in given model.
+    */
+   private static List<GradleRepository> subtractRepositories(List<GradleRepository> repos, GradleModel model)
+   {
+      List<GradleRepository> result = Lists.newArrayList();
+      for (GradleRepository repo : repos)
+      {
+         if (!model.hasRepository(repo))
+         {
+            result.add(repo);
+         }
+      }
+      return result;
+   }
+
+   private static GradleRepository repoWithUrl(List<GradleRepository> repos, String url)
+   {
+      for (GradleRepository repo : repos)
+      {
+         if (repo.getUrl().equals(url))
+         {
+            return repo;
+         }
       }
-      return source;
+      return null;
    }
 
    /**
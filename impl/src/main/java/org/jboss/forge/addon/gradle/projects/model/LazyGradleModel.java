@@ -0,0 +1,403 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects.model;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Model which loads its two parts separately, only when they are needed. Direct model is parsed from the build script
+ * on first access to a direct section, effective model is evaluated (usually by running Gradle, which takes a
+ * while) on first access to an effective section.
+ * <p/>
+ * Some sections of the effective model may be evaluated ahead by {@link #getModel(Set)}, then they are read from the
+ * partially evaluated model until the full effective model is needed.
+ * <p/>
+ * Effective model must contain the direct model of the same script, it is then used for all sections.
+ * <p/>
+ * Effective model evaluated from an older version of the script (e.g. a persisted one) may be given as a stale model.
+ * Its loaded sections are used as the effective sections and project information until they are evaluated again.
+ * Direct sections are never read from it.
+ * 
+ * @see GradleModel
+ * 
+ * @author Adam Wyłuda
+ */
+public class LazyGradleModel implements GradleModel
+{
+   private final String script;
+   private final Function<Set<GradleModelSection>, GradleModel> effectiveModelLoader;
+
+   private GradleModel directModel;
+   private GradleModel partialModel;
+   private GradleModel staleModel;
+   private GradleModel effectiveModel;
+
+   /**
+    * @param effectiveModelLoader Evaluates effective model with given sections loaded.
+    */
+   public LazyGradleModel(String script, Function<Set<GradleModelSection>, GradleModel> effectiveModelLoader)
+   {
+      this.script = script;
+      this.effectiveModelLoader = effectiveModelLoader;
+   }
+
+   /**
+    * @param partialModel Model with some sections of the effective model evaluated ahead, e.g. by a build.
+    * @param effectiveModelLoader Evaluates effective model with given sections loaded.
+    */
+   public LazyGradleModel(String script, GradleModel partialModel,
+            Function<Set<GradleModelSection>, GradleModel> effectiveModelLoader)
+   {
+      this(script, effectiveModelLoader);
+      this.partialModel = partialModel;
+   }
+
+   /**
+    * @param partialModel Model with some sections of the effective model evaluated ahead, may be null.
+    * @param staleModel Effective model evaluated from an older version of the script, may be null.
+    * @param effectiveModelLoader Evaluates effective model with given sections loaded.
+    */
+   public LazyGradleModel(String script, GradleModel partialModel, GradleModel staleModel,
+            Function<Set<GradleModelSection>, GradleModel> effectiveModelLoader)
+   {
+      this(script, partialModel, effectiveModelLoader);
+      this.staleModel = staleModel;
+   }
+
+   /**
+    * Returns true if the effective model has been loaded already.
+    */
+   public synchronized boolean isEffectiveModelLoaded()
+   {
+      return effectiveModel != null;
+   }
+
+   /**
+    * Returns effective model, loading it if necessary.
+    */
+   public synchronized GradleModel getEffectiveModel()
+   {
+      if (effectiveModel == null)
+      {
+         effectiveModel = effectiveModelLoader.apply(EnumSet.allOf(GradleModelSection.class));
+         partialModel = null;
+         staleModel = null;
+      }
+      return effectiveModel;
+   }
+
+   /**
+    * Returns this model with at least given sections of the effective model loaded, evaluating only the missing
+    * sections and the ones which were evaluated before. Sections of the stale model aren't evaluated again.
+    */
+   public synchronized GradleModel getModel(Set<GradleModelSection> sections)
+   {
+      if (effectiveModel != null || sections.isEmpty() && (partialModel != null || staleModel != null))
+      {
+         return this;
+      }
+      if (staleModel != null && isLoaded(staleModel, sections))
+      {
+         return this;
+      }
+
+      Set<GradleModelSection> requested = EnumSet.noneOf(GradleModelSection.class);
+      requested.addAll(sections);
+      if (partialModel != null)
+      {
+         for (GradleModelSection section : GradleModelSection.values())
+         {
+            if (partialModel.isSectionLoaded(section))
+            {
+               requested.add(section);
+            }
+         }
+      }
+
+      if (requested.size() == GradleModelSection.values().length)
+      {
+         getEffectiveModel();
+      }
+      else if (partialModel == null || !isLoaded(partialModel, sections))
+      {
+         partialModel = effectiveModelLoader.apply(requested);
+      }
+      return this;
+   }
+
+   @Override
+   public synchronized boolean isSectionLoaded(GradleModelSection section)
+   {
+      return effectiveModel != null || partialModel != null && partialModel.isSectionLoaded(section)
+               || staleModel != null && staleModel.isSectionLoaded(section);
+   }
+
+   private static boolean isLoaded(GradleModel model, Set<GradleModelSection> sections)
+   {
+      for (GradleModelSection section : sections)
+      {
+         if (!model.isSectionLoaded(section))
+         {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   private synchronized GradleModel direct()
+   {
+      if (effectiveModel != null)
+      {
+         return effectiveModel;
+      }
+      if (partialModel != null)
+      {
+         return partialModel;
+      }
+      if (directModel == null)
+      {
+         directModel = GradleModelLoadUtil.load(script);
+      }
+      return directModel;
+   }
+
+   /**
+    * Returns model with project information, which is evaluated with every section, so without any section if no
+    * model was evaluated yet.
+    */
+   private synchronized GradleModel project()
+   {
+      getModel(EnumSet.noneOf(GradleModelSection.class));
+      if (effectiveModel != null)
+      {
+         return effectiveModel;
+      }
+      return partialModel != null ? partialModel : staleModel;
+   }
+
+   private synchronized GradleModel effective(GradleModelSection section)
+   {
+      if (partialModel != null && partialModel.isSectionLoaded(section))
+      {
+         return partialModel;
+      }
+      if (staleModel != null && staleModel.isSectionLoaded(section))
+      {
+         return staleModel;
+      }
+      return getEffectiveModel();
+   }
+
+   @Override
+   public String getGroup()
+   {
+      return project().getGroup();
+   }
+
+   @Override
+   public String getName()
+   {
+      return project().getName();
+   }
+
+   @Override
+   public String getVersion()
+   {
+      return project().getVersion();
+   }
+
+   @Override
+   public String getPackaging()
+   {
+      return project().getPackaging();
+   }
+
+   @Override
+   public String getArchiveName()
+   {
+      return project().getArchiveName();
+   }
+
+   @Override
+   public String getProjectPath()
+   {
+      return project().getProjectPath();
+   }
+
+   @Override
+   public String getRootProjectPath()
+   {
+      return project().getRootProjectPath();
+   }
+
+   @Override
+   public String getArchivePath()
+   {
+      return project().getArchivePath();
+   }
+
+   @Override
+   public String getSourceCompatibility()
+   {
+      return project().getSourceCompatibility();
+   }
+
+   @Override
+   public String getTargetCompatiblity()
+   {
+      return project().getTargetCompatiblity();
+   }
+
+   @Override
+   public List<GradleTask> getTasks()
+   {
+      // Tasks aren't parsed from the script, they come with the evaluated tasks
+      return effective(GradleModelSection.TASKS).getTasks();
+   }
+
+   @Override
+   public List<GradleTask> getEffectiveTasks()
+   {
+      return effective(GradleModelSection.TASKS).getEffectiveTasks();
+   }
+
+   @Override
+   public boolean hasEffectiveTask(GradleTask task)
+   {
+      return effective(GradleModelSection.TASKS).hasEffectiveTask(task);
+   }
+
+   @Override
+   public List<GradleDependency> getDependencies()
+   {
+      return direct().getDependencies();
+   }
+
+   @Override
+   public boolean hasDependency(GradleDependency dep)
+   {
+      return direct().hasDependency(dep);
+   }
+
+   @Override
+   public List<GradleDependency> getEffectiveDependencies()
+   {
+      return effective(GradleModelSection.DEPENDENCIES).getEffectiveDependencies();
+   }
+
+   @Override
+   public boolean hasEffectiveDependency(GradleDependency dependency)
+   {
+      return effective(GradleModelSection.DEPENDENCIES).hasEffectiveDependency(dependency);
+   }
+
+   @Override
+   public List<GradleDependency> getManagedDependencies()
+   {
+      return direct().getManagedDependencies();
+   }
+
+   @Override
+   public boolean hasManagedDependency(GradleDependency dep)
+   {
+      return direct().hasManagedDependency(dep);
+   }
+
+   @Override
+   public List<GradleDependency> getEffectiveManagedDependencies()
+   {
+      return effective(GradleModelSection.MANAGED_DEPENDENCIES).getEffectiveManagedDependencies();
+   }
+
+   @Override
+   public boolean hasEffectiveManagedDependency(GradleDependency dependency)
+   {
+      return effective(GradleModelSection.MANAGED_DEPENDENCIES).hasEffectiveManagedDependency(dependency);
+   }
+
+   @Override
+   public List<GradleProfile> getProfiles()
+   {
+      return effective(GradleModelSection.PROFILES).getProfiles();
+   }
+
+   @Override
+   public boolean hasProfile(GradleProfile profile)
+   {
+      return effective(GradleModelSection.PROFILES).hasProfile(profile);
+   }
+
+   @Override
+   public List<GradlePlugin> getPlugins()
+   {
+      return direct().getPlugins();
+   }
+
+   @Override
+   public boolean hasPlugin(GradlePlugin plugin)
+   {
+      return direct().hasPlugin(plugin);
+   }
+
+   @Override
+   public List<GradlePlugin> getEffectivePlugins()
+   {
+      return effective(GradleModelSection.PLUGINS).getEffectivePlugins();
+   }
+
+   @Override
+   public boolean hasEffectivePlugin(GradlePlugin plugin)
+   {
+      return effective(GradleModelSection.PLUGINS).hasEffectivePlugin(plugin);
+   }
+
+   @Override
+   public List<GradleRepository> getRepositories()
+   {
+      return direct().getRepositories();
+   }
+
+   @Override
+   public boolean hasRepository(GradleRepository repo)
+   {
+      return direct().hasRepository(repo);
+   }
+
+   @Override
+   public List<GradleRepository> getEffectiveRepositories()
+   {
+      return effective(GradleModelSection.REPOSITORIES).getEffectiveRepositories();
+   }
+
+   @Override
+   public boolean hasEffectiveRepository(GradleRepository repo)
+   {
+      return effective(GradleModelSection.REPOSITORIES).hasEffectiveRepository(repo);
+   }
+
+   @Override
+   public Map<String, String> getProperties()
+   {
+      return direct().getProperties();
+   }
+
+   @Override
+   public Map<String, String> getEffectiveProperties()
+   {
+      return effective(GradleModelSection.PROPERTIES).getEffectiveProperties();
+   }
+
+   @Override
+   public List<GradleSourceSet> getEffectiveSourceSets()
+   {
+      return effective(GradleModelSection.SOURCE_SETS).getEffectiveSourceSets();
+   }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects.model.tooling;
+
+import java.util.List;
+
+/**
+ * @author Adam Wyłuda
+ */
+public interface ForgeDependencyOutput
+{
+   String getGroup();
+
+   String getName();
+
+   String getVersion();
+
+   String getConfiguration();
+
+   /**
+    * Returns artifacts of module dependencies, empty for other dependencies.
+    */
+   List<ForgeArtifactOutput> getArtifacts();
+
+   List<ForgeExcludeRuleOutput> getExcludeRules();
+}
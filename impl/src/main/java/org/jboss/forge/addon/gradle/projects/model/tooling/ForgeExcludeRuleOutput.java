@@ -0,0 +1,17 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects.model.tooling;
+
+/**
+ * @author Adam Wyłuda
+ */
+public interface ForgeExcludeRuleOutput
+{
+   String getGroup();
+
+   String getModule();
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects.model.tooling;
+
+import java.util.List;
+
+/**
+ * Tooling API model built by the model builder registered in forgeOutput.gradle. It carries the same information as
+ * the forge-output.xml file written by the forgeOutput task, but it is transferred through the Tooling API connection.
+ * 
+ * @author Adam Wyłuda
+ */
+public interface ForgeOutputModel
+{
+   /**
+    * Returns evaluated model of the project.
+    */
+   ForgeProjectOutput getProject();
+
+   /**
+    * Returns evaluated models of the project profiles.
+    */
+   List<ForgeProfileOutput> getProfiles();
+}
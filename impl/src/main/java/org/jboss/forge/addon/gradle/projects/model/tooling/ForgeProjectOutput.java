@@ -0,0 +1,53 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects.model.tooling;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluated model of a single Gradle project.
+ * 
+ * @author Adam Wyłuda
+ */
+public interface ForgeProjectOutput
+{
+   String getGroup();
+
+   String getName();
+
+   String getVersion();
+
+   String getProjectPath();
+
+   String getRootProjectDirectory();
+
+   String getPackaging();
+
+   String getArchivePath();
+
+   String getSourceCompatibility();
+
+   String getTargetCompatibility();
+
+   Map<String, String> getProperties();
+
+   List<ForgeTaskOutput> getTasks();
+
+   List<ForgeDependencyOutput> getDependencies();
+
+   List<ForgeDependencyOutput> getManagedDependencies();
+
+   List<ForgeRepositoryOutput> getRepositories();
+
+   /**
+    * Returns class names of applied plugins.
+    */
+   List<String> getPlugins();
+
+   List<ForgeSourceSetOutput> getSourceSets();
+}
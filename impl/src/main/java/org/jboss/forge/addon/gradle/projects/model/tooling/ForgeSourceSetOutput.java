@@ -0,0 +1,27 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects.model.tooling;
+
+import java.util.List;
+
+/**
+ * @author Adam Wyłuda
+ */
+public interface ForgeSourceSetOutput
+{
+   String getName();
+
+   /**
+    * Returns Java source directories, relative to the project directory.
+    */
+   List<String> getJavaDirectories();
+
+   /**
+    * Returns resource directories, relative to the project directory.
+    */
+   List<String> getResourceDirectories();
+}
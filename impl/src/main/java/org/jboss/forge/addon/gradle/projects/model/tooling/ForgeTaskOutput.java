@@ -0,0 +1,22 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects.model.tooling;
+
+import java.util.List;
+
+/**
+ * @author Adam Wyłuda
+ */
+public interface ForgeTaskOutput
+{
+   String getName();
+
+   /**
+    * Returns names of tasks which this task depends on.
+    */
+   List<String> getDependsOn();
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.jboss.forge.addon.gradle.projects.model.GradleDependencyBuilder;
+import org.junit.Test;
+
+/**
+ * @author Adam Wyłuda
+ */
+public class GradleScriptDocumentTest
+{
+   private static final String SOURCE = "" +
+            "apply from: 'forge.gradle'\n" +
+            "apply plugin: 'java'\n" +
+            "dependencies {\n" +
+            "    compile 'x:y:z'\n" +
+            "    direct group: 'a', name: 'b'\n" +
+            "}\n" +
+            "allprojects {\n" +
+            "    dependencies {\n" +
+            "        managed group: 'a', name: 'b', version: 'c', configuration: 'compile'\n" +
+            "    }\n" +
+            "}\n" +
+            "repositories {\n" +
+            "    maven {\n" +
+            "        url 'http://repo.com/'\n" +
+            "    }\n" +
+            "}\n" +
+            "ext.property = 'value'\n";
+
+   @Test
+   public void testQueriesMatchGradleSourceUtil()
+   {
+      GradleScriptDocument document = GradleScriptDocument.parse(SOURCE);
+
+      assertEquals(GradleSourceUtil.getDependencies(SOURCE), document.getDependencies());
+      assertEquals(GradleSourceUtil.getDirectDependencies(SOURCE).size(), document.getDirectDependencies().size());
+      assertEquals(GradleSourceUtil.getManagedDependencies(SOURCE), document.getManagedDependencies());
+      assertEquals(GradleSourceUtil.getDirectProperties(SOURCE), document.getDirectProperties());
+      assertTrue(document.includesForgeLibrary());
+   }
+
+   @Test
+   public void testRepeatedQueries()
+   {
+      GradleScriptDocument document = GradleScriptDocument.parse(SOURCE);
+
+      for (int i = 0; i < 2; i++)
+      {
+         assertEquals(1, document.getDependencies().size());
+         assertTrue(document.getDependencies().contains(GradleDependencyBuilder.create("compile", "x:y:z")));
+         assertEquals(1, document.getPlugins().size());
+         assertEquals("java", document.getPlugins().get(0).getClazz());
+         assertEquals(1, document.getRepositories().size());
+         assertEquals("http://repo.com/", document.getRepositories().get(0).getUrl());
+         assertEquals("value", document.getDirectProperties().get("property"));
+      }
+   }
+}
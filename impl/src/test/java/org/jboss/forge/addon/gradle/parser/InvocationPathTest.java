@@ -0,0 +1,101 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @author Adam Wyłuda
+ */
+public class InvocationPathTest
+{
+   private static final String SOURCE = "" +
+            "dependencies {\n" +
+            "    compile 'a:b:1'\n" +
+            "    testCompile 'c:d:2'\n" +
+            "}\n" +
+            "allprojects {\n" +
+            "    dependencies {\n" +
+            "        compile 'e:f:3'\n" +
+            "        compile group: 'g', name: 'h'\n" +
+            "    }\n" +
+            "    version = '1.0'\n" +
+            "}\n" +
+            "subprojects {\n" +
+            "    dependencies {\n" +
+            "        compile 'i:j:4'\n" +
+            "    }\n" +
+            "}\n" +
+            "dependencies {\n" +
+            "    compile 'k:l:5'\n" +
+            "}\n";
+
+   @Test
+   public void testCompile()
+   {
+      InvocationPath path = InvocationPath.compile("dependencies/*/compile");
+      assertEquals(3, path.getSegments().size());
+      assertEquals("dependencies/*/compile", path.toString());
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void testEmptySegment()
+   {
+      InvocationPath.compile("dependencies//compile");
+   }
+
+   @Test
+   public void testInvocationsWithStringInOrderOfAppearance()
+   {
+      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(SOURCE);
+
+      List<InvocationWithString> compile =
+               parser.invocationsWithStringAt(InvocationPath.compile("dependencies/compile"));
+      assertEquals(2, compile.size());
+      assertEquals("a:b:1", compile.get(0).getString());
+      assertEquals("k:l:5", compile.get(1).getString());
+
+      List<InvocationWithString> nested =
+               parser.invocationsWithStringAt(InvocationPath.compile("*/dependencies/compile"));
+      assertEquals(2, nested.size());
+      assertEquals("e:f:3", nested.get(0).getString());
+      assertEquals("i:j:4", nested.get(1).getString());
+
+      List<InvocationWithString> all = parser.invocationsWithStringAt(InvocationPath.compile("dependencies/*"));
+      assertEquals(3, all.size());
+      assertEquals("testCompile", all.get(1).getMethodName());
+   }
+
+   @Test
+   public void testOtherElements()
+   {
+      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(SOURCE);
+
+      assertEquals(2, parser.invocationsWithClosureAt(InvocationPath.compile("dependencies")).size());
+      assertEquals(2, parser.invocationsWithClosureAt(InvocationPath.compile("*/dependencies")).size());
+      assertEquals(1, parser.invocationsWithMapAt(InvocationPath.compile("allprojects/dependencies/compile")).size());
+      assertEquals("1.0", parser.variableAssignmentsAt(InvocationPath.compile("allprojects/version")).get(0)
+               .getValue());
+      assertTrue(parser.invocationsWithStringAt(InvocationPath.compile("repositories/maven/url")).isEmpty());
+   }
+
+   @Test
+   public void testInvocationsByName()
+   {
+      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(SOURCE);
+
+      assertEquals(2, parser.invocationsWithClosureAt(InvocationPath.of("dependencies")).size());
+      // Single lookup returns the last invocation
+      assertEquals("k:l:5", parser.invocationWithClosureByName("dependencies").get()
+               .getInvocationsWithString().get(0).getString());
+   }
+}
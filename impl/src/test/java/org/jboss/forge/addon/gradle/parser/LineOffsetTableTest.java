@@ -0,0 +1,64 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.parser;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * @author Adam Wyłuda
+ */
+public class LineOffsetTableTest
+{
+   @Test
+   public void testLineCountLikeSplit()
+   {
+      String[] sources = { "", "\n", "\n\n", "a", "a\n", "a\n\n", "\na", "a\nbc\n\nd", "a\nbc\n\nd\n\n" };
+      for (String source : sources)
+      {
+         String[] lines = source.split("\n");
+         LineOffsetTable table = LineOffsetTable.of(source);
+         assertEquals(lines.length, table.getLineCount());
+         for (int i = 0; i < lines.length; i++)
+         {
+            assertEquals(lines[i].length(), table.getLineLength(i + 1));
+         }
+      }
+   }
+
+   @Test
+   public void testPositionOf()
+   {
+      String source = "ab\n\ncde\nf";
+      LineOffsetTable table = LineOffsetTable.of(source);
+
+      assertEquals(0, table.positionOf(1, 1));
+      assertEquals(2, table.positionOf(1, 3));
+      assertEquals(3, table.positionOf(2, 1));
+      assertEquals(6, table.positionOf(3, 3));
+      assertEquals(9, table.positionOf(4, 2));
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void testPositionOfExceedsColumnCount()
+   {
+      LineOffsetTable.of("ab\ncd\n").positionOf(1, 4);
+   }
+
+   @Test
+   public void testLineNumberAt()
+   {
+      LineOffsetTable table = LineOffsetTable.of("ab\n\ncde\nf");
+
+      assertEquals(1, table.lineNumberAt(0));
+      assertEquals(1, table.lineNumberAt(2));
+      assertEquals(2, table.lineNumberAt(3));
+      assertEquals(3, table.lineNumberAt(5));
+      assertEquals(4, table.lineNumberAt(8));
+   }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * @author Adam Wyłuda
+ */
+public class SimpleGroovyParserCacheTest
+{
+   private static final String SOURCE = "" +
+            "apply plugin: 'java'\n" +
+            "dependencies {\n" +
+            "    compile 'a:b:c'\n" +
+            "}\n";
+
+   @Test
+   public void testHitsAndMisses()
+   {
+      SimpleGroovyParserCache cache = new SimpleGroovyParserCache(SimpleGroovyParserCache.DEFAULT_MAX_WEIGHT);
+
+      SimpleGroovyParser parser = cache.parse(SOURCE);
+      // Same contents in a different string
+      SimpleGroovyParser cachedParser = cache.parse(new String(SOURCE));
+
+      assertSame(parser, cachedParser);
+      assertEquals(1, cache.getHitCount());
+      assertEquals(1, cache.getMissCount());
+      assertEquals(1, cache.size());
+      assertEquals(SimpleGroovyParserCache.weigh(parser), cache.getWeight());
+
+      assertNotSame(parser, cache.parse(SOURCE + "version = '1.0'\n"));
+      assertEquals(2, cache.getMissCount());
+   }
+
+   @Test
+   public void testEvictsLeastRecentlyUsed()
+   {
+      String otherSource = SOURCE + "version = '1.0'\n";
+      long weight = SimpleGroovyParserCache.weigh(SimpleGroovyParser.parse(SOURCE));
+      long otherWeight = SimpleGroovyParserCache.weigh(SimpleGroovyParser.parse(otherSource));
+      SimpleGroovyParserCache cache = new SimpleGroovyParserCache(weight + otherWeight);
+
+      SimpleGroovyParser parser = cache.parse(SOURCE);
+      cache.parse(otherSource);
+      assertEquals(2, cache.size());
+
+      // Makes other source the least recently used
+      cache.parse(SOURCE);
+      cache.parse(SOURCE + "group = 'g'\n");
+
+      assertTrue(cache.getWeight() <= cache.getMaxWeight());
+      assertSame(parser, cache.parse(SOURCE));
+      assertEquals(2, cache.getHitCount());
+      cache.parse(otherSource);
+      assertEquals(4, cache.getMissCount());
+   }
+
+   @Test
+   public void testTooHeavyTreeNotCached()
+   {
+      SimpleGroovyParserCache cache = new SimpleGroovyParserCache(1);
+      cache.parse(SOURCE);
+      cache.parse(SOURCE);
+
+      assertEquals(0, cache.size());
+      assertEquals(0, cache.getWeight());
+      assertEquals(2, cache.getMissCount());
+   }
+}
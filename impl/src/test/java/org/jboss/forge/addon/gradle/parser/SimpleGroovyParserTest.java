@@ -8,12 +8,21 @@ package org.jboss.forge.addon.gradle.parser;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.gradle.internal.impldep.com.google.common.base.Optional;
+import org.gradle.internal.impldep.com.google.common.collect.Lists;
 import org.junit.Test;
 
 /**
@@ -237,6 +246,28 @@ public class SimpleGroovyParserTest
       assertEquals("clojure {\n}", closureInv.getCode());
    }
 
+   @Test
+   public void testCodeIsSpanOfSharedSource()
+   {
+      String source = "" +
+               "allprojects {\n" +
+               "    dependencies {\n" +
+               "        compile 'x:y:z'\n" +
+               "    }\n" +
+               "}\n";
+      SimpleGroovyParser parser = SimpleGroovyParser.parse(source);
+      InvocationWithClosure allprojects = parser.getInvocationsWithClosure().get(0);
+      InvocationWithClosure dependencies = allprojects.getInvocationsWithClosure().get(0);
+      InvocationWithString compile = dependencies.getInvocationsWithString().get(0);
+
+      assertSame(source, allprojects.getSourceBuffer());
+      assertSame(source, dependencies.getSourceBuffer());
+      assertSame(source, compile.getSourceBuffer());
+      assertEquals(source.indexOf("compile"), compile.getStart());
+      assertEquals("compile 'x:y:z'", compile.getCode());
+      assertEquals(source.trim(), allprojects.getCode());
+   }
+
    @Test
    public void testGStringVariableAssignment()
    {
@@ -350,4 +381,249 @@ public class SimpleGroovyParserTest
       assertEquals(1, excludeParams.size());
       assertEquals("y", excludeParams.get("module"));
    }
+
+   @Test
+   public void testReparse()
+   {
+      String source = "" +
+               "apply plugin: 'java'\n" +
+               "allprojects {\n" +
+               "    dependencies {\n" +
+               "        compile 'a:b:c'\n" +
+               "    }\n" +
+               "    repositories {\n" +
+               "        maven {\n" +
+               "            url 'http://repo/'\n" +
+               "        }\n" +
+               "    }\n" +
+               "    apply plugin: 'war'\n" +
+               "}\n" +
+               "version = '1.0'\n" +
+               "task x {\n" +
+               "    description 'y'\n" +
+               "}\n";
+      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(source);
+
+      // Adds lines into nested closure
+      int position = source.indexOf("compile");
+      assertReparsed(parser, position, position, "runtime 'd:e:f'\n        runtime(\n'x:y:z')\n        ");
+      // Elements preceding the edited closure are reused
+      SimpleGroovyParser reparsed = parser.reparse(position, position, "runtime 'd:e:f'\n        ");
+      assertSame(parser.getInvocationsWithMap().get(0), reparsed.getInvocationsWithMap().get(0));
+      // Removes lines
+      assertReparsed(parser, source.indexOf("        compile"), source.indexOf("    }"), "");
+      // Changes code in the same line
+      position = source.indexOf("http://repo/");
+      assertReparsed(parser, position, position + "http://repo/".length(), "http://other.repo/");
+      // Closes the closure, which must be parsed as a whole
+      position = source.indexOf("description");
+      assertReparsed(parser, position, position, "}\ntask z {\n");
+      // Edits outside of closures
+      assertReparsed(parser, 0, 0, "group = 'g'\n");
+   }
+
+   @Test
+   public void testReparseClosureFollowedInLine()
+   {
+      String source = "" +
+               "dependencies {\n" +
+               "    compile 'a:b:c'\n" +
+               "}; apply plugin: 'java'\n" +
+               "repositories { maven { url 'http://repo/' } }\n" +
+               "version = '1.0'\n";
+      SimpleGroovyParser parser = SimpleGroovyParser.fromSource(source);
+
+      int position = source.indexOf("compile");
+      assertReparsed(parser, position, position, "runtime 'd:e:f'\n    ");
+      position = source.indexOf("url");
+      assertReparsed(parser, position, position, "url 'http://other/'\n");
+   }
+
+   @Test
+   public void testRecognizedSameAsGroovy()
+   {
+      String source = "" +
+               "/*\n" +
+               " * License\n" +
+               " */\n" +
+               "buildscript {\n" +
+               "    repositories { mavenCentral() }\n" +
+               "    dependencies { classpath 'a:b:1.0' }\n" +
+               "}\n" +
+               "apply plugin: 'java'\n" +
+               "apply(plugin: \"war\")\n" +
+               "\n" +
+               "group = 'org.example'\n" +
+               "version = \"1.0\" // comment\n" +
+               "sourceCompatibility = 1.8\n" +
+               "targetCompatibility = JavaVersion.VERSION_1_8\n" +
+               "def x = 'y'\n" +
+               "project.ext.z = ''\n" +
+               "\n" +
+               "repositories {\n" +
+               "    jcenter()\n" +
+               "    maven {\n" +
+               "        url 'http://repo/'\n" +
+               "    }\n" +
+               "    maven { url('http://other/') }\n" +
+               "}\n" +
+               "dependencies {\n" +
+               "    compile 'x:y:z'; testCompile('junit:junit:4.11')\n" +
+               "    compile group: 'a', name: 'b', version: '1.0', transitive: false\n" +
+               "    runtime(group: 'x',\n" +
+               "            name: 'n', version: 'v') {\n" +
+               "        exclude module: 'y'\n" +
+               "    }\n" +
+               "    runtime('p:q:r') {\n" +
+               "        transitive = false\n" +
+               "    }\n" +
+               "}\n" +
+               "\n";
+      assertNotNull(SimpleScriptRecognizer.recognize(source, LineOffsetTable.of(source)));
+      assertSameAsGroovy(source);
+   }
+
+   @Test
+   public void testUnrecognizedSyntaxLeftToGroovy()
+   {
+      String[] sources = {
+               "version = \"${major}.0\"\n",
+               "compile 'a\\b'\n",
+               "task x {\n}\n",
+               "compile project(':x')\n",
+               "configurations.all { c -> }\n",
+               "if (x) {\n    compile 'x:y:z'\n}\n",
+               "dependencies {\n\tcompile 'x:y:z'\n}\n",
+               "compile group: 'a',\n        name: 'b'\n",
+               "compile 'a', 'b'\n",
+               "x = 'a' + 'b'\n",
+               "description = '''\nabc\n'''\n"
+      };
+      for (String source : sources)
+      {
+         assertNull(SimpleScriptRecognizer.recognize(source, LineOffsetTable.of(source)));
+         assertSameAsGroovy(source);
+      }
+   }
+
+   @Test
+   public void testGroovyFrontEndSharedByThreads() throws Exception
+   {
+      final String source = "" +
+               "dependencies {\n" +
+               "    compile \"x:y:$version\"\n" +
+               "}\n";
+      final String expected = treeToString(SimpleGroovyParser.parseWithGroovy(source).getInvocationsWithClosure());
+
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      try
+      {
+         List<Future<String>> results = Lists.newArrayList();
+         for (int i = 0; i < 16; i++)
+         {
+            results.add(executor.submit(new Callable<String>()
+            {
+               @Override
+               public String call()
+               {
+                  return treeToString(SimpleGroovyParser.parseWithGroovy(source).getInvocationsWithClosure());
+               }
+            }));
+         }
+         for (Future<String> result : results)
+         {
+            assertEquals(expected, result.get());
+         }
+      }
+      finally
+      {
+         executor.shutdown();
+      }
+   }
+
+   private void assertSameAsGroovy(String source)
+   {
+      SimpleGroovyParser parser = SimpleGroovyParser.parse(source);
+      SimpleGroovyParser groovyParser = SimpleGroovyParser.parseWithGroovy(source);
+      assertEquals(treeToString(groovyParser.getInvocationsWithClosure()),
+               treeToString(parser.getInvocationsWithClosure()));
+      assertEquals(elementsToString(groovyParser.getInvocationsWithMap()),
+               elementsToString(parser.getInvocationsWithMap()));
+      assertEquals(elementsToString(groovyParser.getInvocationsWithString()),
+               elementsToString(parser.getInvocationsWithString()));
+      assertEquals(elementsToString(groovyParser.getVariableAssignments()),
+               elementsToString(parser.getVariableAssignments()));
+   }
+
+   private void assertReparsed(SimpleGroovyParser parser, int start, int end, String replacement)
+   {
+      String source = parser.getSource();
+      String newSource = source.substring(0, start) + replacement + source.substring(end);
+
+      SimpleGroovyParser reparsed = parser.reparse(start, end, replacement);
+      // Reparsed tree is cached, so it's compared with tree parsed bypassing the cache
+
+      assertEquals(newSource, reparsed.getSource());
+      assertEquals(treeToString(SimpleGroovyParser.parse(newSource).getInvocationsWithClosure()),
+               treeToString(reparsed.getInvocationsWithClosure()));
+      assertEquals(elementsToString(SimpleGroovyParser.parse(newSource).getInvocationsWithMap()),
+               elementsToString(reparsed.getInvocationsWithMap()));
+      assertEquals(elementsToString(SimpleGroovyParser.parse(newSource).getInvocationsWithString()),
+               elementsToString(reparsed.getInvocationsWithString()));
+      assertEquals(elementsToString(SimpleGroovyParser.parse(newSource).getVariableAssignments()),
+               elementsToString(reparsed.getVariableAssignments()));
+   }
+
+   private String treeToString(List<InvocationWithClosure> invocations)
+   {
+      StringBuilder builder = new StringBuilder();
+      for (InvocationWithClosure invocation : invocations)
+      {
+         builder.append(elementToString(invocation)).append(" {\n");
+         builder.append(treeToString(invocation.getInvocationsWithClosure()));
+         builder.append(elementsToString(invocation.getInvocationsWithMap()));
+         builder.append(elementsToString(invocation.getInvocationsWithString()));
+         builder.append(elementsToString(invocation.getVariableAssignments()));
+         builder.append("}\n");
+      }
+      return builder.toString();
+   }
+
+   private String elementsToString(List<? extends SourceCodeElement> elements)
+   {
+      StringBuilder builder = new StringBuilder();
+      for (SourceCodeElement element : elements)
+      {
+         builder.append(elementToString(element)).append("\n");
+      }
+      return builder.toString();
+   }
+
+   private String elementToString(SourceCodeElement element)
+   {
+      String details = "";
+      if (element instanceof InvocationWithClosure)
+      {
+         InvocationWithClosure invocation = (InvocationWithClosure) element;
+         details = invocation.getMethodName() + " " + invocation.getStringParameter() + " " +
+                  new TreeMap<>(invocation.getMapParameter());
+      }
+      else if (element instanceof InvocationWithMap)
+      {
+         InvocationWithMap invocation = (InvocationWithMap) element;
+         details = invocation.getMethodName() + " " + new TreeMap<>(invocation.getParameters());
+      }
+      else if (element instanceof InvocationWithString)
+      {
+         InvocationWithString invocation = (InvocationWithString) element;
+         details = invocation.getMethodName() + " " + invocation.getString();
+      }
+      else if (element instanceof VariableAssignment)
+      {
+         VariableAssignment assignment = (VariableAssignment) element;
+         details = assignment.getVariable() + " " + assignment.getValue();
+      }
+      return String.format("%d:%d-%d:%d %s [%s]", element.getLineNumber(), element.getColumnNumber(),
+               element.getLastLineNumber(), element.getLastColumnNumber(), element.getCode(), details);
+   }
 }
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.jboss.forge.addon.gradle.projects.model.GradleDependencyBuilder;
+import org.junit.Test;
+
+/**
+ * @author Adam Wyłuda
+ */
+public class SourceEditBatchTest
+{
+   @Test
+   public void testApplyInPositionOrder()
+   {
+      SourceEditBatch batch = new SourceEditBatch("abcdef");
+      batch.insert(4, "X");
+      batch.replace(1, 2, "YY");
+      batch.insert(4, "Z");
+      batch.insert(0, "W");
+
+      assertFalse(batch.isConflicting());
+      assertEquals("WaYYcdXZef", batch.apply());
+   }
+
+   @Test
+   public void testAppend()
+   {
+      SourceEditBatch batch = new SourceEditBatch("abc");
+      batch.append("x = 1\n", true);
+      batch.append("y = 2\n", true);
+      batch.append("\ntask t", false);
+
+      assertEquals("abc\nx = 1\ny = 2\n\ntask t", batch.apply());
+
+      batch = new SourceEditBatch("");
+      batch.append("z", true);
+      assertEquals("\nz", batch.apply());
+   }
+
+   @Test
+   public void testConflictingEdits()
+   {
+      SourceEditBatch batch = new SourceEditBatch("abcdef");
+      batch.replace(1, 3, "");
+      batch.replace(2, 4, "");
+      assertTrue(batch.isConflicting());
+
+      batch = new SourceEditBatch("abcdef");
+      batch.replace(1, 3, "");
+      batch.insert(3, "X");
+      assertTrue(batch.isConflicting());
+
+      batch = new SourceEditBatch("abcdef");
+      batch.append("X", false);
+      batch.insert(6, "Y");
+      assertTrue(batch.isConflicting());
+
+      batch = new SourceEditBatch("abcdef");
+      batch.guard(1, 2);
+      batch.insert(2, "X");
+      assertTrue(batch.isConflicting());
+
+      batch = new SourceEditBatch("abcdef");
+      batch.createPath("a", "b");
+      batch.createPath("a", "b");
+      assertTrue(batch.isConflicting());
+   }
+
+   @Test(expected = IllegalStateException.class)
+   public void testApplyConflictingEdits()
+   {
+      SourceEditBatch batch = new SourceEditBatch("abcdef");
+      batch.replace(0, 3, "");
+      batch.replace(1, 2, "");
+      batch.apply();
+   }
+
+   @Test
+   public void testSameAsSequentialEdits()
+   {
+      String source = ""
+               + "dependencies {\n"
+               + "    compile 'x:y:z'\n"
+               + "    runtime 'a:b:c'\n"
+               + "}\n"
+               + "version = '1.0'\n";
+
+      SourceEditBatch batch = new SourceEditBatch(source);
+      GradleSourceUtil.insertDirectDependency(batch, "d", "e");
+      GradleSourceUtil.insertDirectDependency(batch, "f", "g");
+      GradleSourceUtil.removeDependency(batch, GradleDependencyBuilder.create("compile", "x:y:z"));
+      GradleSourceUtil.setProperty(batch, "version", "2.0");
+      GradleSourceUtil.setArchiveName(batch, "archive.jar");
+
+      String expected = source;
+      expected = GradleSourceUtil.insertDirectDependency(expected, "d", "e");
+      expected = GradleSourceUtil.insertDirectDependency(expected, "f", "g");
+      expected = GradleSourceUtil.removeDependency(expected, GradleDependencyBuilder.create("compile", "x:y:z"));
+      expected = GradleSourceUtil.setProperty(expected, "version", "2.0");
+      expected = GradleSourceUtil.setArchiveName(expected, "archive.jar");
+
+      assertFalse(batch.isConflicting());
+      assertEquals(expected, batch.apply());
+   }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Adam Wyłuda
+ */
+public class GradleBuildInputsTest
+{
+   private File root;
+   private File project;
+
+   @Before
+   public void setUp() throws IOException
+   {
+      root = Files.createTempDirectory("inputs").toFile();
+      project = new File(root, "project");
+      write(new File(root, "settings.gradle"), "include 'project'");
+      write(new File(project, "build.gradle"), "apply plugin: 'java'");
+      write(new File(project, "src/main/java/Main.java"), "class Main {}");
+   }
+
+   @After
+   public void tearDown() throws IOException
+   {
+      delete(root);
+   }
+
+   @Test
+   public void testRootProjectDirectory()
+   {
+      assertEquals(root, GradleBuildInputs.rootProjectDirectory(project));
+      assertEquals(root, GradleBuildInputs.rootProjectDirectory(new File(project, "x/..")));
+   }
+
+   @Test
+   public void testFingerprintIsStable()
+   {
+      assertEquals(GradleBuildInputs.fingerprint(project), GradleBuildInputs.fingerprint(project));
+   }
+
+   @Test
+   public void testSourcesAreNotBuildInputs() throws IOException
+   {
+      String fingerprint = GradleBuildInputs.fingerprint(project);
+      write(new File(project, "src/main/java/Main.java"), "class Main { int x; }");
+      assertEquals(fingerprint, GradleBuildInputs.fingerprint(project));
+      assertFalse(GradleBuildInputs.isBuildInput(project, new File(project, "src/main/java/Main.java")));
+   }
+
+   @Test
+   public void testBuildScriptChange() throws IOException
+   {
+      assertFingerprintChanges(new File(project, "build.gradle"), "apply plugin: 'war'");
+   }
+
+   @Test
+   public void testSettingsScriptChange() throws IOException
+   {
+      assertFingerprintChanges(new File(root, "settings.gradle"), "include 'project', 'other'");
+   }
+
+   @Test
+   public void testNewProfileScript() throws IOException
+   {
+      assertFingerprintChanges(new File(project, "test-profile.gradle"), "");
+   }
+
+   @Test
+   public void testPropertiesChange() throws IOException
+   {
+      assertFingerprintChanges(new File(project, "gradle.properties"), "version=1.0");
+   }
+
+   @Test
+   public void testBuildSrcChange() throws IOException
+   {
+      assertFingerprintChanges(new File(root, "buildSrc/src/main/groovy/Plugin.groovy"), "class Plugin {}");
+   }
+
+   @Test
+   public void testWrapperChange() throws IOException
+   {
+      assertFingerprintChanges(new File(root, "gradle/wrapper/gradle-wrapper.properties"),
+               "distributionUrl=gradle-4.10-bin.zip");
+   }
+
+   @Test
+   public void testBuildSrcOutputIsIgnored() throws IOException
+   {
+      String fingerprint = GradleBuildInputs.fingerprint(project);
+      write(new File(root, "buildSrc/build/libs/buildSrc.jar"), "jar");
+      assertEquals(fingerprint, GradleBuildInputs.fingerprint(project));
+   }
+
+   @Test
+   public void testGradleVersion() throws IOException
+   {
+      File gradleHome = new File(root, "gradle-home");
+      write(new File(gradleHome, "lib/gradle-core-api-4.10.jar"), "jar");
+      write(new File(gradleHome, "lib/gradle-core-4.10.jar"), "jar");
+      assertEquals("4.10", GradleBuildInputs.gradleVersion(gradleHome));
+
+      // Upgrade in place
+      new File(gradleHome, "lib/gradle-core-4.10.jar").delete();
+      write(new File(gradleHome, "lib/gradle-core-5.0-rc-1.jar"), "jar");
+      assertEquals("5.0-rc-1", GradleBuildInputs.gradleVersion(gradleHome));
+   }
+
+   private void assertFingerprintChanges(File file, String contents) throws IOException
+   {
+      String fingerprint = GradleBuildInputs.fingerprint(project);
+      write(file, contents);
+      assertNotEquals(fingerprint, GradleBuildInputs.fingerprint(project));
+      assertTrue(GradleBuildInputs.isBuildInput(project, file));
+   }
+
+   private static void write(File file, String contents) throws IOException
+   {
+      file.getParentFile().mkdirs();
+      Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+   }
+
+   private static void delete(File file)
+   {
+      File[] children = file.listFiles();
+      if (children != null)
+      {
+         for (File child : children)
+         {
+            delete(child);
+         }
+      }
+      file.delete();
+   }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Adam Wyłuda
+ */
+public class GradleBuildInputsWatcherTest
+{
+   private File root;
+   private File project;
+   private File other;
+   private GradleBuildInputsWatcher watcher;
+
+   @Before
+   public void setUp() throws IOException
+   {
+      root = Files.createTempDirectory("watcher").toFile();
+      project = new File(root, "project");
+      other = new File(root, "other");
+      write(new File(project, "build.gradle"), "apply plugin: 'java'");
+      write(new File(project, "src/Main.java"), "class Main {}");
+      write(new File(other, "build.gradle"), "apply plugin: 'java'");
+      watcher = new GradleBuildInputsWatcher();
+   }
+
+   @After
+   public void tearDown()
+   {
+      watcher.shutdown(null);
+      delete(root);
+   }
+
+   @Test
+   public void testUnwatchedProject()
+   {
+      assertFalse(watcher.isWatched(project));
+      assertEquals(-1, watcher.getGeneration(project));
+   }
+
+   @Test
+   public void testOnlyBuildInputsOfAffectedProjectAreTracked()
+   {
+      assertTrue(watcher.watch(project));
+      assertTrue(watcher.watch(other));
+
+      watcher.changed(project.toPath(), new File(project, "src").toPath());
+      assertEquals(0, watcher.getGeneration(project));
+
+      watcher.changed(project.toPath(), new File(project, "build.gradle").toPath());
+      watcher.changed(project.toPath(), new File(project, "test-profile.gradle").toPath());
+      assertEquals(2, watcher.getGeneration(project));
+      assertEquals(0, watcher.getGeneration(other));
+   }
+
+   @Test
+   public void testBuildScriptModificationIsDetected() throws Exception
+   {
+      assertTrue(watcher.watch(new File(project, "src/..")));
+      assertTrue(watcher.isWatched(project));
+
+      write(new File(project, "build.gradle"), "apply plugin: 'war'");
+
+      long deadline = System.currentTimeMillis() + 30000;
+      while (watcher.getGeneration(project) == 0 && System.currentTimeMillis() < deadline)
+      {
+         Thread.sleep(50);
+      }
+      assertTrue(watcher.getGeneration(project) > 0);
+   }
+
+   @Test
+   public void testShutdown()
+   {
+      watcher.watch(project);
+      watcher.shutdown(null);
+
+      assertFalse(watcher.isWatched(project));
+      assertFalse(watcher.watch(project));
+   }
+
+   private static void write(File file, String contents) throws IOException
+   {
+      file.getParentFile().mkdirs();
+      Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+   }
+
+   private static void delete(File file)
+   {
+      File[] children = file.listFiles();
+      if (children != null)
+      {
+         for (File child : children)
+         {
+            delete(child);
+         }
+      }
+      file.delete();
+   }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import org.gradle.internal.impldep.com.google.common.collect.Lists;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Adam Wyłuda
+ */
+public class GradleBuildSchedulerTest
+{
+   private File root;
+   private File subprojectA;
+   private File subprojectB;
+   private File independent;
+
+   private final List<String> started = Lists.newArrayList();
+
+   @Before
+   public void setUp() throws IOException
+   {
+      root = Files.createTempDirectory("scheduler").toFile();
+      new File(root, "multi").mkdir();
+      new File(root, "multi/settings.gradle").createNewFile();
+      subprojectA = new File(root, "multi/a");
+      subprojectA.mkdir();
+      subprojectB = new File(root, "multi/b");
+      subprojectB.mkdir();
+      independent = new File(root, "independent");
+      independent.mkdir();
+      new File(independent, "settings.gradle").createNewFile();
+   }
+
+   @After
+   public void tearDown()
+   {
+      new File(independent, "settings.gradle").delete();
+      independent.delete();
+      subprojectA.delete();
+      subprojectB.delete();
+      new File(root, "multi/settings.gradle").delete();
+      new File(root, "multi").delete();
+      root.delete();
+   }
+
+   @Test
+   public void testInvocationsOnSameRootAreSerialized()
+   {
+      GradleBuildScheduler scheduler = new GradleBuildScheduler(4);
+      CompletableFuture<String> first = new CompletableFuture<>();
+      CompletableFuture<String> second = new CompletableFuture<>();
+
+      CompletableFuture<String> firstResult = scheduler.schedule(subprojectA, invocation("a", first));
+      CompletableFuture<String> secondResult = scheduler.schedule(subprojectB, invocation("b", second));
+
+      assertEquals(Lists.newArrayList("a"), started);
+      assertEquals(1, scheduler.getQueueDepth());
+
+      first.complete("A");
+      assertEquals("A", firstResult.join());
+      assertEquals(Lists.newArrayList("a", "b"), started);
+      assertFalse(secondResult.isDone());
+
+      second.complete("B");
+      assertEquals("B", secondResult.join());
+      assertEquals(0, scheduler.getRunningBuilds());
+   }
+
+   @Test
+   public void testInvocationsOnIndependentRootsRunInParallel()
+   {
+      GradleBuildScheduler scheduler = new GradleBuildScheduler(4);
+
+      scheduler.schedule(subprojectA, invocation("a", new CompletableFuture<String>()));
+      scheduler.schedule(independent, invocation("independent", new CompletableFuture<String>()));
+
+      assertEquals(Lists.newArrayList("a", "independent"), started);
+      assertEquals(2, scheduler.getRunningBuilds());
+      assertEquals(0, scheduler.getQueueDepth());
+   }
+
+   @Test
+   public void testConcurrencyLimit()
+   {
+      GradleBuildScheduler scheduler = new GradleBuildScheduler(1);
+      CompletableFuture<String> first = new CompletableFuture<>();
+
+      scheduler.schedule(subprojectA, invocation("a", first));
+      scheduler.schedule(independent, invocation("independent", new CompletableFuture<String>()));
+      assertEquals(Lists.newArrayList("a"), started);
+
+      first.complete("A");
+      assertEquals(Lists.newArrayList("a", "independent"), started);
+   }
+
+   @Test
+   public void testBusyRootDoesNotHoldBackOtherRoots()
+   {
+      GradleBuildScheduler scheduler = new GradleBuildScheduler(2);
+
+      scheduler.schedule(subprojectA, invocation("a", new CompletableFuture<String>()));
+      scheduler.schedule(subprojectB, invocation("b", new CompletableFuture<String>()));
+      scheduler.schedule(independent, invocation("independent", new CompletableFuture<String>()));
+
+      assertEquals(Lists.newArrayList("a", "independent"), started);
+      assertEquals(1, scheduler.getQueueDepth());
+   }
+
+   @Test
+   public void testFailedInvocationReleasesRoot()
+   {
+      GradleBuildScheduler scheduler = new GradleBuildScheduler(1);
+
+      CompletableFuture<String> failed = scheduler.schedule(subprojectA, new Supplier<CompletableFuture<String>>()
+      {
+         @Override
+         public CompletableFuture<String> get()
+         {
+            throw new IllegalStateException("Could not connect");
+         }
+      });
+      scheduler.schedule(subprojectB, invocation("b", new CompletableFuture<String>()));
+
+      assertTrue(failed.isCompletedExceptionally());
+      assertEquals(Lists.newArrayList("b"), started);
+   }
+
+   @Test
+   public void testStatistics()
+   {
+      GradleBuildScheduler scheduler = new GradleBuildScheduler(1);
+      CompletableFuture<String> first = new CompletableFuture<>();
+
+      scheduler.schedule(subprojectA, invocation("a", first));
+      scheduler.schedule(subprojectB, invocation("b", new CompletableFuture<String>()));
+
+      BuildQueueStatistics statistics = scheduler.getStatistics();
+      assertEquals(1, statistics.getQueueDepth());
+      assertEquals(1, statistics.getRunningBuilds());
+      assertEquals(1, statistics.getStartedBuilds());
+
+      first.complete("A");
+      statistics = scheduler.getStatistics();
+      assertEquals(0, statistics.getQueueDepth());
+      assertEquals(2, statistics.getStartedBuilds());
+      assertTrue(statistics.getMaxWaitTimeMillis() >= statistics.getAverageWaitTimeMillis());
+   }
+
+   private Supplier<CompletableFuture<String>> invocation(final String name, final CompletableFuture<String> result)
+   {
+      return new Supplier<CompletableFuture<String>>()
+      {
+         @Override
+         public CompletableFuture<String> get()
+         {
+            started.add(name);
+            return result;
+         }
+      };
+   }
+}
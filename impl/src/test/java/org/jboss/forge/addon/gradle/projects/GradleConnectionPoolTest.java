@@ -0,0 +1,158 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+import org.gradle.internal.impldep.com.google.common.collect.Lists;
+import org.gradle.tooling.ProjectConnection;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Adam Wyłuda
+ */
+public class GradleConnectionPoolTest
+{
+   private static final File PROJECT_A = new File("/projects/a");
+   private static final File PROJECT_B = new File("/projects/b");
+   private static final File PROJECT_C = new File("/projects/c");
+
+   private final List<ProjectConnection> opened = Lists.newArrayList();
+   private final List<ProjectConnection> closed = Lists.newArrayList();
+   private GradleConnectionPool pool;
+
+   @Before
+   public void setUp()
+   {
+      pool = new GradleConnectionPool(new GradleConnectionPool.ConnectionFactory()
+      {
+         @Override
+         public ProjectConnection connect(File projectDirectory, File gradleHome)
+         {
+            ProjectConnection connection = fakeConnection();
+            opened.add(connection);
+            return connection;
+         }
+      }, 1000, 2);
+   }
+
+   @Test
+   public void testConnectionIsReused()
+   {
+      ProjectConnection first = pool.acquire(PROJECT_A, null);
+      pool.release(PROJECT_A, null);
+      ProjectConnection second = pool.acquire(new File("/projects/x/../a"), null);
+      pool.release(PROJECT_A, null);
+
+      assertSame(first, second);
+      assertEquals(1, opened.size());
+   }
+
+   @Test
+   public void testConnectionsAreKeyedByGradleInstallation()
+   {
+      ProjectConnection first = pool.acquire(PROJECT_A, null);
+      ProjectConnection second = pool.acquire(PROJECT_A, new File("/opt/gradle"));
+
+      assertNotSame(first, second);
+      assertEquals(2, pool.size());
+   }
+
+   @Test
+   public void testIdleConnectionsAreEvicted()
+   {
+      pool.acquire(PROJECT_A, null);
+      pool.release(PROJECT_A, null);
+      pool.acquire(PROJECT_B, null);
+
+      pool.evictIdleConnections(pool.currentTimeMillis() + 5000);
+
+      assertEquals(1, pool.size());
+      assertEquals(1, closed.size());
+      assertSame(opened.get(0), closed.get(0));
+   }
+
+   @Test
+   public void testLeastRecentlyUsedIdleConnectionIsClosedWhenFull()
+   {
+      pool.acquire(PROJECT_A, null);
+      pool.release(PROJECT_A, null);
+      pool.acquire(PROJECT_B, null);
+      pool.release(PROJECT_B, null);
+      pool.acquire(PROJECT_A, null);
+      pool.release(PROJECT_A, null);
+
+      pool.acquire(PROJECT_C, null);
+
+      assertEquals(2, pool.size());
+      assertEquals(1, closed.size());
+      assertSame(opened.get(1), closed.get(0));
+   }
+
+   @Test
+   public void testConnectionsInUseAreNotClosed()
+   {
+      pool.acquire(PROJECT_A, null);
+      pool.acquire(PROJECT_B, null);
+      pool.acquire(PROJECT_C, null);
+
+      assertEquals(3, pool.size());
+      assertEquals(0, closed.size());
+   }
+
+   @Test
+   public void testShutdownClosesAllConnections()
+   {
+      pool.acquire(PROJECT_A, null);
+      pool.acquire(PROJECT_B, null);
+      pool.shutdown();
+
+      assertEquals(0, pool.size());
+      assertEquals(2, closed.size());
+   }
+
+   @Test(expected = IllegalStateException.class)
+   public void testAcquireAfterShutdown()
+   {
+      pool.shutdown();
+      pool.acquire(PROJECT_A, null);
+   }
+
+   private ProjectConnection fakeConnection()
+   {
+      return (ProjectConnection) Proxy.newProxyInstance(getClass().getClassLoader(),
+               new Class<?>[] { ProjectConnection.class }, new InvocationHandler()
+               {
+                  @Override
+                  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+                  {
+                     if (method.getName().equals("close"))
+                     {
+                        closed.add((ProjectConnection) proxy);
+                     }
+                     else if (method.getName().equals("equals"))
+                     {
+                        return proxy == args[0];
+                     }
+                     else if (method.getName().equals("hashCode"))
+                     {
+                        return System.identityHashCode(proxy);
+                     }
+                     return null;
+                  }
+               });
+   }
+}
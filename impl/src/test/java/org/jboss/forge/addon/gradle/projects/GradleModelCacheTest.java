@@ -0,0 +1,118 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+
+import org.gradle.internal.impldep.com.google.common.collect.Maps;
+import org.jboss.forge.addon.gradle.projects.model.GradleDependency;
+import org.jboss.forge.addon.gradle.projects.model.GradleModel;
+import org.jboss.forge.addon.gradle.projects.model.GradleModelLoadUtil;
+import org.jboss.forge.addon.gradle.projects.model.GradleModelLoadUtilTest;
+import org.jboss.forge.furnace.util.Streams;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Adam Wyłuda
+ */
+public class GradleModelCacheTest
+{
+   private static final File PROJECT = new File("/projects/a");
+
+   private File cacheDirectory;
+   private GradleModelCache cache;
+
+   @Before
+   public void setUp() throws IOException
+   {
+      cacheDirectory = Files.createTempDirectory("model-cache").toFile();
+      cache = new GradleModelCache(cacheDirectory);
+   }
+
+   @After
+   public void tearDown()
+   {
+      for (File file : cacheDirectory.listFiles())
+      {
+         file.delete();
+      }
+      cacheDirectory.delete();
+   }
+
+   @Test
+   public void testStoreAndLoad() throws IOException
+   {
+      GradleModel model = loadModel();
+      cache.store(PROJECT, "abc", model);
+
+      GradleModel cached = cache.load(new File("/projects/x/../a"), "abc");
+
+      assertNotNull(cached);
+      assertEquals(model.getName(), cached.getName());
+      assertEquals(model.getArchivePath(), cached.getArchivePath());
+      assertEquals(model.getEffectiveTasks().size(), cached.getEffectiveTasks().size());
+      assertEquals(model.getProfiles().size(), cached.getProfiles().size());
+      assertEquals(model.getProfiles().get(0).getModel().getEffectiveDependencies().size(),
+               cached.getProfiles().get(0).getModel().getEffectiveDependencies().size());
+      for (GradleDependency dep : model.getEffectiveDependencies())
+      {
+         assertTrue(cached.hasEffectiveDependency(dep));
+      }
+   }
+
+   @Test
+   public void testFingerprintMismatch() throws IOException
+   {
+      cache.store(PROJECT, "abc", loadModel());
+
+      assertNull(cache.load(PROJECT, "def"));
+      assertEquals("abc", cache.read(PROJECT).getFingerprint());
+   }
+
+   @Test
+   public void testCorruptedCacheFileIsIgnored() throws IOException
+   {
+      cache.store(PROJECT, "abc", loadModel());
+      File cacheFile = cacheDirectory.listFiles()[0];
+      Files.write(cacheFile.toPath(), new byte[] { 1, 2, 3 });
+
+      assertNull(cache.load(PROJECT, "abc"));
+      assertEquals(0, cacheDirectory.listFiles().length);
+   }
+
+   @Test
+   public void testInvalidate() throws IOException
+   {
+      cache.store(PROJECT, "abc", loadModel());
+      cache.invalidate(PROJECT);
+
+      assertNull(cache.read(PROJECT));
+   }
+
+   private GradleModel loadModel() throws IOException
+   {
+      String script = Streams.toString(GradleModelLoadUtilTest.class.getResourceAsStream("/loader/build.gradle"));
+      Map<String, String> profileScripts = Maps.newHashMap();
+      profileScripts.put("glassfish", Streams.toString(GradleModelLoadUtilTest.class
+               .getResourceAsStream("/loader/glassfish-profile.gradle")));
+      profileScripts.put("wildfly", Streams.toString(GradleModelLoadUtilTest.class
+               .getResourceAsStream("/loader/wildfly-profile.gradle")));
+      String xmlOutput = Streams
+               .toString(GradleModelLoadUtilTest.class.getResourceAsStream("/loader/forge-output.xml"));
+      return GradleModelLoadUtil.load(script, profileScripts, xmlOutput);
+   }
+}
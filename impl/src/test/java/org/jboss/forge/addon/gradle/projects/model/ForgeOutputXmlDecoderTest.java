@@ -0,0 +1,86 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+
+import org.junit.Test;
+
+/**
+ * @author Adam Wyłuda
+ */
+public class ForgeOutputXmlDecoderTest
+{
+   @Test
+   public void testUnknownElementsAreSkipped()
+   {
+      ForgeOutputXmlDecoder output = decode(
+               "<forgeOutput><unknown><project><name>x</name></project></unknown>" +
+                        "<project><extra><name>y</name></extra><name> z </name></project></forgeOutput>");
+
+      assertEquals("z", output.getProject().getName());
+      assertTrue(output.getProfiles().isEmpty());
+   }
+
+   @Test
+   public void testTasksMayDependOnLaterTasks()
+   {
+      ForgeOutputXmlDecoder output = decode(
+               "<forgeOutput><project><tasks>" +
+                        "<task><name>build</name><dependsOn><task>assemble</task></dependsOn></task>" +
+                        "<task><name>assemble</name><dependsOn></dependsOn></task>" +
+                        "</tasks></project></forgeOutput>");
+
+      GradleTask build = output.getProject().getEffectiveTasks().get(0);
+      GradleTask assemble = output.getProject().getEffectiveTasks().get(1);
+      assertEquals(1, build.getDependsOn().size());
+      assertSame(assemble, build.getDependsOn().get(0));
+   }
+
+   @Test
+   public void testOnlyFirstArtifactIsUsed()
+   {
+      ForgeOutputXmlDecoder output = decode(
+               "<forgeOutput><project><managedDependencies><dependency>" +
+                        "<name>b</name><group>a</group><version>1</version>" +
+                        "<artifacts>" +
+                        "<artifact><classifier>sources</classifier><type>jar</type></artifact>" +
+                        "<artifact><classifier>javadoc</classifier><type>zip</type></artifact>" +
+                        "</artifacts>" +
+                        "<excludeRules><excludeRule><group>c</group><module>d</module></excludeRule></excludeRules>" +
+                        "<configuration>compile</configuration>" +
+                        "</dependency></managedDependencies></project></forgeOutput>");
+
+      GradleDependency dep = output.getProject().getEffectiveManagedDependencies().get(0);
+      assertEquals("sources", dep.getClassifier());
+      assertEquals("jar", dep.getPackaging());
+      assertEquals(1, dep.getExcludedDependencies().size());
+      assertEquals("d", dep.getExcludedDependencies().get(0).getName());
+   }
+
+   @Test
+   public void testProfilesKeepOutputOrder()
+   {
+      ForgeOutputXmlDecoder output = decode(
+               "<forgeOutput><project><name>main</name></project>" +
+                        "<profile><name>wildfly</name><project><name>w</name></project></profile>" +
+                        "<profile><name>glassfish</name><project><name>g</name></project></profile>" +
+                        "</forgeOutput>");
+
+      assertEquals("[wildfly, glassfish]", output.getProfiles().keySet().toString());
+      assertEquals("g", output.getProfiles().get("glassfish").getName());
+   }
+
+   private ForgeOutputXmlDecoder decode(String xml)
+   {
+      return ForgeOutputXmlDecoder.decode(new StringReader(xml));
+   }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import org.gradle.internal.impldep.com.google.common.collect.Maps;
+import org.jboss.forge.addon.gradle.projects.model.tooling.ForgeArtifactOutput;
+import org.jboss.forge.addon.gradle.projects.model.tooling.ForgeDependencyOutput;
+import org.jboss.forge.addon.gradle.projects.model.tooling.ForgeExcludeRuleOutput;
+import org.jboss.forge.addon.gradle.projects.model.tooling.ForgeOutputModel;
+import org.jboss.forge.addon.gradle.projects.model.tooling.ForgeProfileOutput;
+import org.jboss.forge.addon.gradle.projects.model.tooling.ForgeProjectOutput;
+import org.jboss.forge.addon.gradle.projects.model.tooling.ForgeRepositoryOutput;
+import org.jboss.forge.addon.gradle.projects.model.tooling.ForgeSourceSetOutput;
+import org.jboss.forge.addon.gradle.projects.model.tooling.ForgeTaskOutput;
+import org.jboss.forge.furnace.util.Streams;
+import org.jboss.forge.parser.xml.XMLParser;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Runs all {@link GradleModelLoadUtilTest} tests against model loaded from binary output which carries the same data
+ * as forge-output.xml. Output is encoded the same way as by ForgeOutputBinaryWriter in forgeOutput.gradle.
+ * 
+ * @author Adam Wyłuda
+ */
+public class GradleModelLoadUtilBinaryTest extends GradleModelLoadUtilTest
+{
+   private static final byte[] GROUP = "groupgroup".getBytes(StandardCharsets.UTF_8);
+
+   private static byte[] binaryOutput;
+
+   @BeforeClass
+   public static void initBinaryModel() throws IOException
+   {
+      String script = Streams.toString(GradleModelLoadUtilTest.class.getResourceAsStream("/loader/build.gradle"));
+      Map<String, String> profileScripts = Maps.newHashMap();
+      profileScripts.put("glassfish", Streams.toString(GradleModelLoadUtilTest.class
+               .getResourceAsStream("/loader/glassfish-profile.gradle")));
+      profileScripts.put("wildfly", Streams.toString(GradleModelLoadUtilTest.class
+               .getResourceAsStream("/loader/wildfly-profile.gradle")));
+      String xmlOutput = Streams
+               .toString(GradleModelLoadUtilTest.class.getResourceAsStream("/loader/forge-output.xml"));
+      binaryOutput = new Encoder().encode(
+               GradleModelLoadUtilToolingTest.outputFromNode(XMLParser.parse(xmlOutput)));
+      model = GradleModelLoadUtil.load(script, profileScripts, new ByteArrayInputStream(binaryOutput));
+   }
+
+   @Test
+   public void testRepeatedStringsAreWrittenOnce() throws IOException
+   {
+      String xmlOutput = Streams
+               .toString(GradleModelLoadUtilTest.class.getResourceAsStream("/loader/forge-output.xml"));
+      // Group is repeated throughout the project and its profiles
+      assertTrue(count(xmlOutput.getBytes(StandardCharsets.UTF_8), GROUP) > 1);
+      assertEquals(1, count(binaryOutput, GROUP));
+      assertTrue(binaryOutput.length < xmlOutput.length() / 4);
+   }
+
+   private static int count(byte[] data, byte[] pattern)
+   {
+      int count = 0;
+      for (int i = 0; i <= data.length - pattern.length; i++)
+      {
+         int j = 0;
+         while (j < pattern.length && data[i + j] == pattern[j])
+         {
+            j++;
+         }
+         if (j == pattern.length)
+         {
+            count++;
+         }
+      }
+      return count;
+   }
+
+   private static class Encoder
+   {
+      private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      private final DataOutputStream out = new DataOutputStream(bytes);
+      private final Map<String, Integer> strings = Maps.newHashMap();
+
+      byte[] encode(ForgeOutputModel output) throws IOException
+      {
+         out.writeInt(ForgeOutputBinaryDecoder.MAGIC);
+         out.writeInt(ForgeOutputBinaryDecoder.VERSION);
+         writeProject(output.getProject());
+         out.writeInt(output.getProfiles().size());
+         for (ForgeProfileOutput profile : output.getProfiles())
+         {
+            string(profile.getName());
+            writeProject(profile.getProject());
+         }
+         out.flush();
+         return bytes.toByteArray();
+      }
+
+      private void writeProject(ForgeProjectOutput project) throws IOException
+      {
+         string(project.getGroup());
+         string(project.getName());
+         string(project.getVersion());
+         string(project.getProjectPath());
+         string(project.getRootProjectDirectory());
+         string(project.getPackaging());
+         string(project.getArchivePath());
+         string(project.getSourceCompatibility());
+         string(project.getTargetCompatibility());
+         out.writeInt(project.getProperties().size());
+         for (Map.Entry<String, String> entry : project.getProperties().entrySet())
+         {
+            string(entry.getKey());
+            string(entry.getValue());
+         }
+         out.writeInt(project.getTasks().size());
+         for (ForgeTaskOutput task : project.getTasks())
+         {
+            string(task.getName());
+            strings(task.getDependsOn());
+         }
+         writeDependencies(project.getDependencies());
+         writeDependencies(project.getManagedDependencies());
+         out.writeInt(project.getRepositories().size());
+         for (ForgeRepositoryOutput repo : project.getRepositories())
+         {
+            string(repo.getName());
+            string(repo.getUrl());
+         }
+         strings(project.getPlugins());
+         out.writeInt(project.getSourceSets().size());
+         for (ForgeSourceSetOutput sourceSet : project.getSourceSets())
+         {
+            string(sourceSet.getName());
+            strings(sourceSet.getJavaDirectories());
+            strings(sourceSet.getResourceDirectories());
+         }
+      }
+
+      private void writeDependencies(List<ForgeDependencyOutput> deps) throws IOException
+      {
+         out.writeInt(deps.size());
+         for (ForgeDependencyOutput dep : deps)
+         {
+            string(dep.getName());
+            string(dep.getGroup());
+            string(dep.getVersion());
+            string(dep.getConfiguration());
+            boolean moduleDependency = !dep.getArtifacts().isEmpty() || !dep.getExcludeRules().isEmpty();
+            out.writeBoolean(moduleDependency);
+            if (moduleDependency)
+            {
+               out.writeInt(dep.getArtifacts().size());
+               for (ForgeArtifactOutput artifact : dep.getArtifacts())
+               {
+                  string(artifact.getClassifier());
+                  string(artifact.getType());
+               }
+               out.writeInt(dep.getExcludeRules().size());
+               for (ForgeExcludeRuleOutput excludeRule : dep.getExcludeRules())
+               {
+                  string(excludeRule.getGroup());
+                  string(excludeRule.getModule());
+               }
+            }
+         }
+      }
+
+      private void strings(List<String> values) throws IOException
+      {
+         out.writeInt(values.size());
+         for (String value : values)
+         {
+            string(value);
+         }
+      }
+
+      private void string(String value) throws IOException
+      {
+         Integer index = strings.get(value);
+         if (index != null)
+         {
+            out.writeInt(index);
+         }
+         else
+         {
+            strings.put(value, strings.size());
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(-encoded.length - 1);
+            out.write(encoded);
+         }
+      }
+   }
+}
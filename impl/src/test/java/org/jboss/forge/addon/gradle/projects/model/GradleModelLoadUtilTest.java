@@ -23,7 +23,7 @@ import org.junit.Test;
  */
 public class GradleModelLoadUtilTest
 {
-   private static GradleModel model;
+   protected static GradleModel model;
 
    @BeforeClass
    public static void init() throws IOException
@@ -249,6 +249,25 @@ public class GradleModelLoadUtilTest
       assertTrue("wildfly profile not found", wildflySet);
    }
 
+   @Test
+   public void testProfileDirectDependencies()
+   {
+      for (GradleProfile profile : model.getProfiles())
+      {
+         GradleModel profileModel = profile.getModel();
+         assertEquals(1, profileModel.getDependencies().size());
+         if (profile.getName().equals("glassfish"))
+         {
+            assertTrue(profileModel.hasDependency(
+                     GradleDependencyBuilder.create("compile", "javax.annotation:jsr250-api:1.0")));
+         }
+         else
+         {
+            assertTrue(profileModel.hasDependency(GradleDependencyBuilder.create("compile", "log4j:log4j:1.2.17")));
+         }
+      }
+   }
+
    @Test
    public void testEffectivePlugins()
    {
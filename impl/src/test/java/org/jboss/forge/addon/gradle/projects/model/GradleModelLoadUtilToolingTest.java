@@ -0,0 +1,199 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects.model;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+
+import org.gradle.internal.impldep.com.google.common.collect.Lists;
+import org.gradle.internal.impldep.com.google.common.collect.Maps;
+import org.jboss.forge.addon.gradle.projects.model.tooling.ForgeArtifactOutput;
+import org.jboss.forge.addon.gradle.projects.model.tooling.ForgeDependencyOutput;
+import org.jboss.forge.addon.gradle.projects.model.tooling.ForgeExcludeRuleOutput;
+import org.jboss.forge.addon.gradle.projects.model.tooling.ForgeOutputModel;
+import org.jboss.forge.addon.gradle.projects.model.tooling.ForgeProfileOutput;
+import org.jboss.forge.addon.gradle.projects.model.tooling.ForgeProjectOutput;
+import org.jboss.forge.addon.gradle.projects.model.tooling.ForgeRepositoryOutput;
+import org.jboss.forge.addon.gradle.projects.model.tooling.ForgeSourceSetOutput;
+import org.jboss.forge.addon.gradle.projects.model.tooling.ForgeTaskOutput;
+import org.jboss.forge.furnace.util.Streams;
+import org.jboss.forge.parser.xml.Node;
+import org.jboss.forge.parser.xml.XMLParser;
+import org.junit.BeforeClass;
+
+/**
+ * Runs all {@link GradleModelLoadUtilTest} tests against model loaded from Tooling API model which carries the same
+ * data as forge-output.xml.
+ * 
+ * @author Adam Wyłuda
+ */
+public class GradleModelLoadUtilToolingTest extends GradleModelLoadUtilTest
+{
+   @BeforeClass
+   public static void initToolingModel() throws IOException
+   {
+      String script = Streams.toString(GradleModelLoadUtilTest.class.getResourceAsStream("/loader/build.gradle"));
+      Map<String, String> profileScripts = Maps.newHashMap();
+      profileScripts.put("glassfish", Streams.toString(GradleModelLoadUtilTest.class
+               .getResourceAsStream("/loader/glassfish-profile.gradle")));
+      profileScripts.put("wildfly", Streams.toString(GradleModelLoadUtilTest.class
+               .getResourceAsStream("/loader/wildfly-profile.gradle")));
+      String xmlOutput = Streams
+               .toString(GradleModelLoadUtilTest.class.getResourceAsStream("/loader/forge-output.xml"));
+      model = GradleModelLoadUtil.load(script, profileScripts, outputFromNode(XMLParser.parse(xmlOutput)));
+   }
+
+   static ForgeOutputModel outputFromNode(Node root)
+   {
+      List<ForgeProfileOutput> profiles = Lists.newArrayList();
+      for (Node profileNode : root.get("profile"))
+      {
+         Map<String, Object> profile = Maps.newHashMap();
+         profile.put("name", text(profileNode, "name"));
+         profile.put("project", projectFromNode(profileNode.getSingle("project")));
+         profiles.add(fake(ForgeProfileOutput.class, profile));
+      }
+
+      Map<String, Object> output = Maps.newHashMap();
+      output.put("project", projectFromNode(root.getSingle("project")));
+      output.put("profiles", profiles);
+      return fake(ForgeOutputModel.class, output);
+   }
+
+   private static ForgeProjectOutput projectFromNode(Node projectNode)
+   {
+      Map<String, Object> project = Maps.newHashMap();
+      for (String name : new String[] { "group", "name", "version", "projectPath", "rootProjectDirectory",
+               "packaging", "archivePath", "sourceCompatibility", "targetCompatibility" })
+      {
+         project.put(name, text(projectNode, name));
+      }
+
+      Map<String, String> properties = Maps.newHashMap();
+      for (Node propertyNode : projectNode.getSingle("properties").get("property"))
+      {
+         properties.put(text(propertyNode, "key"), text(propertyNode, "value"));
+      }
+      project.put("properties", properties);
+
+      List<ForgeTaskOutput> tasks = Lists.newArrayList();
+      for (Node taskNode : projectNode.getSingle("tasks").get("task"))
+      {
+         Map<String, Object> task = Maps.newHashMap();
+         task.put("name", text(taskNode, "name"));
+         task.put("dependsOn", texts(taskNode.getSingle("dependsOn"), "task"));
+         tasks.add(fake(ForgeTaskOutput.class, task));
+      }
+      project.put("tasks", tasks);
+
+      project.put("dependencies", depsFromNode(projectNode.getSingle("dependencies")));
+      project.put("managedDependencies", depsFromNode(projectNode.getSingle("managedDependencies")));
+
+      List<ForgeRepositoryOutput> repos = Lists.newArrayList();
+      for (Node repoNode : projectNode.getSingle("repositories").get("repository"))
+      {
+         Map<String, Object> repo = Maps.newHashMap();
+         repo.put("name", text(repoNode, "name"));
+         repo.put("url", text(repoNode, "url"));
+         repos.add(fake(ForgeRepositoryOutput.class, repo));
+      }
+      project.put("repositories", repos);
+
+      List<String> plugins = Lists.newArrayList();
+      for (Node pluginNode : projectNode.getSingle("plugins").get("plugin"))
+      {
+         plugins.add(text(pluginNode, "class"));
+      }
+      project.put("plugins", plugins);
+
+      List<ForgeSourceSetOutput> sourceSets = Lists.newArrayList();
+      for (Node sourceSetNode : projectNode.getSingle("sourceSets").get("sourceSet"))
+      {
+         Map<String, Object> sourceSet = Maps.newHashMap();
+         sourceSet.put("name", text(sourceSetNode, "name"));
+         sourceSet.put("javaDirectories", texts(sourceSetNode.getSingle("java"), "directory"));
+         sourceSet.put("resourceDirectories", texts(sourceSetNode.getSingle("resources"), "directory"));
+         sourceSets.add(fake(ForgeSourceSetOutput.class, sourceSet));
+      }
+      project.put("sourceSets", sourceSets);
+
+      return fake(ForgeProjectOutput.class, project);
+   }
+
+   private static List<ForgeDependencyOutput> depsFromNode(Node depsNode)
+   {
+      List<ForgeDependencyOutput> deps = Lists.newArrayList();
+      for (Node depNode : depsNode.get("dependency"))
+      {
+         Map<String, Object> dep = Maps.newHashMap();
+         for (String name : new String[] { "group", "name", "version", "configuration" })
+         {
+            dep.put(name, text(depNode, name));
+         }
+
+         List<ForgeArtifactOutput> artifacts = Lists.newArrayList();
+         List<ForgeExcludeRuleOutput> excludeRules = Lists.newArrayList();
+         if (depNode.getSingle("artifacts") != null)
+         {
+            for (Node artifactNode : depNode.getSingle("artifacts").get("artifact"))
+            {
+               Map<String, Object> artifact = Maps.newHashMap();
+               artifact.put("classifier", text(artifactNode, "classifier"));
+               artifact.put("type", text(artifactNode, "type"));
+               artifacts.add(fake(ForgeArtifactOutput.class, artifact));
+            }
+            for (Node excludeRuleNode : depNode.getSingle("excludeRules").get("excludeRule"))
+            {
+               Map<String, Object> excludeRule = Maps.newHashMap();
+               excludeRule.put("group", text(excludeRuleNode, "group"));
+               excludeRule.put("module", text(excludeRuleNode, "module"));
+               excludeRules.add(fake(ForgeExcludeRuleOutput.class, excludeRule));
+            }
+         }
+         dep.put("artifacts", artifacts);
+         dep.put("excludeRules", excludeRules);
+         deps.add(fake(ForgeDependencyOutput.class, dep));
+      }
+      return deps;
+   }
+
+   private static String text(Node node, String child)
+   {
+      return node.getSingle(child).getText().trim();
+   }
+
+   private static List<String> texts(Node node, String child)
+   {
+      List<String> texts = Lists.newArrayList();
+      for (Node childNode : node.get(child))
+      {
+         texts.add(childNode.getText().trim());
+      }
+      return texts;
+   }
+
+   /**
+    * Creates model object which returns values from given map, keyed by getter property name.
+    */
+   private static <T> T fake(Class<T> type, final Map<String, Object> values)
+   {
+      return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+               new InvocationHandler()
+               {
+                  @Override
+                  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+                  {
+                     String name = method.getName().substring("get".length());
+                     return values.get(Character.toLowerCase(name.charAt(0)) + name.substring(1));
+                  }
+               }));
+   }
+}
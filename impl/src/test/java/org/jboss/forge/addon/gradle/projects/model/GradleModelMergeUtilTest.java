@@ -7,11 +7,16 @@
 package org.jboss.forge.addon.gradle.projects.model;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.EnumSet;
 import java.util.Set;
 
+import org.gradle.internal.impldep.com.google.common.collect.Lists;
 import org.gradle.internal.impldep.com.google.common.collect.Sets;
+import org.jboss.forge.addon.gradle.parser.GradleSourceUtil;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -224,4 +229,114 @@ public class GradleModelMergeUtilTest
       
       assertTrue(result.hasPlugin(GradlePluginBuilder.create().setType(GradlePluginType.EAR)));
    }
+
+   @Test
+   public void testApplyDependencies()
+   {
+      GradleModelBuilder builder = GradleModelBuilder.create(model);
+      builder.addDependency(GradleDependencyBuilder.create("testCompile", "j:u:nit"));
+      builder.removeDependency(GradleDependencyBuilder.create("compile", "x:y:z"));
+
+      GradleModel result = GradleModelMergeUtil.apply(model, builder);
+
+      assertTrue(result.hasDependency(GradleDependencyBuilder.create("testCompile", "j:u:nit")));
+      assertTrue(result.hasEffectiveDependency(GradleDependencyBuilder.create("testCompile", "j:u:nit")));
+      assertFalse(result.hasDependency(GradleDependencyBuilder.create("compile", "x:y:z")));
+      assertTrue(model.hasDependency(GradleDependencyBuilder.create("compile", "x:y:z")));
+   }
+
+   @Test
+   public void testApplyRepositoriesAndProperties()
+   {
+      GradleModelBuilder builder = GradleModelBuilder.create(model);
+      builder.addRepository(GradleRepositoryBuilder.create().setUrl("http://newrepo.org/"));
+      builder.removeRepository(GradleRepositoryBuilder.create().setUrl("http://url.com/"));
+      builder.setProperty("property", "newVal");
+      builder.setVersion("2.0");
+
+      GradleModel result = GradleModelMergeUtil.apply(model, builder);
+
+      assertEquals(1, result.getRepositories().size());
+      assertTrue(result.hasEffectiveRepository(GradleRepositoryBuilder.create().setUrl("http://newrepo.org/")));
+      assertEquals("newVal", result.getProperties().get("property"));
+      assertEquals("newVal", result.getEffectiveProperties().get("property"));
+      assertEquals("2.0", result.getVersion());
+   }
+
+   @Test
+   public void testApplyTask()
+   {
+      GradleModelBuilder builder = GradleModelBuilder.create(model);
+      builder.addTask(GradleTaskBuilder.create().setName("myTask"));
+
+      GradleModel result = GradleModelMergeUtil.apply(model, builder);
+
+      assertTrue(result.hasEffectiveTask(GradleTaskBuilder.create().setName("myTask")));
+      // Direct tasks are only the ones which will be added
+      assertTrue(result.getTasks().isEmpty());
+   }
+
+   @Test
+   public void testApplyNotDerivableChanges()
+   {
+      GradleModelBuilder builder = GradleModelBuilder.create(model);
+      builder.addPlugin(GradlePluginBuilder.create().setClazz("myplugin"));
+      assertNull(GradleModelMergeUtil.apply(model, builder));
+
+      builder = GradleModelBuilder.create(model);
+      builder.addDependency(GradleDependencyBuilder.create().setGroup("a").setName("b"));
+      assertNull(GradleModelMergeUtil.apply(model, builder));
+
+      builder = GradleModelBuilder.create(model);
+      builder.setLoadedSections(EnumSet.of(GradleModelSection.TASKS));
+      assertNull(GradleModelMergeUtil.apply(builder, GradleModelBuilder.create(model)));
+   }
+
+   @Test
+   public void testMergeSameAsSequentialChanges()
+   {
+      GradleModelBuilder builder = GradleModelBuilder.create(model);
+      // Copies of plugins and repositories don't equal to the originals, so they would be applied again
+      builder.setPlugins(Lists.newArrayList(model.getPlugins()));
+      builder.setRepositories(Lists.newArrayList(model.getRepositories()));
+      builder.addDependency(GradleDependencyBuilder.create("testCompile", "j:u:nit"));
+      builder.addDependency(GradleDependencyBuilder.create("runtime", "x:x:x"));
+      builder.addManagedDependency(GradleDependencyBuilder.create("compile", "m:n:o"));
+      builder.addPlugin(GradlePluginBuilder.create().setClazz("war"));
+      builder.addRepository(GradleRepositoryBuilder.create().setUrl("http://newrepo.org/"));
+      builder.removeProperty("property");
+      builder.setProperty("other", "value");
+
+      String expected = source;
+      expected = GradleSourceUtil.insertDependency(expected, GradleDependencyBuilder.create("testCompile", "j:u:nit"));
+      expected = GradleSourceUtil.insertDependency(expected, GradleDependencyBuilder.create("runtime", "x:x:x"));
+      expected = GradleSourceUtil.insertManagedDependency(expected,
+               GradleDependencyBuilder.create("compile", "m:n:o"));
+      expected = GradleSourceUtil.insertPlugin(expected, "war");
+      expected = GradleSourceUtil.insertRepository(expected, "http://newrepo.org/");
+      expected = GradleSourceUtil.removeProperty(expected, "ext.property");
+      expected = GradleSourceUtil.setProperty(expected, "ext.other", "value");
+
+      assertEquals(expected, GradleModelMergeUtil.merge(source, model, builder));
+   }
+
+   @Test
+   public void testMergeDependentChanges()
+   {
+      // Second dependency is inserted into dependencies closure created by the first one
+      source = "version = '1.0'\n";
+      model = GradleModelLoadUtil.load(source);
+
+      GradleModelBuilder builder = GradleModelBuilder.create(model);
+      builder.addDependency(GradleDependencyBuilder.create("compile", "a:b:c"));
+      builder.addDependency(GradleDependencyBuilder.create("compile", "d:e:f"));
+      builder.addPlugin(GradlePluginBuilder.create().setClazz("war"));
+
+      String expected = source;
+      expected = GradleSourceUtil.insertDependency(expected, GradleDependencyBuilder.create("compile", "a:b:c"));
+      expected = GradleSourceUtil.insertDependency(expected, GradleDependencyBuilder.create("compile", "d:e:f"));
+      expected = GradleSourceUtil.insertPlugin(expected, "war");
+
+      assertEquals(expected, GradleModelMergeUtil.merge(source, model, builder));
+   }
 }
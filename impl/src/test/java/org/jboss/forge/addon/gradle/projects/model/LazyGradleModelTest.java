@@ -0,0 +1,200 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.jboss.forge.addon.gradle.projects.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.gradle.internal.impldep.com.google.common.collect.Maps;
+import org.jboss.forge.furnace.util.Streams;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Adam Wyłuda
+ */
+public class LazyGradleModelTest
+{
+   private String script;
+   private GradleModel effectiveModel;
+   private int loads;
+   private Set<GradleModelSection> requestedSections;
+   private Function<Set<GradleModelSection>, GradleModel> loader;
+   private LazyGradleModel model;
+
+   @Before
+   public void setUp() throws IOException
+   {
+      script = Streams.toString(LazyGradleModelTest.class.getResourceAsStream("/loader/build.gradle"));
+      String xmlOutput = Streams.toString(LazyGradleModelTest.class.getResourceAsStream("/loader/forge-output.xml"));
+      Map<String, String> profileScripts = Maps.newHashMap();
+      profileScripts.put("glassfish", Streams.toString(LazyGradleModelTest.class
+               .getResourceAsStream("/loader/glassfish-profile.gradle")));
+      profileScripts.put("wildfly", Streams.toString(LazyGradleModelTest.class
+               .getResourceAsStream("/loader/wildfly-profile.gradle")));
+      effectiveModel = GradleModelLoadUtil.load(script, profileScripts, xmlOutput);
+      loads = 0;
+      loader = new Function<Set<GradleModelSection>, GradleModel>()
+      {
+         @Override
+         public GradleModel apply(Set<GradleModelSection> sections)
+         {
+            loads++;
+            requestedSections = sections;
+            if (sections.size() < GradleModelSection.values().length)
+            {
+               return GradleModelBuilder.create(effectiveModel).setLoadedSections(sections);
+            }
+            return effectiveModel;
+         }
+      };
+      model = new LazyGradleModel(script, loader);
+   }
+
+   @Test
+   public void testDirectSectionsDontLoadEffectiveModel()
+   {
+      GradleModel directModel = GradleModelLoadUtil.load(script);
+
+      assertEquals(directModel.getDependencies(), model.getDependencies());
+      assertEquals(directModel.getManagedDependencies(), model.getManagedDependencies());
+      assertEquals(directModel.getPlugins().size(), model.getPlugins().size());
+      assertEquals(directModel.getRepositories().size(), model.getRepositories().size());
+      assertEquals(directModel.getProperties(), model.getProperties());
+      assertTrue(model.hasDependency(directModel.getDependencies().get(0)));
+
+      assertFalse(model.isEffectiveModelLoaded());
+      assertEquals(0, loads);
+   }
+
+   @Test
+   public void testEffectiveModelIsLoadedOnce()
+   {
+      assertEquals(effectiveModel.getEffectiveDependencies(), model.getEffectiveDependencies());
+      assertEquals(effectiveModel.getEffectiveSourceSets().size(), model.getEffectiveSourceSets().size());
+      assertEquals("Gradle Test Project", model.getName());
+
+      assertTrue(model.isEffectiveModelLoaded());
+      assertSame(effectiveModel, model.getEffectiveModel());
+      assertEquals(1, loads);
+   }
+
+   @Test
+   public void testProjectInformationIsLoadedWithoutSections()
+   {
+      assertEquals("Gradle Test Project", model.getName());
+      assertEquals(effectiveModel.getVersion(), model.getVersion());
+
+      assertEquals(EnumSet.noneOf(GradleModelSection.class), requestedSections);
+      assertFalse(model.isEffectiveModelLoaded());
+      assertEquals(1, loads);
+
+      assertEquals(effectiveModel.getProfiles().size(), model.getProfiles().size());
+      assertTrue(model.isEffectiveModelLoaded());
+      assertEquals(2, loads);
+   }
+
+   @Test
+   public void testDirectSectionsUseLoadedEffectiveModel()
+   {
+      // Effective model is the only source of direct sections once it's loaded
+      effectiveModel = GradleModelBuilder.create(effectiveModel).setDependencies(new ArrayList<GradleDependency>());
+      model.getEffectiveModel();
+
+      assertTrue(model.getDependencies().isEmpty());
+      assertFalse(model.getPlugins().isEmpty());
+      assertEquals(1, loads);
+   }
+
+   @Test
+   public void testRequestedSectionsAreLoadedAlone()
+   {
+      model.getModel(EnumSet.of(GradleModelSection.SOURCE_SETS));
+
+      assertEquals(EnumSet.of(GradleModelSection.SOURCE_SETS), requestedSections);
+      assertEquals(effectiveModel.getEffectiveSourceSets().size(), model.getEffectiveSourceSets().size());
+      assertEquals("Gradle Test Project", model.getName());
+      assertTrue(model.isSectionLoaded(GradleModelSection.SOURCE_SETS));
+      assertFalse(model.isSectionLoaded(GradleModelSection.TASKS));
+      assertFalse(model.isEffectiveModelLoaded());
+      assertEquals(1, loads);
+   }
+
+   @Test
+   public void testTasksAreEvaluated()
+   {
+      assertEquals(effectiveModel.getTasks().size(), model.getTasks().size());
+
+      assertEquals(EnumSet.allOf(GradleModelSection.class), requestedSections);
+      assertEquals(1, loads);
+   }
+
+   @Test
+   public void testPartialModelIsCompletedWhenNeeded()
+   {
+      model = new LazyGradleModel(script, GradleModelBuilder.create(effectiveModel)
+               .setLoadedSections(EnumSet.of(GradleModelSection.DEPENDENCIES)), loader);
+
+      assertEquals(effectiveModel.getEffectiveDependencies(), model.getEffectiveDependencies());
+      assertEquals(0, loads);
+
+      assertEquals(effectiveModel.getProfiles().size(), model.getProfiles().size());
+      assertTrue(model.isEffectiveModelLoaded());
+      assertEquals(1, loads);
+   }
+
+   @Test
+   public void testStaleModelServesOnlyEffectiveSections()
+   {
+      GradleModel staleModel = GradleModelBuilder.create(effectiveModel)
+               .setDependencies(new ArrayList<GradleDependency>())
+               .setLoadedSections(EnumSet.of(GradleModelSection.DEPENDENCIES));
+      model = new LazyGradleModel(script, null, staleModel, loader);
+
+      assertEquals(effectiveModel.getEffectiveDependencies(), model.getEffectiveDependencies());
+      assertEquals("Gradle Test Project", model.getName());
+      assertEquals(GradleModelLoadUtil.load(script).getDependencies(), model.getDependencies());
+      assertSame(model, model.getModel(EnumSet.of(GradleModelSection.DEPENDENCIES)));
+      assertEquals(0, loads);
+
+      assertEquals(effectiveModel.getEffectiveSourceSets().size(), model.getEffectiveSourceSets().size());
+      assertTrue(model.isEffectiveModelLoaded());
+      assertEquals(1, loads);
+   }
+
+   @Test
+   public void testRequestedSectionsAccumulate()
+   {
+      model.getModel(EnumSet.of(GradleModelSection.SOURCE_SETS));
+      model.getModel(EnumSet.of(GradleModelSection.SOURCE_SETS));
+      model.getModel(EnumSet.of(GradleModelSection.TASKS));
+
+      assertEquals(EnumSet.of(GradleModelSection.SOURCE_SETS, GradleModelSection.TASKS), requestedSections);
+      assertEquals(2, loads);
+   }
+
+   @Test
+   public void testUnloadedSectionLoadsEffectiveModel()
+   {
+      model.getModel(EnumSet.of(GradleModelSection.SOURCE_SETS));
+      model.getEffectiveDependencies();
+
+      assertEquals(EnumSet.allOf(GradleModelSection.class), requestedSections);
+      assertTrue(model.isEffectiveModelLoaded());
+      assertTrue(model.isSectionLoaded(GradleModelSection.TASKS));
+      assertEquals(2, loads);
+   }
+}
@@ -11,17 +11,23 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 
 import org.gradle.internal.impldep.com.google.common.collect.Lists;
 import org.jboss.arquillian.container.test.api.Deployment;
 import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.forge.addon.configuration.Configuration;
 import org.jboss.forge.addon.gradle.parser.GradleSourceUtil;
+import org.jboss.forge.addon.gradle.projects.model.GradleModel;
 import org.jboss.forge.addon.gradle.projects.model.GradleModelBuilder;
+import org.jboss.forge.addon.gradle.projects.model.GradleProfile;
 import org.jboss.forge.addon.gradle.projects.model.GradleTask;
 import org.jboss.forge.addon.gradle.projects.model.GradleTaskBuilder;
 import org.jboss.forge.addon.projects.Project;
@@ -61,6 +67,8 @@ public class GradleFacetTest
    private GradleTestProjectProvider projectProvider;
    @Inject
    private ResourceFactory resourceFactory;
+   @Inject
+   private Configuration configuration;
 
    private Project project;
    private GradleFacet facet;
@@ -101,6 +109,8 @@ public class GradleFacetTest
       facet.getModel();
       assertFalse(((FileResource<?>) resourceFactory.create(new File(project.getRoot()
                .getFullyQualifiedName(), GradleSourceUtil.FORGE_OUTPUT_XML))).exists());
+      assertFalse(((FileResource<?>) resourceFactory.create(new File(project.getRoot()
+               .getFullyQualifiedName(), GradleSourceUtil.FORGE_OUTPUT_BINARY))).exists());
    }
 
    @Test
@@ -176,4 +186,72 @@ public class GradleFacetTest
                .getFullyQualifiedName(), "testOutput.txt"))).getContents();
       assertEquals("TEST", output);
    }
+
+   @Test
+   public void testReadEffectiveProfileModel()
+   {
+      List<GradleProfile> profiles = facet.getModel().getProfiles();
+      assertEquals(1, profiles.size());
+      GradleProfile profile = profiles.get(0);
+      assertEquals("test", profile.getName());
+      assertTrue(profile.getModel().hasEffectiveTask(GradleTaskBuilder.create().setName("testProfileOutput")));
+      assertFalse(facet.getModel().hasEffectiveTask(GradleTaskBuilder.create().setName("testProfileOutput")));
+   }
+
+   @Test
+   public void testExecuteTaskAndReloadModel() throws IOException
+   {
+      facet.installForgeLibrary();
+      assertTrue(facet.executeTaskAndReloadModel("someOutput", ""));
+      String output = ((FileResource<?>) resourceFactory.create(new File(project.getRoot()
+               .getFullyQualifiedName(), "output.txt"))).getContents();
+      assertEquals("XYZ", output);
+      assertEquals("test-project", facet.getModel().getName());
+   }
+
+   @Test
+   public void testExecuteTaskWithOutput() throws IOException
+   {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      facet.installForgeLibrary();
+      assertTrue(facet.executeTask("someOutput", "", out, null));
+      assertTrue(out.toString().contains("someOutput"));
+   }
+
+   @Test
+   public void testStaleModelRefresh() throws InterruptedException
+   {
+      // Persists the model
+      facet.getModel().getEffectiveTasks();
+      facet.getBuildScriptResource().setContents(
+               facet.getBuildScriptResource().getContents() + "\ntask staleModelTask\n");
+
+      final CountDownLatch refreshed = new CountDownLatch(1);
+      configuration.setProperty(GradleFacet.ALLOW_STALE_MODEL_CONF_KEY, true);
+      try
+      {
+         GradleTask staleModelTask = GradleTaskBuilder.create().setName("staleModelTask");
+         Project theSameProject = projectProvider.findProject();
+         GradleFacet newGradleFacet = theSameProject.getFacet(GradleFacet.class);
+         newGradleFacet.addModelListener(new GradleModelListener()
+         {
+            @Override
+            public void modelRefreshed(GradleFacet facet, GradleModel model)
+            {
+               refreshed.countDown();
+            }
+         });
+
+         assertFalse(newGradleFacet.getModel().hasEffectiveTask(staleModelTask));
+         assertTrue(newGradleFacet.isModelStale());
+
+         assertTrue(refreshed.await(2, TimeUnit.MINUTES));
+         assertFalse(newGradleFacet.isModelStale());
+         assertTrue(newGradleFacet.getModel().hasEffectiveTask(staleModelTask));
+      }
+      finally
+      {
+         configuration.clearProperty(GradleFacet.ALLOW_STALE_MODEL_CONF_KEY);
+      }
+   }
 }